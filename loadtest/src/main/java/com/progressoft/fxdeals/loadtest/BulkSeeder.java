@@ -0,0 +1,84 @@
+package com.progressoft.fxdeals.loadtest;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.postgresql.PGConnection;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Loads generated deals straight into the {@code deals} table with the database's
+ * bulk path, {@code COPY} on PostgreSQL and {@code LOAD DATA LOCAL INFILE} on MySQL.
+ * Rows bypass the API, so they are not written to the deal outbox.
+ *
+ * <p>Each chunk is loaded in its own statement and committed, so an interrupted run
+ * keeps the chunks already loaded. MySQL needs {@code allowLoadLocalInfile=true} in
+ * the JDBC URL and {@code local_infile} enabled on the server.
+ */
+final class BulkSeeder {
+
+    private static final String COLUMNS = "deal_unique_id, from_currency, to_currency, deal_timestamp, deal_amount, created_at";
+    private static final String COMPACT_COLUMNS = "deal_key, " + COLUMNS;
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final boolean compact;
+
+    /**
+     * @param compact whether the table has the application's compact storage layout
+     */
+    BulkSeeder(String jdbcUrl, String username, String password, boolean compact) {
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.compact = compact;
+    }
+
+    void seed(DealGenerator generator, long rows, LocalDateTime from, LocalDateTime to, long chunkRows,
+              PrintStream out) throws SQLException {
+        long chunks = (rows + chunkRows - 1) / chunkRows;
+        Duration chunkSpan = Duration.between(from, to).dividedBy(Math.max(1, chunks));
+        long started = System.nanoTime();
+        long loaded = 0;
+
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+            connection.setAutoCommit(true);
+            for (long chunk = 0; chunk < chunks; chunk++) {
+                long chunkSize = Math.min(chunkRows, rows - loaded);
+                LocalDateTime chunkFrom = from.plus(chunkSpan.multipliedBy(chunk));
+                DealCsvStream csv = new DealCsvStream(generator, compact, chunkSize, chunkFrom, chunkFrom.plus(chunkSpan));
+                load(connection, csv);
+                loaded += chunkSize;
+
+                double seconds = (System.nanoTime() - started) / 1e9;
+                out.printf("Loaded %,d of %,d deals (%,.0f rows/s)%n", loaded, rows, loaded / seconds);
+            }
+        }
+    }
+
+    private void load(Connection connection, DealCsvStream csv) throws SQLException {
+        String columns = compact ? COMPACT_COLUMNS : COLUMNS;
+        if (jdbcUrl.startsWith("jdbc:postgresql:")) {
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY deals (" + columns + ") FROM STDIN WITH (FORMAT csv)", csv, 64 * 1024);
+            } catch (java.io.IOException e) {
+                throw new SQLException("COPY failed", e);
+            }
+        } else if (jdbcUrl.startsWith("jdbc:mysql:")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(csv);
+                statement.execute("LOAD DATA LOCAL INFILE 'deals.csv' INTO TABLE deals "
+                        + "FIELDS TERMINATED BY ',' LINES TERMINATED BY '\\n' (" + columns + ")");
+            }
+        } else {
+            throw new IllegalArgumentException("Bulk seeding supports PostgreSQL and MySQL, not " + jdbcUrl);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.progressoft.fxdeals.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Currency pairs weighted by their approximate share of global FX turnover, so that
+ * generated load concentrates on a few majors like production traffic does.
+ */
+final class CurrencyPairs {
+
+    static final List<Pair> MARKET_SHARE = List.of(
+            new Pair("EUR", "USD", 22.7),
+            new Pair("USD", "JPY", 13.5),
+            new Pair("GBP", "USD", 9.5),
+            new Pair("USD", "CNY", 6.6),
+            new Pair("USD", "CAD", 5.5),
+            new Pair("AUD", "USD", 5.1),
+            new Pair("USD", "CHF", 3.9),
+            new Pair("USD", "HKD", 2.6),
+            new Pair("USD", "SGD", 2.4),
+            new Pair("EUR", "GBP", 2.0),
+            new Pair("USD", "KRW", 1.7),
+            new Pair("USD", "INR", 1.6),
+            new Pair("USD", "MXN", 1.5),
+            new Pair("EUR", "JPY", 1.1),
+            new Pair("EUR", "CHF", 1.1),
+            new Pair("NZD", "USD", 1.0),
+            new Pair("USD", "SEK", 1.0),
+            new Pair("USD", "NOK", 0.9),
+            new Pair("USD", "ZAR", 0.8),
+            new Pair("USD", "TRY", 0.6),
+            new Pair("USD", "BRL", 0.5),
+            new Pair("EUR", "SEK", 0.4),
+            new Pair("GBP", "JPY", 0.4),
+            new Pair("AUD", "JPY", 0.3),
+            new Pair("EUR", "NOK", 0.3),
+            new Pair("JOD", "USD", 0.1));
+
+    private final List<Pair> pairs;
+    private final double[] cumulativeWeights;
+
+    CurrencyPairs(List<Pair> pairs) {
+        this.pairs = List.copyOf(pairs);
+        this.cumulativeWeights = new double[pairs.size()];
+        double total = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            total += pairs.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    Pair pick(SplittableRandom random) {
+        double point = random.nextDouble(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, point);
+        return pairs.get(index >= 0 ? index + 1 : -index - 1);
+    }
+
+    record Pair(String base, String quote, double weight) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.progressoft.fxdeals.loadtest;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * CSV rows of generated deals, produced while the database reads them, so any
+ * number of rows can be streamed without holding them in memory. Rows are spread
+ * evenly over the given time range.
+ */
+final class DealCsvStream extends InputStream {
+
+    private static final int ROWS_PER_FILL = 1_000;
+
+    private final DealGenerator generator;
+    private final boolean compact;
+    private final long rows;
+    private final LocalDateTime from;
+    private final long stepNanos;
+    private final StringBuilder csv = new StringBuilder(ROWS_PER_FILL * 96);
+    private byte[] buffer = new byte[0];
+    private int position;
+    private long produced;
+
+    DealCsvStream(DealGenerator generator, boolean compact, long rows, LocalDateTime from, LocalDateTime to) {
+        this.generator = generator;
+        this.compact = compact;
+        this.rows = rows;
+        this.from = from;
+        this.stepNanos = rows > 0 ? Duration.between(from, to).toNanos() / rows : 0;
+    }
+
+    @Override
+    public int read() {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int count = Math.min(length, buffer.length - position);
+        System.arraycopy(buffer, position, target, offset, count);
+        position += count;
+        return count;
+    }
+
+    long getProduced() {
+        return produced;
+    }
+
+    private boolean ensureAvailable() {
+        if (position < buffer.length) {
+            return true;
+        }
+        if (produced == rows) {
+            return false;
+        }
+        csv.setLength(0);
+        long batchEnd = Math.min(rows, produced + ROWS_PER_FILL);
+        for (; produced < batchEnd; produced++) {
+            LocalDateTime createdAt = from.plusNanos(produced * stepNanos);
+            GeneratedDeal deal = generator.nextValid(createdAt);
+            if (compact) {
+                deal.appendCompactCsv(csv, createdAt);
+            } else {
+                deal.appendCsv(csv, createdAt);
+            }
+        }
+        buffer = csv.toString().getBytes(StandardCharsets.US_ASCII);
+        position = 0;
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.progressoft.fxdeals.loadtest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Produces a reproducible stream of deal requests: currency pairs follow market
+ * share, amounts are log-normal, timestamps lag behind the send time by a random
+ * skew, and configured shares of the deals are duplicates or invalid.
+ *
+ * <p>Not thread-safe; each sending thread needs its own generator.
+ */
+final class DealGenerator {
+
+    private static final int RECENT_IDS = 10_000;
+    private static final int DUPLICATE_DISTANCE = 1_000;
+    private static final double AMOUNT_SIGMA = 1.5;
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("999999999999.99");
+
+    private final GeneratorConfig config;
+    private final SplittableRandom random;
+    private final CurrencyPairs pairs = new CurrencyPairs(CurrencyPairs.MARKET_SHARE);
+    private final String[] recentIds = new String[RECENT_IDS];
+    private long sequence;
+    private long remembered;
+
+    DealGenerator(GeneratorConfig config) {
+        this.config = config;
+        this.random = new SplittableRandom(config.seed());
+    }
+
+    GeneratedDeal next(LocalDateTime now) {
+        double roll = random.nextDouble();
+        if (roll < config.duplicateRatio() && remembered > DUPLICATE_DISTANCE) {
+            return duplicate(now);
+        }
+        if (roll < config.duplicateRatio() + config.invalidRatio()) {
+            return invalid(now);
+        }
+        return nextValid(now);
+    }
+
+    /**
+     * Returns a valid deal with a new ID, whatever the configured ratios.
+     */
+    GeneratedDeal nextValid(LocalDateTime now) {
+        return deal(newId(true), now, GeneratedDeal.Kind.VALID);
+    }
+
+    private GeneratedDeal duplicate(LocalDateTime now) {
+        // Far enough back that the original has most likely been stored already
+        long available = Math.min(remembered, RECENT_IDS) - DUPLICATE_DISTANCE;
+        long back = DUPLICATE_DISTANCE + random.nextLong(available);
+        String id = recentIds[(int) ((remembered - back) % RECENT_IDS)];
+        return deal(id, now, GeneratedDeal.Kind.DUPLICATE);
+    }
+
+    private GeneratedDeal invalid(LocalDateTime now) {
+        // Not remembered, so no duplicate reuses an ID that was never stored
+        GeneratedDeal deal = deal(newId(false), now, GeneratedDeal.Kind.INVALID);
+        return switch (random.nextInt(4)) {
+            case 0 -> new GeneratedDeal(deal.dealUniqueId(), deal.fromCurrency(), deal.fromCurrency(),
+                    deal.dealTimestamp(), deal.dealAmount(), GeneratedDeal.Kind.INVALID);
+            case 1 -> new GeneratedDeal(deal.dealUniqueId(), "ZZZ", deal.toCurrency(),
+                    deal.dealTimestamp(), deal.dealAmount(), GeneratedDeal.Kind.INVALID);
+            case 2 -> new GeneratedDeal(deal.dealUniqueId(), deal.fromCurrency(), deal.toCurrency(),
+                    deal.dealTimestamp(), deal.dealAmount().negate(), GeneratedDeal.Kind.INVALID);
+            default -> new GeneratedDeal("", deal.fromCurrency(), deal.toCurrency(),
+                    deal.dealTimestamp(), deal.dealAmount(), GeneratedDeal.Kind.INVALID);
+        };
+    }
+
+    private String newId(boolean remember) {
+        String id = config.idPrefix() + "-" + sequence;
+        if (remember) {
+            recentIds[(int) (remembered++ % RECENT_IDS)] = id;
+        }
+        sequence++;
+        return id;
+    }
+
+    private GeneratedDeal deal(String id, LocalDateTime now, GeneratedDeal.Kind kind) {
+        CurrencyPairs.Pair pair = pairs.pick(random);
+        boolean baseFirst = random.nextBoolean();
+        return new GeneratedDeal(id,
+                baseFirst ? pair.base() : pair.quote(),
+                baseFirst ? pair.quote() : pair.base(),
+                timestamp(now), amount(), kind);
+    }
+
+    private LocalDateTime timestamp(LocalDateTime now) {
+        long maxSkewMillis = config.maxTimestampSkew().toMillis();
+        if (maxSkewMillis == 0) {
+            return now;
+        }
+        // Most deals arrive shortly after they were struck, a few much later
+        double skew = -Math.log(1 - random.nextDouble()) * maxSkewMillis / 4;
+        return now.minusNanos((long) Math.min(skew, maxSkewMillis) * 1_000_000);
+    }
+
+    private BigDecimal amount() {
+        double amount = config.medianAmount() * Math.exp(AMOUNT_SIGMA * gaussian());
+        BigDecimal rounded = BigDecimal.valueOf(Math.max(amount, 0.01)).setScale(2, RoundingMode.HALF_UP);
+        return rounded.min(MAX_AMOUNT);
+    }
+
+    private double gaussian() {
+        // Box-Muller, as SplittableRandom has no nextGaussian on Java 17
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
@@ -0,0 +1,82 @@
+package com.progressoft.fxdeals.loadtest;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Currency;
+
+/**
+ * A deal request together with the response the API is expected to give it.
+ */
+record GeneratedDeal(String dealUniqueId, String fromCurrency, String toCurrency,
+                     LocalDateTime dealTimestamp, BigDecimal dealAmount, Kind kind) {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final DateTimeFormatter CSV_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    enum Kind {
+        VALID(201),
+        DUPLICATE(409),
+        INVALID(400);
+
+        private final int expectedStatus;
+
+        Kind(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+
+        int expectedStatus() {
+            return expectedStatus;
+        }
+    }
+
+    String toJson() {
+        return "{\"dealUniqueId\":\"" + dealUniqueId
+                + "\",\"fromCurrency\":\"" + fromCurrency
+                + "\",\"toCurrency\":\"" + toCurrency
+                + "\",\"dealTimestamp\":\"" + TIMESTAMP.format(dealTimestamp)
+                + "\",\"dealAmount\":" + dealAmount.toPlainString() + "}";
+    }
+
+    /**
+     * Appends the deal as a row of {@code deal_unique_id, from_currency, to_currency,
+     * deal_timestamp, deal_amount, created_at}.
+     */
+    void appendCsv(StringBuilder csv, LocalDateTime createdAt) {
+        csv.append(dealUniqueId).append(',')
+                .append(fromCurrency).append(',')
+                .append(toCurrency).append(',')
+                .append(CSV_TIMESTAMP.format(dealTimestamp)).append(',')
+                .append(dealAmount.toPlainString()).append(',')
+                .append(CSV_TIMESTAMP.format(createdAt)).append('\n');
+    }
+
+    /**
+     * Appends the deal as a row of the compact layout, {@code deal_key, deal_unique_id,
+     * from_currency, to_currency, deal_timestamp, deal_amount, created_at}: the first
+     * eight bytes of the ID's SHA-256 digest, ISO numeric currency codes and the
+     * amount in ten-thousandths, as the application's compact mapping stores them.
+     */
+    void appendCompactCsv(StringBuilder csv, LocalDateTime createdAt) {
+        csv.append(dealKey(dealUniqueId)).append(',')
+                .append(dealUniqueId).append(',')
+                .append(Currency.getInstance(fromCurrency).getNumericCode()).append(',')
+                .append(Currency.getInstance(toCurrency).getNumericCode()).append(',')
+                .append(CSV_TIMESTAMP.format(dealTimestamp)).append(',')
+                .append(dealAmount.movePointRight(4).longValueExact()).append(',')
+                .append(CSV_TIMESTAMP.format(createdAt)).append('\n');
+    }
+
+    private static long dealKey(String dealUniqueId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(dealUniqueId.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.progressoft.fxdeals.loadtest;
+
+import java.time.Duration;
+
+/**
+ * @param seed             makes runs reproducible; the same seed yields the same deals
+ * @param idPrefix         prefix of generated deal IDs, keeps separate runs from colliding
+ * @param duplicateRatio   share of deals that repeat an earlier deal's ID
+ * @param invalidRatio     share of deals that fail validation
+ * @param maxTimestampSkew how far a deal's timestamp may lag behind the time it is sent
+ * @param medianAmount     median deal amount, amounts are log-normally distributed around it
+ */
+record GeneratorConfig(long seed, String idPrefix, double duplicateRatio, double invalidRatio,
+                       Duration maxTimestampSkew, double medianAmount) {
+
+    GeneratorConfig {
+        if (duplicateRatio < 0 || invalidRatio < 0 || duplicateRatio + invalidRatio > 1) {
+            throw new IllegalArgumentException("Duplicate and invalid ratios must be non-negative and add up to at most 1");
+        }
+        if (maxTimestampSkew.isNegative()) {
+            throw new IllegalArgumentException("Timestamp skew must not be negative");
+        }
+        if (medianAmount <= 0) {
+            throw new IllegalArgumentException("Median amount must be positive");
+        }
+    }
+
+    static GeneratorConfig from(Options options) {
+        return new GeneratorConfig(
+                options.getLong("seed", 42),
+                options.get("id-prefix", "LT-" + Long.toString(System.currentTimeMillis(), 36).toUpperCase()),
+                options.getDouble("duplicate-ratio", 0.01),
+                options.getDouble("invalid-ratio", 0.01),
+                options.getDuration("max-skew", Duration.ofMinutes(5)),
+                options.getDouble("median-amount", 250_000));
+    }
+}
@@ -0,0 +1,204 @@
+package com.progressoft.fxdeals.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP driver: requests are started on a fixed schedule whatever the
+ * response times, as independent clients would send them. Latency is measured from
+ * the scheduled start, so a stalled server shows up as queueing delay instead of
+ * being hidden by a slower send rate (coordinated omission).
+ *
+ * <p>When {@code maxInFlight} requests are outstanding, scheduled requests are
+ * counted as dropped instead of sent. A dropped request has no latency to record, so
+ * once one is dropped after the warm-up the percentiles are reported as invalid.
+ */
+final class HttpLoadDriver {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toNanos(5);
+
+    private final URI target;
+    private final double ratePerSecond;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+
+    private final Recorder progress = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private final Recorder measured = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder droppedMeasured = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    HttpLoadDriver(URI target, double ratePerSecond, Duration duration, Duration warmup,
+                   int maxInFlight, Duration requestTimeout) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.target = target;
+        this.ratePerSecond = ratePerSecond;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.maxInFlight = maxInFlight;
+        this.requestTimeout = requestTimeout;
+    }
+
+    static HttpLoadDriver from(Options options) {
+        return new HttpLoadDriver(
+                URI.create(options.get("url", "http://localhost:8080/api/v1/deals")),
+                options.getDouble("rate", 200),
+                options.getDuration("duration", Duration.ofSeconds(60)),
+                options.getDuration("warmup", Duration.ofSeconds(10)),
+                (int) options.getLong("max-in-flight", 2_000),
+                options.getDuration("request-timeout", Duration.ofSeconds(30)));
+    }
+
+    Histogram run(DealGenerator generator, PrintStream out) throws InterruptedException {
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(responseExecutor)
+                .build();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        Histogram interval = null;
+        long sent = 0;
+
+        out.printf("Sending %.0f deals/s to %s for %s after %s warm-up%n", ratePerSecond, target, duration, warmup);
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            if (intended >= nextReport) {
+                interval = progress.getIntervalHistogram(interval);
+                out.printf("%4ds  %6d/s  p50 %8.2f ms  p99 %8.2f ms  in flight %d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(nextReport - start), interval.getTotalCount(),
+                        millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                        inFlight.get());
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+            }
+
+            if (inFlight.get() >= maxInFlight) {
+                dropped.increment();
+                if (intended >= measureFrom) {
+                    droppedMeasured.increment();
+                }
+                continue;
+            }
+            send(client, generator.next(LocalDateTime.now()), intended, intended >= measureFrom);
+            sent++;
+        }
+
+        long drainDeadline = System.nanoTime() + requestTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        Histogram total = measured.getIntervalHistogram();
+        responseExecutor.shutdownNow();
+
+        report(out, total, sent);
+        return total;
+    }
+
+    private void send(HttpClient client, GeneratedDeal deal, long intended, boolean afterWarmup) {
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(deal.toJson()))
+                .build();
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long latency = Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_LATENCY);
+            inFlight.decrementAndGet();
+            progress.recordValue(latency);
+            if (!afterWarmup) {
+                return;
+            }
+            measured.recordValue(latency);
+            if (error != null) {
+                failures.increment();
+                return;
+            }
+            statusCounts.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+            if (response.statusCode() != deal.kind().expectedStatus()) {
+                mismatches.increment();
+            }
+        });
+    }
+
+    private void report(PrintStream out, Histogram histogram, long sent) {
+        double seconds = duration.toNanos() / 1e9;
+        Map<Integer, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((status, count) -> statuses.put(status, count.sum()));
+
+        out.println();
+        out.printf("Requests sent:       %d (%d dropped at %d in flight)%n", sent, dropped.sum(), maxInFlight);
+        out.printf("Measured responses:  %d over %.0f s = %.1f deals/s%n",
+                histogram.getTotalCount() - failures.sum(), seconds,
+                (histogram.getTotalCount() - failures.sum()) / seconds);
+        out.printf("Status codes:        %s%n", statuses);
+        out.printf("Connection failures: %d%n", failures.sum());
+        out.printf("Unexpected statuses: %d%n", mismatches.sum());
+        if (!percentilesValid()) {
+            out.printf("Latency percentiles: invalid, %d requests after warm-up were dropped without a latency;%n"
+                    + "                     raise --max-in-flight or lower --rate%n", droppedMeasured.sum());
+            return;
+        }
+        out.println("Latency from scheduled start (ms):");
+        for (double percentile : new double[]{50, 90, 99, 99.9, 99.99}) {
+            out.printf("  p%-6s %10.2f%n", percentile, millis(histogram.getValueAtPercentile(percentile)));
+        }
+        out.printf("  max     %10.2f%n", millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * Whether the measured histogram holds every request scheduled after the warm-up;
+     * it does not once one of them was dropped at {@code maxInFlight}.
+     */
+    boolean percentilesValid() {
+        return droppedMeasured.sum() == 0;
+    }
+
+    static void writeHistogram(Histogram histogram, String file) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            histogram.outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
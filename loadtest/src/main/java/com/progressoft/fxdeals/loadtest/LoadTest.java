@@ -0,0 +1,88 @@
+package com.progressoft.fxdeals.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Entry point of the load-test tool.
+ *
+ * <pre>
+ * java -jar fxdeals-loadtest.jar drive    [--url=] [--rate=] [--duration=] [--warmup=] [--max-in-flight=]
+ *                                         [--request-timeout=] [--histogram-file=] [generator options]
+ * java -jar fxdeals-loadtest.jar seed     --jdbc-url= [--username=] [--password=] [--rows=] [--from=] [--to=]
+ *                                         [--chunk-rows=] [--layout=standard|compact] [generator options]
+ * java -jar fxdeals-loadtest.jar generate [--count=] [generator options]
+ *
+ * generator options: [--seed=] [--id-prefix=] [--duplicate-ratio=] [--invalid-ratio=] [--max-skew=]
+ *                    [--median-amount=]
+ * </pre>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            System.exit(1);
+        }
+
+        Options options = new Options(Arrays.copyOfRange(args, 1, args.length));
+        GeneratorConfig generatorConfig = GeneratorConfig.from(options);
+        PrintStream out = System.out;
+
+        switch (args[0]) {
+            case "drive" -> {
+                HttpLoadDriver driver = HttpLoadDriver.from(options);
+                Histogram latencies = driver.run(new DealGenerator(generatorConfig), out);
+                String histogramFile = options.get("histogram-file", null);
+                if (histogramFile != null && !driver.percentilesValid()) {
+                    out.printf("Not writing %s: requests were dropped%n", histogramFile);
+                } else if (histogramFile != null) {
+                    HttpLoadDriver.writeHistogram(latencies, histogramFile);
+                }
+            }
+            case "seed" -> {
+                // Seeded deals are all valid and unique, ratios only apply to API load
+                String idPrefix = options.get("id-prefix",
+                        "SEED-" + Long.toString(System.currentTimeMillis(), 36).toUpperCase());
+                GeneratorConfig seedConfig = new GeneratorConfig(generatorConfig.seed(), idPrefix, 0, 0,
+                        generatorConfig.maxTimestampSkew(), generatorConfig.medianAmount());
+                LocalDate from = options.getDate("from", LocalDate.now().minusYears(1));
+                LocalDate to = options.getDate("to", LocalDate.now());
+                String layout = options.get("layout", "standard");
+                if (!layout.equals("standard") && !layout.equals("compact")) {
+                    throw new IllegalArgumentException("--layout must be standard or compact, not " + layout);
+                }
+                new BulkSeeder(options.require("jdbc-url"), options.get("username", ""), options.get("password", ""),
+                        layout.equals("compact"))
+                        .seed(new DealGenerator(seedConfig), options.getLong("rows", 10_000_000),
+                                from.atStartOfDay(), to.atStartOfDay(), options.getLong("chunk-rows", 1_000_000), out);
+            }
+            case "generate" -> {
+                DealGenerator generator = new DealGenerator(generatorConfig);
+                long count = options.getLong("count", 100);
+                out.println("[");
+                for (long i = 0; i < count; i++) {
+                    out.print("  " + generator.next(LocalDateTime.now()).toJson());
+                    out.println(i + 1 < count ? "," : "");
+                }
+                out.println("]");
+            }
+            default -> {
+                usage();
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java -jar fxdeals-loadtest.jar <drive|seed|generate> [--option=value ...]");
+        System.err.println("See the load testing section of the README for the options.");
+    }
+}
@@ -0,0 +1,140 @@
+package com.progressoft.fxdeals.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DealGeneratorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 15, 10, 30);
+    private static final int DEALS = 50_000;
+
+    @Test
+    void shouldGenerateSameDealsForSameSeed() {
+        // Given
+        DealGenerator first = new DealGenerator(config(7, 0.05, 0.05));
+        DealGenerator second = new DealGenerator(config(7, 0.05, 0.05));
+
+        // When & Then
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(first.next(NOW)).isEqualTo(second.next(NOW));
+        }
+    }
+
+    @Test
+    void shouldMatchConfiguredRatiosAndPairDistribution() {
+        // Given
+        DealGenerator generator = new DealGenerator(config(42, 0.05, 0.02));
+        Map<GeneratedDeal.Kind, Integer> kinds = new HashMap<>();
+        Map<String, Integer> pairs = new HashMap<>();
+        Set<String> validIds = new HashSet<>();
+        List<GeneratedDeal> duplicates = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < DEALS; i++) {
+            GeneratedDeal deal = generator.next(NOW);
+            kinds.merge(deal.kind(), 1, Integer::sum);
+            switch (deal.kind()) {
+                case VALID -> {
+                    validIds.add(deal.dealUniqueId());
+                    pairs.merge(pairKey(deal), 1, Integer::sum);
+                }
+                case DUPLICATE -> duplicates.add(deal);
+                case INVALID -> assertThat(isInvalid(deal)).as(deal.toString()).isTrue();
+            }
+        }
+
+        // Then
+        assertThat(kinds.get(GeneratedDeal.Kind.DUPLICATE) / (double) DEALS).isCloseTo(0.05, within(0.01));
+        assertThat(kinds.get(GeneratedDeal.Kind.INVALID) / (double) DEALS).isCloseTo(0.02, within(0.005));
+        assertThat(duplicates).allSatisfy(deal -> assertThat(validIds).contains(deal.dealUniqueId()));
+        double totalWeight = CurrencyPairs.MARKET_SHARE.stream().mapToDouble(CurrencyPairs.Pair::weight).sum();
+        assertThat(pairs.get("EUR/USD") / (double) validIds.size()).isCloseTo(22.7 / totalWeight, within(0.02));
+        assertThat(pairs.get("EUR/USD")).isGreaterThan(pairs.get("USD/JPY")).isGreaterThan(pairs.get("GBP/USD"));
+    }
+
+    @Test
+    void shouldKeepTimestampsWithinSkewAndAmountsPositive() {
+        // Given
+        DealGenerator generator = new DealGenerator(config(3, 0, 0));
+
+        // When & Then
+        for (int i = 0; i < 10_000; i++) {
+            GeneratedDeal deal = generator.next(NOW);
+            assertThat(deal.dealTimestamp()).isBetween(NOW.minusMinutes(5), NOW);
+            assertThat(deal.dealAmount().signum()).isPositive();
+            assertThat(deal.dealAmount().scale()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldStreamRequestedNumberOfCsvRows() throws IOException {
+        // Given
+        DealCsvStream csv = new DealCsvStream(new DealGenerator(config(1, 0, 0)), false, 2_500,
+                NOW, NOW.plusDays(1));
+
+        // When
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        csv.transferTo(bytes);
+        String[] lines = bytes.toString(StandardCharsets.US_ASCII).split("\n");
+
+        // Then
+        assertThat(lines).hasSize(2_500);
+        assertThat(lines[0].split(",")).hasSize(6);
+        assertThat(lines[2_499]).contains("2024-01-16 10:29");
+    }
+
+    @Test
+    void shouldWriteCompactCsvRows() throws IOException {
+        // Given
+        DealCsvStream csv = new DealCsvStream(new DealGenerator(config(1, 0, 0)), true, 10,
+                NOW, NOW.plusDays(1));
+
+        // When
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        csv.transferTo(bytes);
+        String[] lines = bytes.toString(StandardCharsets.US_ASCII).split("\n");
+
+        // Then
+        assertThat(lines).hasSize(10);
+        String[] columns = lines[0].split(",");
+        assertThat(columns).hasSize(7);
+        assertThat(Long.parseLong(columns[0])).isNotZero();
+        assertThat(columns[2]).matches("\\d+");
+        assertThat(columns[3]).matches("\\d+");
+        assertThat(columns[5]).matches("\\d+");
+    }
+
+    private static GeneratorConfig config(long seed, double duplicateRatio, double invalidRatio) {
+        return new GeneratorConfig(seed, "TEST", duplicateRatio, invalidRatio, Duration.ofMinutes(5), 250_000);
+    }
+
+    private static String pairKey(GeneratedDeal deal) {
+        return CurrencyPairs.MARKET_SHARE.stream()
+                .filter(pair -> pair.base().equals(deal.fromCurrency()) && pair.quote().equals(deal.toCurrency())
+                        || pair.base().equals(deal.toCurrency()) && pair.quote().equals(deal.fromCurrency()))
+                .map(pair -> pair.base() + "/" + pair.quote())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static boolean isInvalid(GeneratedDeal deal) {
+        return deal.dealUniqueId().isEmpty()
+                || deal.fromCurrency().equals(deal.toCurrency())
+                || deal.fromCurrency().equals("ZZZ")
+                || deal.dealAmount().signum() < 0;
+    }
+}
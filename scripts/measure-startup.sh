@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Starts the application with the given command and reports the time until the first deal
+# is accepted and the resident memory of the process at that point.
+#
+# Usage: scripts/measure-startup.sh <command...>
+#   scripts/measure-startup.sh java -jar target/fxdeals-0.0.1-SNAPSHOT.jar
+#   scripts/measure-startup.sh java -XX:SharedArchiveFile=fxdeals.jsa -Dspring.aot.enabled=true \
+#       -Dspring.profiles.active=docker,prod -jar application/fxdeals.jar
+#
+# Environment:
+#   DEALS_URL  deal submission endpoint (default http://localhost:8080/api/v1/deals)
+#   TIMEOUT    seconds to wait for the first accepted deal (default 120)
+#   RUNS       number of starts to measure (default 1)
+
+set -euo pipefail
+
+if [ $# -eq 0 ]; then
+    sed -n '2,14p' "$0"
+    exit 1
+fi
+
+DEALS_URL=${DEALS_URL:-http://localhost:8080/api/v1/deals}
+TIMEOUT=${TIMEOUT:-120}
+RUNS=${RUNS:-1}
+
+now_ms() {
+    date +%s%3N
+}
+
+measure() {
+    local log deal_id start deadline status elapsed rss
+    log=$(mktemp)
+    deal_id="STARTUP-$(date +%s%N)"
+
+    start=$(now_ms)
+    "$@" > "$log" 2>&1 &
+    local pid=$!
+    trap 'kill $pid 2>/dev/null || true' RETURN
+
+    deadline=$((start + TIMEOUT * 1000))
+    while true; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' -X POST "$DEALS_URL" \
+            -H 'Content-Type: application/json' \
+            -d "{\"dealUniqueId\":\"$deal_id\",\"fromCurrency\":\"USD\",\"toCurrency\":\"EUR\",\"dealTimestamp\":\"2024-01-15T10:30:00\",\"dealAmount\":1000.00}" \
+            || true)
+        if [ "$status" = "201" ]; then
+            break
+        fi
+        if ! kill -0 "$pid" 2>/dev/null || [ "$(now_ms)" -gt "$deadline" ]; then
+            echo "No deal accepted (last status: $status), log: $log" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    elapsed=$(($(now_ms) - start))
+    rss=$(awk '/VmRSS/ { printf "%d", $2 / 1024 }' "/proc/$pid/status")
+
+    echo "time-to-first-accepted-deal: ${elapsed} ms, RSS: ${rss} MB"
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+}
+
+for ((run = 1; run <= RUNS; run++)); do
+    measure "$@"
+done
@@ -0,0 +1,36 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.archive.DealArchiver;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * Tiered storage of old deals. {@code GET /actuator/archive} shows whether runs are
+ * scheduled here and the outcome of the last run; {@code POST} archives every deal
+ * past the configured age now and returns the report.
+ */
+@Endpoint(id = "archive")
+public class ArchiveEndpoint {
+
+    private final DealArchiver dealArchiver;
+
+    public ArchiveEndpoint(DealArchiver dealArchiver) {
+        this.dealArchiver = dealArchiver;
+    }
+
+    @ReadOperation
+    public DealArchiver.Status status() {
+        return dealArchiver.status();
+    }
+
+    @WriteOperation
+    public DealArchiver.ArchiveReport archive() {
+        try {
+            return dealArchiver.archive();
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.ingest.DuplicateGuard;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Duplicate submissions and their top offenders. {@code GET /actuator/duplicates}
+ * lists the most submitted deal IDs and the clients submitting and rejected most,
+ * ten of each unless {@code limit} says otherwise; {@code DELETE} forgets the deal
+ * IDs remembered as duplicates.
+ */
+@Endpoint(id = "duplicates")
+public class DuplicatesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final DuplicateGuard duplicateGuard;
+
+    public DuplicatesEndpoint(DuplicateGuard duplicateGuard) {
+        this.duplicateGuard = duplicateGuard;
+    }
+
+    @ReadOperation
+    public DuplicateGuard.Report report(@Nullable Integer limit) {
+        return duplicateGuard.report(limit == null ? DEFAULT_LIMIT : Math.max(0, limit));
+    }
+
+    @DeleteOperation
+    public DuplicateGuard.Report forget() {
+        duplicateGuard.forgetDuplicates();
+        return duplicateGuard.report(DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,51 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.profiling.FlightRecorderProfiler;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.lang.Nullable;
+
+/**
+ * Flight recordings. {@code GET /actuator/flightrecorder} lists the recordings and
+ * the current submission p99; {@code POST} with {@code {"name": "spike", "duration":
+ * "2m"}} starts a recording with the tuned profile; {@code DELETE
+ * /actuator/flightrecorder/spike} stops it early and writes it out.
+ * {@code DELETE /actuator/flightrecorder/continuous} dumps the continuous recording.
+ */
+@Endpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+
+    private final FlightRecorderProfiler flightRecorderProfiler;
+
+    public FlightRecorderEndpoint(FlightRecorderProfiler flightRecorderProfiler) {
+        this.flightRecorderProfiler = flightRecorderProfiler;
+    }
+
+    @ReadOperation
+    public FlightRecorderProfiler.Status status() {
+        return flightRecorderProfiler.status();
+    }
+
+    @WriteOperation
+    public FlightRecorderProfiler.RecordingInfo start(@Nullable String name, @Nullable String duration) {
+        try {
+            return flightRecorderProfiler.start(name, duration != null ? DurationStyle.detectAndParse(duration) : null);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public FlightRecorderProfiler.RecordingInfo stop(@Selector String name) {
+        try {
+            return flightRecorderProfiler.stop(name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
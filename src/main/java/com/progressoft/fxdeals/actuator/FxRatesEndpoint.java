@@ -0,0 +1,48 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.fx.DealRepricer;
+import com.progressoft.fxdeals.fx.FxRateSnapshot;
+import com.progressoft.fxdeals.fx.FxRateTable;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shows the FX rates deals are valued at and reloads them after the rate file has
+ * been corrected. {@code POST /actuator/fxrates} reloads the file and reprices the
+ * deals in currencies whose rate changed; {@code {"repriceAll": true}} reprices the
+ * deals in every currency with a rate.
+ */
+@Endpoint(id = "fxrates")
+public class FxRatesEndpoint {
+
+    private final FxRateTable fxRateTable;
+    private final DealRepricer dealRepricer;
+
+    public FxRatesEndpoint(FxRateTable fxRateTable, DealRepricer dealRepricer) {
+        this.fxRateTable = fxRateTable;
+        this.dealRepricer = dealRepricer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> rates() {
+        FxRateSnapshot snapshot = fxRateTable.current();
+        Map<String, Object> rates = new LinkedHashMap<>();
+        rates.put("location", fxRateTable.getLocation());
+        rates.put("version", snapshot.getVersion());
+        rates.put("loadedAt", snapshot.getLoadedAt());
+        rates.put("quotes", snapshot.getQuotes());
+        return rates;
+    }
+
+    @WriteOperation
+    public DealRepricer.RepricingReport reload(@Nullable Boolean repriceAll) {
+        Set<String> changed = fxRateTable.reload();
+        return dealRepricer.reprice(Boolean.TRUE.equals(repriceAll) ? fxRateTable.current().getCurrencies() : changed);
+    }
+}
@@ -0,0 +1,32 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.cache.DealQueryCache;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Cached query results. {@code GET /actuator/querycache} shows the size and hit rate
+ * of the cache; {@code DELETE} clears it, e.g. on every instance after deals were
+ * changed directly in the database.
+ */
+@Endpoint(id = "querycache")
+public class QueryCacheEndpoint {
+
+    private final DealQueryCache dealQueryCache;
+
+    public QueryCacheEndpoint(DealQueryCache dealQueryCache) {
+        this.dealQueryCache = dealQueryCache;
+    }
+
+    @ReadOperation
+    public DealQueryCache.Stats stats() {
+        return dealQueryCache.stats();
+    }
+
+    @DeleteOperation
+    public DealQueryCache.Stats clear() {
+        dealQueryCache.invalidateAll();
+        return dealQueryCache.stats();
+    }
+}
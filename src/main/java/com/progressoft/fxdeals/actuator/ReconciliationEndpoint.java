@@ -0,0 +1,49 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.reconciliation.ReconciliationJob;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reconciles counterparty confirmation files against our deals.
+ * {@code POST /actuator/reconciliation} with {@code {"file": "cp-20240115.csv",
+ * "from": "2024-01-15T00:00:00", "to": "2024-01-16T00:00:00"}} starts a run on a
+ * file in the inbox; {@code GET} shows its progress and the last report.
+ */
+@Endpoint(id = "reconciliation")
+public class ReconciliationEndpoint {
+
+    private final ReconciliationJob reconciliationJob;
+
+    public ReconciliationEndpoint(ReconciliationJob reconciliationJob) {
+        this.reconciliationJob = reconciliationJob;
+    }
+
+    @ReadOperation
+    public ReconciliationJob.Status status() {
+        return reconciliationJob.status();
+    }
+
+    @WriteOperation
+    public ReconciliationJob.Status start(String file, @Nullable String from, @Nullable String to) {
+        try {
+            return reconciliationJob.start(file, parse(from), parse(to));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    private static LocalDateTime parse(String timestamp) {
+        try {
+            return timestamp != null ? LocalDateTime.parse(timestamp) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + timestamp);
+        }
+    }
+}
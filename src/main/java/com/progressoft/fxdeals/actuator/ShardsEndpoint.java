@@ -0,0 +1,42 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.datasource.ShardRebalancer;
+import com.progressoft.fxdeals.datasource.ShardRoutingDataSource;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows how deals are spread over the shards and rebalances them after the shard
+ * list has changed. {@code POST /actuator/shards} with {@code {"dryRun": false}}
+ * moves rows; any other request body only reports what would move.
+ */
+@Endpoint(id = "shards")
+public class ShardsEndpoint {
+
+    private final ShardRoutingDataSource shardRoutingDataSource;
+    private final ShardRebalancer shardRebalancer;
+
+    public ShardsEndpoint(ShardRoutingDataSource shardRoutingDataSource, ShardRebalancer shardRebalancer) {
+        this.shardRoutingDataSource = shardRoutingDataSource;
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    @ReadOperation
+    public Map<String, Long> dealCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        shardRoutingDataSource.getShards().forEach((name, dataSource) ->
+                counts.put(name, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM deals", Long.class)));
+        return counts;
+    }
+
+    @WriteOperation
+    public ShardRebalancer.RebalanceReport rebalance(@Nullable Boolean dryRun) {
+        return shardRebalancer.rebalance(!Boolean.FALSE.equals(dryRun));
+    }
+}
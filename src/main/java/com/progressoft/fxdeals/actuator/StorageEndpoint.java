@@ -0,0 +1,33 @@
+package com.progressoft.fxdeals.actuator;
+
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import com.progressoft.fxdeals.storage.DealTableStatistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows the storage layout of the deals table and, per shard, the size of the table
+ * and of each index in bytes and per row.
+ */
+@Endpoint(id = "storage")
+public class StorageEndpoint {
+
+    private final DealStorageLayout dealStorageLayout;
+    private final DealTableStatistics dealTableStatistics;
+
+    public StorageEndpoint(DealStorageLayout dealStorageLayout, DealTableStatistics dealTableStatistics) {
+        this.dealStorageLayout = dealStorageLayout;
+        this.dealTableStatistics = dealTableStatistics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> storage() {
+        Map<String, Object> storage = new LinkedHashMap<>();
+        storage.put("layout", dealStorageLayout.getName());
+        storage.put("tables", dealTableStatistics.measure());
+        return storage;
+    }
+}
@@ -0,0 +1,423 @@
+package com.progressoft.fxdeals.analytics;
+
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.config.AnalyticsProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.exception.DealValidationException;
+import com.progressoft.fxdeals.model.dto.AggregateRequestDTO;
+import com.progressoft.fxdeals.model.dto.AggregateResponseDTO;
+import com.progressoft.fxdeals.model.dto.AggregateWindowDTO;
+import com.progressoft.fxdeals.model.dto.PairTotalsDTO;
+import com.progressoft.fxdeals.model.dto.WindowTotalsDTO;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.storage.DealKeys;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Totals deals over many windows in one call. Each window is either totalled by its
+ * own query, the queries running in parallel on a bounded pool so that a request
+ * never takes more than its share of the connection pool, or all windows are
+ * totalled by one grouped query joining the deals to the windows.
+ *
+ * <p>Separate queries read only the deals in some window; the grouped query reads
+ * every deal from the first window's start to the last window's end once, in a
+ * single round trip. So windows that overlap, or follow each other, are grouped, and
+ * windows spread apart are queried separately.
+ *
+ * <p>The separate queries of a request are capped, above which its windows are
+ * grouped whatever the configured strategy, so that a request with many windows
+ * cannot queue enough work on the shared pool to spend the time budget of others.
+ *
+ * <p>Queries run on every shard, and on the archive of each shard. Archived deals
+ * whose hot row is still in the table, because the archiver has indexed their
+ * segment but not yet deleted the rows, are only counted from the table. A request
+ * waits for its time budget at most: windows whose queries have not all completed by
+ * then are returned incomplete, without totals, and their queries are cancelled by
+ * the database once the budget has passed.
+ */
+public class DealAggregator implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealAggregator.class);
+
+    private static final DateTimeFormatter SQL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    private static final String TOTALS = "COUNT(*) AS deal_count, SUM(d.deal_amount) AS total_amount, "
+            + "SUM(d.usd_notional) AS total_usd_notional";
+    private static final int HOT_LOOKUP_BATCH = 1000;
+    private static final Comparator<PairTotalsDTO> PAIR_ORDER =
+            Comparator.comparing(PairTotalsDTO::getFromCurrency).thenComparing(PairTotalsDTO::getToCurrency);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final DealShardRouter dealShardRouter;
+    private final DealArchive dealArchive;
+    private final DealStorageLayout layout;
+    private final AnalyticsProperties properties;
+    private final ExecutorService executor;
+
+    public DealAggregator(DataSource dataSource, PlatformTransactionManager transactionManager,
+                          DealShardRouter dealShardRouter, DealArchive dealArchive, DealStorageLayout layout,
+                          AnalyticsProperties properties) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionManager = transactionManager;
+        this.dealShardRouter = dealShardRouter;
+        this.dealArchive = dealArchive;
+        this.layout = layout;
+        this.properties = properties;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "deal-analytics-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Totals the deals of every window per currency pair, in the order the windows
+     * were given.
+     *
+     * @throws DealValidationException if a window is invalid
+     */
+    public AggregateResponseDTO aggregate(AggregateRequestDTO request) {
+        long started = System.nanoTime();
+        List<Window> windows = validate(request.getWindows());
+        long deadline = started + timeBudget(request.getTimeBudgetMillis()).toNanos();
+        List<String> shards = shards();
+        AnalyticsProperties.Strategy strategy = strategyFor(windows, shards.size());
+        int[] allWindows = IntStream.range(0, windows.size()).toArray();
+
+        List<Part> parts = new ArrayList<>();
+        for (String shard : shards) {
+            if (strategy == AnalyticsProperties.Strategy.GROUPED) {
+                parts.add(submit(allWindows, shard, deadline, () -> queryGrouped(windows)));
+            } else {
+                for (int index : allWindows) {
+                    parts.add(submit(new int[]{index}, shard, deadline, () -> query(index, windows.get(index))));
+                }
+            }
+            parts.add(submit(allWindows, shard, deadline, () -> totalArchived(windows)));
+        }
+
+        boolean[] incomplete = new boolean[windows.size()];
+        Map<Integer, Map<String, PairTotalsDTO>> totals = new LinkedHashMap<>();
+        try {
+            for (Part part : parts) {
+                try {
+                    part.rows().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                            .forEach(row -> add(totals, row));
+                } catch (TimeoutException e) {
+                    part.markIncomplete(incomplete);
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof TimeoutException)) {
+                        logger.warn("Aggregate query failed: {}", e.getCause().toString());
+                    }
+                    part.markIncomplete(incomplete);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    part.markIncomplete(incomplete);
+                }
+            }
+        } finally {
+            parts.forEach(part -> part.rows().cancel(true));
+        }
+
+        List<WindowTotalsDTO> results = new ArrayList<>(windows.size());
+        for (int index : allWindows) {
+            Window window = windows.get(index);
+            List<PairTotalsDTO> pairs = incomplete[index] ? null
+                    : totals.getOrDefault(index, Map.of()).values().stream().sorted(PAIR_ORDER).toList();
+            results.add(new WindowTotalsDTO(window.fromCurrency(), window.toCurrency(), window.startTime(),
+                    window.endTime(), !incomplete[index], pairs));
+        }
+        boolean complete = results.stream().allMatch(WindowTotalsDTO::isComplete);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        String strategyName = strategy.name().toLowerCase();
+        if (complete) {
+            logger.info("Totalled {} window(s) with {} queries in {} ms", windows.size(), strategyName, elapsedMillis);
+        } else {
+            logger.warn("Totalled {} of {} window(s) with {} queries within the time budget", results.stream()
+                    .filter(WindowTotalsDTO::isComplete).count(), windows.size(), strategyName);
+        }
+        return new AggregateResponseDTO(strategyName, complete, elapsedMillis, results);
+    }
+
+    private List<Window> validate(List<AggregateWindowDTO> requested) {
+        if (requested == null || requested.isEmpty()) {
+            throw new DealValidationException("At least one window is required");
+        }
+        if (requested.size() > properties.getMaxWindows()) {
+            throw new DealValidationException("At most " + properties.getMaxWindows() + " windows are allowed");
+        }
+        List<Window> windows = new ArrayList<>(requested.size());
+        for (AggregateWindowDTO window : requested) {
+            if ((window.getFromCurrency() == null) != (window.getToCurrency() == null)) {
+                throw new DealValidationException("A window needs both currencies of its pair, or neither");
+            }
+            if (!window.getStartTime().isBefore(window.getEndTime())) {
+                throw new DealValidationException("Window start time must be before its end time");
+            }
+            windows.add(new Window(currency(window.getFromCurrency()), currency(window.getToCurrency()),
+                    window.getStartTime(), window.getEndTime()));
+        }
+        return windows;
+    }
+
+    private String currency(@Nullable String currencyCode) {
+        if (currencyCode == null) {
+            return null;
+        }
+        String upperCaseCode = currencyCode.toUpperCase();
+        try {
+            Currency.getInstance(upperCaseCode);
+        } catch (IllegalArgumentException e) {
+            throw new DealValidationException("Invalid currency code: " + currencyCode);
+        }
+        if (!layout.canStoreCurrency(upperCaseCode)) {
+            throw new DealValidationException("Currency code cannot be stored: " + currencyCode);
+        }
+        return upperCaseCode;
+    }
+
+    private Duration timeBudget(@Nullable Long timeBudgetMillis) {
+        if (timeBudgetMillis == null) {
+            return properties.getTimeBudget();
+        }
+        Duration requested = Duration.ofMillis(timeBudgetMillis);
+        return requested.compareTo(properties.getMaxTimeBudget()) > 0 ? properties.getMaxTimeBudget() : requested;
+    }
+
+    /**
+     * Grouped when separate queries would exceed the cap, or when the windows
+     * together are at least as long as the period they span, so that one pass over
+     * the period reads no more rows than the separate queries would.
+     */
+    private AnalyticsProperties.Strategy strategyFor(List<Window> windows, int shardCount) {
+        if ((long) windows.size() * shardCount > properties.getMaxParallelQueries()) {
+            return AnalyticsProperties.Strategy.GROUPED;
+        }
+        if (properties.getStrategy() != AnalyticsProperties.Strategy.AUTO) {
+            return properties.getStrategy();
+        }
+        Duration covered = Duration.ZERO;
+        for (Window window : windows) {
+            covered = covered.plus(Duration.between(window.startTime(), window.endTime()));
+        }
+        Duration spanned = Duration.between(firstStart(windows), lastEnd(windows));
+        return covered.compareTo(spanned) >= 0 ? AnalyticsProperties.Strategy.GROUPED
+                : AnalyticsProperties.Strategy.PARALLEL;
+    }
+
+    private List<String> shards() {
+        return dealShardRouter.isSharded() ? dealShardRouter.getShards() : Arrays.asList((String) null);
+    }
+
+    /**
+     * Queues {@code query} to run on {@code shard} in a read-only transaction whose
+     * timeout ends with the time budget, so the database stops queries that can no
+     * longer be waited for.
+     */
+    private Part submit(int[] windows, @Nullable String shard, long deadline, Supplier<Collection<Row>> query) {
+        return new Part(windows, executor.submit(() -> {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new TimeoutException("Time budget spent before the query started");
+            }
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos + 999_999_999)));
+            Supplier<Collection<Row>> work = () -> transactionTemplate.execute(status -> query.get());
+            return shard == null ? work.get() : ShardRoutingContext.onShard(shard, work);
+        }));
+    }
+
+    private Collection<Row> query(int index, Window window) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("startTime", window.startTime())
+                .addValue("endTime", window.endTime());
+        StringBuilder sql = new StringBuilder("SELECT d.from_currency, d.to_currency, ").append(TOTALS)
+                .append(" FROM deals d WHERE d.deal_timestamp >= :startTime AND d.deal_timestamp < :endTime");
+        if (window.hasPair()) {
+            sql.append(" AND d.from_currency = :fromCurrency AND d.to_currency = :toCurrency");
+            parameters.addValue("fromCurrency", layout.currencyParameter(window.fromCurrency()))
+                    .addValue("toCurrency", layout.currencyParameter(window.toCurrency()));
+        }
+        sql.append(" GROUP BY d.from_currency, d.to_currency");
+        return jdbcTemplate.query(sql.toString(), parameters, (rs, rowNum) -> row(index, rs));
+    }
+
+    /**
+     * One query joining the deals of the spanned period to the windows, given as a
+     * derived table of literals. Every literal is a validated currency, a formatted
+     * timestamp or an index, and the period bounds are parameters, so the timestamp
+     * index still narrows the scan.
+     */
+    private Collection<Row> queryGrouped(List<Window> windows) {
+        StringBuilder table = new StringBuilder();
+        for (int index = 0; index < windows.size(); index++) {
+            Window window = windows.get(index);
+            table.append(index == 0 ? "SELECT " : " UNION ALL SELECT ")
+                    .append(index).append(" AS window_index, ")
+                    .append("TIMESTAMP '").append(SQL_TIMESTAMP.format(window.startTime())).append("' AS start_time, ")
+                    .append("TIMESTAMP '").append(SQL_TIMESTAMP.format(window.endTime())).append("' AS end_time, ")
+                    .append(window.hasPair() ? 0 : 1).append(" AS any_pair, ")
+                    .append(currencyLiteral(window.fromCurrency())).append(" AS from_currency, ")
+                    .append(currencyLiteral(window.toCurrency())).append(" AS to_currency");
+        }
+        String sql = "SELECT w.window_index, d.from_currency, d.to_currency, " + TOTALS
+                + " FROM deals d JOIN (" + table + ") w"
+                + " ON d.deal_timestamp >= w.start_time AND d.deal_timestamp < w.end_time"
+                + " AND (w.any_pair = 1 OR (d.from_currency = w.from_currency AND d.to_currency = w.to_currency))"
+                + " WHERE d.deal_timestamp >= :startTime AND d.deal_timestamp < :endTime"
+                + " GROUP BY w.window_index, d.from_currency, d.to_currency";
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("startTime", firstStart(windows))
+                .addValue("endTime", lastEnd(windows));
+        return jdbcTemplate.query(sql, parameters, (rs, rowNum) -> row(rs.getInt("window_index"), rs));
+    }
+
+    private String currencyLiteral(@Nullable String currency) {
+        if (currency == null) {
+            return layout.isCompact() ? "0" : "''";
+        }
+        Object parameter = layout.currencyParameter(currency);
+        return parameter instanceof String code ? "'" + code + "'" : parameter.toString();
+    }
+
+    private Collection<Row> totalArchived(List<Window> windows) {
+        List<Deal> archived = dealArchive.findDealsByTimestampRange(firstStart(windows), lastEnd(windows));
+        Set<String> stillHot = findStillHot(archived);
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (Deal deal : archived) {
+            if (stillHot.contains(deal.getDealUniqueId())) {
+                continue;
+            }
+            for (int index = 0; index < windows.size(); index++) {
+                if (windows.get(index).contains(deal)) {
+                    Row row = new Row(index, deal.getFromCurrency(), deal.getToCurrency(), 1, deal.getDealAmount(),
+                            deal.getUsdNotional() != null ? deal.getUsdNotional() : BigDecimal.ZERO);
+                    rows.merge(row.key(), row, Row::plus);
+                }
+            }
+        }
+        return rows.values();
+    }
+
+    /**
+     * The unique IDs of {@code archived} deals whose row is still in the deals table,
+     * looked up through the unique index of the storage layout.
+     */
+    private Set<String> findStillHot(List<Deal> archived) {
+        Set<String> stillHot = new HashSet<>();
+        for (int from = 0; from < archived.size(); from += HOT_LOOKUP_BATCH) {
+            List<String> ids = archived.subList(from, Math.min(archived.size(), from + HOT_LOOKUP_BATCH)).stream()
+                    .map(Deal::getDealUniqueId)
+                    .toList();
+            MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids);
+            String sql = "SELECT d.deal_unique_id FROM deals d WHERE d.deal_unique_id IN (:ids)";
+            if (layout.isCompact()) {
+                sql += " AND d.deal_key IN (:keys)";
+                parameters.addValue("keys", ids.stream().map(DealKeys::of).toList());
+            }
+            stillHot.addAll(jdbcTemplate.queryForList(sql, parameters, String.class));
+        }
+        return stillHot;
+    }
+
+    private Row row(int index, ResultSet rs) throws SQLException {
+        BigDecimal usdNotional = rs.getBigDecimal("total_usd_notional");
+        return new Row(index, layout.currency(rs.getObject("from_currency")), layout.currency(rs.getObject("to_currency")),
+                rs.getLong("deal_count"), layout.amountTotal(rs.getObject("total_amount")),
+                usdNotional != null ? usdNotional : BigDecimal.ZERO);
+    }
+
+    private static void add(Map<Integer, Map<String, PairTotalsDTO>> totals, Row row) {
+        PairTotalsDTO pair = totals.computeIfAbsent(row.window(), index -> new LinkedHashMap<>())
+                .computeIfAbsent(row.key(), key -> new PairTotalsDTO(row.fromCurrency(), row.toCurrency(), 0,
+                        BigDecimal.ZERO, BigDecimal.ZERO));
+        pair.setDealCount(pair.getDealCount() + row.dealCount());
+        pair.setTotalAmount(pair.getTotalAmount().add(row.totalAmount()));
+        pair.setTotalUsdNotional(pair.getTotalUsdNotional().add(row.totalUsdNotional()));
+    }
+
+    private static LocalDateTime firstStart(List<Window> windows) {
+        return windows.stream().map(Window::startTime).min(Comparator.naturalOrder()).orElseThrow();
+    }
+
+    private static LocalDateTime lastEnd(List<Window> windows) {
+        return windows.stream().map(Window::endTime).max(Comparator.naturalOrder()).orElseThrow();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record Window(String fromCurrency, String toCurrency, LocalDateTime startTime, LocalDateTime endTime) {
+
+        boolean hasPair() {
+            return fromCurrency != null;
+        }
+
+        boolean contains(Deal deal) {
+            return !deal.getDealTimestamp().isBefore(startTime) && deal.getDealTimestamp().isBefore(endTime)
+                    && (!hasPair() || fromCurrency.equals(deal.getFromCurrency()) && toCurrency.equals(deal.getToCurrency()));
+        }
+    }
+
+    private record Row(int window, String fromCurrency, String toCurrency, long dealCount, BigDecimal totalAmount,
+                       BigDecimal totalUsdNotional) {
+
+        String key() {
+            return window + ":" + fromCurrency + "/" + toCurrency;
+        }
+
+        Row plus(Row other) {
+            return new Row(window, fromCurrency, toCurrency, dealCount + other.dealCount,
+                    totalAmount.add(other.totalAmount), totalUsdNotional.add(other.totalUsdNotional));
+        }
+    }
+
+    private record Part(int[] windows, Future<Collection<Row>> rows) {
+
+        void markIncomplete(boolean[] incomplete) {
+            for (int index : windows) {
+                incomplete[index] = true;
+            }
+        }
+    }
+}
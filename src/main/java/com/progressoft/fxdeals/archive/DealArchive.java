@@ -0,0 +1,160 @@
+package com.progressoft.fxdeals.archive;
+
+import com.progressoft.fxdeals.model.entity.ArchiveSegment;
+import com.progressoft.fxdeals.model.entity.ArchivedDealKey;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.ArchiveSegmentRepository;
+import com.progressoft.fxdeals.repository.ArchivedDealKeyRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cold storage of deals moved out of the deals table by the {@link DealArchiver}.
+ * Deals are kept in compressed columnar segment files; the segments and the unique
+ * IDs they hold are indexed in the database of the shard the deals came from, so
+ * lookups run on the same shard as the hot queries they complement.
+ *
+ * <p>Every instance must see the same directory.
+ */
+public class DealArchive {
+
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    static final String FILE_SUFFIX = ".fxda";
+
+    static final Comparator<Deal> TIMESTAMP_ORDER =
+            Comparator.comparing(Deal::getDealTimestamp).thenComparing(Deal::getId);
+
+    private final ArchiveSegmentRepository segmentRepository;
+    private final ArchivedDealKeyRepository keyRepository;
+    private final Path directory;
+    private final int compressionLevel;
+
+    public DealArchive(ArchiveSegmentRepository segmentRepository, ArchivedDealKeyRepository keyRepository,
+                       Path directory, int compressionLevel) {
+        this.segmentRepository = segmentRepository;
+        this.keyRepository = keyRepository;
+        this.directory = directory;
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean contains(String dealUniqueId) {
+        return keyRepository.existsById(dealUniqueId);
+    }
+
+    /**
+     * Returns those of {@code dealUniqueIds} that are archived.
+     */
+    public List<String> findArchived(Collection<String> dealUniqueIds) {
+        return keyRepository.findAllById(dealUniqueIds).stream()
+                .map(ArchivedDealKey::getDealUniqueId)
+                .toList();
+    }
+
+    public Optional<Deal> findDeal(String dealUniqueId) {
+        return keyRepository.findById(dealUniqueId)
+                .map(ArchivedDealKey::getSegmentId)
+                .flatMap(segmentRepository::findById)
+                .flatMap(segment -> read(segment).stream()
+                        .filter(deal -> deal.getDealUniqueId().equals(dealUniqueId))
+                        .findFirst());
+    }
+
+    /**
+     * Returns those of {@code dealUniqueIds} that are archived, by unique ID, reading
+     * every segment they are in once.
+     */
+    public Map<String, Deal> findDeals(Collection<String> dealUniqueIds) {
+        Map<Long, Set<String>> idsBySegment = new HashMap<>();
+        for (ArchivedDealKey key : keyRepository.findAllById(dealUniqueIds)) {
+            idsBySegment.computeIfAbsent(key.getSegmentId(), segmentId -> new HashSet<>()).add(key.getDealUniqueId());
+        }
+        Map<String, Deal> deals = new HashMap<>();
+        for (ArchiveSegment segment : segmentRepository.findAllById(idsBySegment.keySet())) {
+            Set<String> wanted = idsBySegment.get(segment.getId());
+            for (Deal deal : read(segment)) {
+                if (wanted.contains(deal.getDealUniqueId())) {
+                    deals.put(deal.getDealUniqueId(), deal);
+                }
+            }
+        }
+        return deals;
+    }
+
+    /**
+     * Returns the archived deals with a deal timestamp in {@code [startTime, endTime]},
+     * newest first.
+     */
+    public List<Deal> findDealsByTimestampRange(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Deal> deals = new ArrayList<>();
+        for (ArchiveSegment segment : segmentRepository.findSegmentsOverlapping(startTime, endTime)) {
+            for (Deal deal : read(segment)) {
+                if (!deal.getDealTimestamp().isBefore(startTime) && !deal.getDealTimestamp().isAfter(endTime)) {
+                    deals.add(deal);
+                }
+            }
+        }
+        deals.sort(TIMESTAMP_ORDER.reversed());
+        return deals;
+    }
+
+    /**
+     * Writes {@code deals}, ordered by {@link #TIMESTAMP_ORDER}, to a new segment file
+     * and returns the segment, which is not saved yet. The file name is derived from
+     * the first deal, so a segment rewritten after an interrupted run replaces the
+     * file left behind.
+     */
+    ArchiveSegment write(String partition, List<Deal> deals) throws IOException {
+        Deal first = deals.get(0);
+        Deal last = deals.get(deals.size() - 1);
+        String fileName = partition + "-" + FILE_STAMP.format(first.getDealTimestamp()) + "-" + first.getId() + FILE_SUFFIX;
+
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, fileName, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                SegmentCodec.write(deals, out, compressionLevel);
+            }
+            Files.move(temporary, directory.resolve(fileName),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return new ArchiveSegment(fileName, first.getDealTimestamp(), last.getDealTimestamp(),
+                deals.size(), Files.size(directory.resolve(fileName)));
+    }
+
+    void delete(ArchiveSegment segment) throws IOException {
+        Files.deleteIfExists(directory.resolve(segment.getFileName()));
+    }
+
+    List<Deal> read(ArchiveSegment segment) {
+        Path file = directory.resolve(segment.getFileName());
+        try (InputStream in = Files.newInputStream(file)) {
+            return SegmentCodec.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive segment " + file, e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,259 @@
+package com.progressoft.fxdeals.archive;
+
+import com.progressoft.fxdeals.config.ArchiveProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.event.DealsRewrittenEvent;
+import com.progressoft.fxdeals.feed.DealOutbox;
+import com.progressoft.fxdeals.model.entity.ArchiveSegment;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.ArchiveSegmentRepository;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Moves deals older than the configured age from the deals table into the
+ * {@link DealArchive}, shard by shard, oldest first.
+ *
+ * <p>Each segment is written in three steps: the file, then the segment and its keys
+ * in one transaction, then the deletion of the hot rows in batches. A deal is thus
+ * always found in the table, the archive or both, and a run interrupted between the
+ * steps only leaves work the next run finishes: hot rows whose key is already in the
+ * archive are deleted without being archived again, and a segment file that never
+ * made it into the index is overwritten.
+ */
+public class DealArchiver implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealArchiver.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DealShardRouter dealShardRouter;
+    private final DealArchive dealArchive;
+    private final ArchiveSegmentRepository segmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ArchiveProperties properties;
+    private final RowMapper<Deal> dealRowMapper;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private volatile ArchiveReport lastReport;
+    private volatile String lastError;
+
+    public DealArchiver(DataSource dataSource, PlatformTransactionManager transactionManager,
+                        DealShardRouter dealShardRouter, DealArchive dealArchive,
+                        ArchiveSegmentRepository segmentRepository, DealStorageLayout layout,
+                        ApplicationEventPublisher eventPublisher, ArchiveProperties properties) {
+        if (properties.getSegmentRows() < 1 || properties.getBatchSize() < 1) {
+            throw new IllegalArgumentException("Archive segment rows and batch size must be positive");
+        }
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dealShardRouter = dealShardRouter;
+        this.dealArchive = dealArchive;
+        this.segmentRepository = segmentRepository;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.dealRowMapper = (rs, rowNum) -> {
+            Deal deal = new Deal(
+                    rs.getString("deal_unique_id"),
+                    layout.currency(rs.getObject("from_currency")),
+                    layout.currency(rs.getObject("to_currency")),
+                    rs.getObject("deal_timestamp", LocalDateTime.class),
+                    layout.amount(rs.getObject("deal_amount")));
+            deal.setId(rs.getLong("id"));
+            deal.setUsdNotional(rs.getBigDecimal("usd_notional"));
+            deal.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+            return deal;
+        };
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deal-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::runScheduled, properties.getInitialDelay().toMillis(),
+                    properties.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Archives every deal with a deal timestamp before the start of the day
+     * {@code maxAge} ago.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public ArchiveReport archive() {
+        return archive(LocalDateTime.now().minus(properties.getMaxAge()).truncatedTo(ChronoUnit.DAYS));
+    }
+
+    ArchiveReport archive(LocalDateTime cutoff) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An archive run is already in progress");
+        }
+        try {
+            List<String> shards = dealShardRouter.isSharded() ? dealShardRouter.getShards() : Collections.singletonList(null);
+            long started = System.nanoTime();
+            Map<String, Long> archived = new TreeMap<>();
+            int segments = 0;
+            long bytes = 0;
+            for (String shard : shards) {
+                String partition = shard != null ? shard : DealOutbox.DEFAULT_SOURCE;
+                long shardArchived = 0;
+                List<Deal> page;
+                while (!(page = onShard(shard, () -> transactionTemplate.execute(status -> oldestDeals(cutoff)))).isEmpty()) {
+                    ArchiveSegment segment = archivePage(shard, partition, page);
+                    if (segment != null) {
+                        shardArchived += segment.getRowCount();
+                        segments++;
+                        bytes += segment.getSizeBytes();
+                    }
+                    deleteHotRows(shard, page);
+                }
+                archived.put(partition, shardArchived);
+            }
+
+            long total = archived.values().stream().mapToLong(Long::longValue).sum();
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Archived {} deal(s) before {} into {} segment(s) of {} bytes in {} ms",
+                    total, cutoff, segments, bytes, millis);
+            if (total > 0) {
+                eventPublisher.publishEvent(new DealsRewrittenEvent("archive", total));
+            }
+            ArchiveReport report = new ArchiveReport(cutoff, total, segments, bytes, archived, millis);
+            lastReport = report;
+            lastError = null;
+            return report;
+        } catch (RuntimeException e) {
+            lastError = e.toString();
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Status status() {
+        return new Status(properties.isEnabled(), running.get(), lastReport, lastError);
+    }
+
+    private List<Deal> oldestDeals(LocalDateTime cutoff) {
+        return jdbcTemplate.query("SELECT id, deal_unique_id, from_currency, to_currency, deal_timestamp, deal_amount, "
+                        + "usd_notional, created_at FROM deals WHERE deal_timestamp < :cutoff "
+                        + "ORDER BY deal_timestamp, id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("cutoff", cutoff)
+                        .addValue("limit", properties.getSegmentRows()),
+                dealRowMapper);
+    }
+
+    /**
+     * Writes the deals of {@code page} not archived yet to a new segment and indexes
+     * it. Returns {@code null} when all of them were archived by an earlier run.
+     */
+    @Nullable
+    private ArchiveSegment archivePage(String shard, String partition, List<Deal> page) {
+        Set<String> alreadyArchived = onShard(shard, () -> transactionTemplate.execute(status -> new HashSet<>(
+                jdbcTemplate.queryForList("SELECT deal_unique_id FROM deal_archive_keys WHERE deal_unique_id IN (:ids)",
+                        Map.of("ids", page.stream().map(Deal::getDealUniqueId).toList()), String.class))));
+        List<Deal> deals = alreadyArchived.isEmpty() ? page
+                : page.stream().filter(deal -> !alreadyArchived.contains(deal.getDealUniqueId())).toList();
+        if (deals.isEmpty()) {
+            return null;
+        }
+
+        ArchiveSegment segment;
+        try {
+            segment = dealArchive.write(partition, deals);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive segment for " + partition, e);
+        }
+        try {
+            return onShard(shard, () -> transactionTemplate.execute(status -> {
+                ArchiveSegment saved = segmentRepository.save(segment);
+                jdbcTemplate.batchUpdate("INSERT INTO deal_archive_keys (deal_unique_id, segment_id) VALUES (:id, :segmentId)",
+                        deals.stream()
+                                .map(deal -> new MapSqlParameterSource()
+                                        .addValue("id", deal.getDealUniqueId())
+                                        .addValue("segmentId", saved.getId()))
+                                .toArray(MapSqlParameterSource[]::new));
+                return saved;
+            }));
+        } catch (RuntimeException e) {
+            try {
+                dealArchive.delete(segment);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+    }
+
+    private void deleteHotRows(String shard, List<Deal> page) {
+        List<Long> ids = new ArrayList<>(page.size());
+        page.forEach(deal -> ids.add(deal.getId()));
+        for (int from = 0; from < ids.size(); from += properties.getBatchSize()) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + properties.getBatchSize()));
+            onShard(shard, () -> transactionTemplate.execute(
+                    status -> jdbcTemplate.update("DELETE FROM deals WHERE id IN (:ids)", Map.of("ids", batch))));
+        }
+    }
+
+    private void runScheduled() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            logger.error("Scheduled archive run failed", e);
+        }
+    }
+
+    private static <T> T onShard(@Nullable String shard, Supplier<T> work) {
+        return shard == null ? work.get() : ShardRoutingContext.onShard(shard, work);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    public record ArchiveReport(LocalDateTime cutoff, long archived, int segments, long bytes,
+                                Map<String, Long> archivedPerShard, long durationMillis) {
+    }
+
+    /**
+     * Whether runs are scheduled on this instance, whether one is in progress, and the
+     * report of the last successful run or the error of the last failed one.
+     */
+    public record Status(boolean scheduled, boolean running, ArchiveReport lastReport, String lastError) {
+    }
+}
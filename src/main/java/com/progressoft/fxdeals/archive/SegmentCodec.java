@@ -0,0 +1,236 @@
+package com.progressoft.fxdeals.archive;
+
+import com.progressoft.fxdeals.model.entity.Deal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Columnar file format of archive segments.
+ *
+ * <p>After a short uncompressed header ({@code FXDA}, format version, row count) the
+ * columns follow one after the other in a single deflate stream:
+ * <ol>
+ *   <li>currency pairs as a dictionary of distinct pairs and one dictionary index per row,</li>
+ *   <li>deal timestamps in microseconds, delta-encoded (rows are in timestamp order),</li>
+ *   <li>creation timestamps as the difference to the deal timestamp,</li>
+ *   <li>primary keys, delta-encoded,</li>
+ *   <li>deal amounts and USD notionals as unscaled values at the column scale,</li>
+ *   <li>deal unique IDs.</li>
+ * </ol>
+ * Integers are zig-zag varints, so small deltas take a byte or two. The deflate
+ * stream's checksum catches corrupted files.
+ */
+final class SegmentCodec {
+
+    private static final int MAGIC = 0x46584441; // "FXDA"
+    private static final int VERSION = 1;
+    private static final int DECIMAL_SCALE = 4;
+
+    private SegmentCodec() {
+    }
+
+    /**
+     * Writes {@code deals}, which must be ordered by deal timestamp.
+     */
+    static void write(List<Deal> deals, OutputStream target, int compressionLevel) throws IOException {
+        DataOutputStream header = new DataOutputStream(target);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeInt(deals.size());
+
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(target, deflater, 1 << 16), 1 << 16));
+
+            Map<String, Integer> pairs = new LinkedHashMap<>();
+            int[] pairIndexes = new int[deals.size()];
+            for (int row = 0; row < deals.size(); row++) {
+                Deal deal = deals.get(row);
+                pairIndexes[row] = pairs.computeIfAbsent(deal.getFromCurrency() + deal.getToCurrency(),
+                        pair -> pairs.size());
+            }
+            writeVarLong(out, pairs.size());
+            for (String pair : pairs.keySet()) {
+                out.write(pair.getBytes(StandardCharsets.US_ASCII));
+            }
+            for (int pairIndex : pairIndexes) {
+                writeVarLong(out, pairIndex);
+            }
+
+            long previous = 0;
+            for (Deal deal : deals) {
+                long micros = micros(deal.getDealTimestamp());
+                writeVarLong(out, zigZag(micros - previous));
+                previous = micros;
+            }
+            for (Deal deal : deals) {
+                writeVarLong(out, zigZag(micros(deal.getCreatedAt()) - micros(deal.getDealTimestamp())));
+            }
+
+            previous = 0;
+            for (Deal deal : deals) {
+                writeVarLong(out, zigZag(deal.getId() - previous));
+                previous = deal.getId();
+            }
+
+            for (Deal deal : deals) {
+                writeDecimal(out, deal.getDealAmount());
+            }
+            for (Deal deal : deals) {
+                writeDecimal(out, deal.getUsdNotional());
+            }
+
+            for (Deal deal : deals) {
+                byte[] id = deal.getDealUniqueId().getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, id.length);
+                out.write(id);
+            }
+            out.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static List<Deal> read(InputStream source) throws IOException {
+        DataInputStream header = new DataInputStream(source);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not an archive segment");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported archive segment version " + version);
+        }
+        int rows = header.readInt();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(source), 1 << 16));
+        String[] pairs = new String[(int) readVarLong(in)];
+        byte[] pair = new byte[6];
+        for (int i = 0; i < pairs.length; i++) {
+            in.readFully(pair);
+            pairs[i] = new String(pair, StandardCharsets.US_ASCII);
+        }
+        List<Deal> deals = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            String currencies = pairs[(int) readVarLong(in)];
+            Deal deal = new Deal();
+            deal.setFromCurrency(currencies.substring(0, 3));
+            deal.setToCurrency(currencies.substring(3));
+            deals.add(deal);
+        }
+
+        long micros = 0;
+        long[] dealMicros = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            micros += unZigZag(readVarLong(in));
+            dealMicros[row] = micros;
+            deals.get(row).setDealTimestamp(dateTime(micros));
+        }
+        for (int row = 0; row < rows; row++) {
+            deals.get(row).setCreatedAt(dateTime(dealMicros[row] + unZigZag(readVarLong(in))));
+        }
+
+        long id = 0;
+        for (Deal deal : deals) {
+            id += unZigZag(readVarLong(in));
+            deal.setId(id);
+        }
+
+        for (Deal deal : deals) {
+            deal.setDealAmount(readDecimal(in));
+        }
+        for (Deal deal : deals) {
+            deal.setUsdNotional(readDecimal(in));
+        }
+
+        for (Deal deal : deals) {
+            byte[] uniqueId = new byte[(int) readVarLong(in)];
+            in.readFully(uniqueId);
+            deal.setDealUniqueId(new String(uniqueId, StandardCharsets.UTF_8));
+        }
+        if (in.read() != -1) {
+            throw new IOException("Trailing data in archive segment");
+        }
+        return deals;
+    }
+
+    private static long micros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime dateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Writes the value's two's-complement bytes at the column scale, prefixed by their
+     * count; a count of zero stands for {@code null}.
+     */
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] unscaled = value.setScale(DECIMAL_SCALE, RoundingMode.UNNECESSARY).unscaledValue().toByteArray();
+        writeVarLong(out, unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), DECIMAL_SCALE);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in archive segment");
+    }
+}
@@ -0,0 +1,526 @@
+package com.progressoft.fxdeals.cache;
+
+import com.progressoft.fxdeals.config.QueryCacheProperties;
+import com.progressoft.fxdeals.event.DealSubmittedEvent;
+import com.progressoft.fxdeals.event.DealsRewrittenEvent;
+import com.progressoft.fxdeals.feed.DealFeedSink;
+import com.progressoft.fxdeals.feed.FeedEntry;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * Results of timestamp range and currency pair queries, cached by deal timestamp
+ * bucket.
+ *
+ * <p>A timestamp range is answered from one entry per bucket it touches; missing
+ * buckets next to each other are loaded with a single query. A currency pair is
+ * answered from the deals from the current bucket on, plus one entry per closed
+ * bucket holding deals of the pair, listed by an index entry. When the current
+ * bucket closes, the next index is the previous one plus that bucket, so only the
+ * bucket that just closed is read. Deals are never updated one by one, so an entry only goes stale when a deal
+ * lands in its bucket: that is normally the current one, but deals can be submitted
+ * with any deal timestamp, so the bucket of the deal is invalidated, whichever it is.
+ * Deals submitted through this instance invalidate on commit, deals submitted
+ * through other instances when the {@link com.progressoft.fxdeals.feed.DealFeed}
+ * delivers them. Bulk changes ({@link DealsRewrittenEvent}) drop everything.
+ *
+ * <p>Every entry is stored with the invalidation generation seen before it was
+ * loaded and is discarded if that generation moved on meanwhile, so a load racing
+ * a commit cannot cache a result that misses the deal. Entries are weighed by an
+ * estimate of their size and evicted least recently used first.
+ */
+public class DealQueryCache implements DealFeedSink, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealQueryCache.class);
+
+    private static final int STRIPES = 1024;
+
+    // Rough heap footprint of an entry and of a cached DealResponseDTO with its fields
+    private static final long ENTRY_BYTES = 128;
+    private static final long DEAL_BYTES = 320;
+
+    // No single entry may take more than this share of the cache
+    private static final int MAX_ENTRY_SHARE = 8;
+
+    private final boolean enabled;
+    private final Duration bucket;
+    private final long bucketSeconds;
+    private final long maxBytes;
+    private final int maxBucketsPerQuery;
+    private final long settleNanos;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLongArray stripeGenerations = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray stripeInvalidatedAt = new AtomicLongArray(STRIPES);
+    private volatile long clearedAt;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    public DealQueryCache(QueryCacheProperties properties) {
+        if (properties.getBucket().getSeconds() < 1 || properties.getMaxBucketsPerQuery() < 1) {
+            throw new IllegalArgumentException("Query cache bucket and buckets per query must be positive");
+        }
+        this.enabled = properties.isEnabled();
+        this.bucket = properties.getBucket();
+        this.bucketSeconds = properties.getBucket().getSeconds();
+        this.maxBytes = properties.getMaxSize().toBytes();
+        this.maxBucketsPerQuery = properties.getMaxBucketsPerQuery();
+        this.settleNanos = properties.getSettleDelay().toNanos();
+
+        long settled = System.nanoTime() - settleNanos;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            stripeInvalidatedAt.set(stripe, settled);
+        }
+        this.clearedAt = settled;
+    }
+
+    /**
+     * Returns the deals with a deal timestamp in {@code [startTime, endTime]}, newest
+     * first. {@code loader} returns the same for the bounds it is given and is only
+     * called for buckets that are not cached.
+     */
+    public List<DealResponseDTO> findByTimestampRange(LocalDateTime startTime, LocalDateTime endTime,
+                                                      BiFunction<LocalDateTime, LocalDateTime, List<DealResponseDTO>> loader) {
+        long first = bucketOf(startTime);
+        long last = bucketOf(endTime);
+        if (!enabled || last - first >= maxBucketsPerQuery) {
+            if (enabled) {
+                bypassed.increment();
+            }
+            return loader.apply(startTime, endTime);
+        }
+
+        int count = (int) (last - first + 1);
+        List<List<DealResponseDTO>> buckets = new ArrayList<>(Collections.nCopies(count, null));
+        for (int i = 0; i < count; i++) {
+            buckets.set(i, get(Key.range(first + i)));
+        }
+        for (int i = 0; i < count; i++) {
+            if (buckets.get(i) == null) {
+                int run = i;
+                while (run + 1 < count && buckets.get(run + 1) == null) {
+                    run++;
+                }
+                List<List<DealResponseDTO>> loaded = loadRange(first + i, first + run, loader);
+                for (int j = i; j <= run; j++) {
+                    buckets.set(j, loaded.get(j - i));
+                }
+                i = run;
+            }
+        }
+
+        List<DealResponseDTO> deals = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            for (DealResponseDTO deal : buckets.get(i)) {
+                if (!deal.dealTimestamp().isBefore(startTime) && !deal.dealTimestamp().isAfter(endTime)) {
+                    deals.add(deal);
+                }
+            }
+        }
+        return deals;
+    }
+
+    /**
+     * Returns the deals in {@code fromCurrency}/{@code toCurrency}, newest first.
+     * {@code loader} returns them for the bounds it is given and is only called for
+     * the parts that are not cached.
+     */
+    public List<DealResponseDTO> findByCurrencyPair(String fromCurrency, String toCurrency, PairLoader loader) {
+        if (!enabled) {
+            return loader.load(null, null);
+        }
+
+        long current = bucketOf(LocalDateTime.now());
+        LocalDateTime currentStart = bucketStart(current);
+        List<DealResponseDTO> recent = getOrLoad(new Key(Shape.PAIR_SINCE, fromCurrency, toCurrency, current),
+                () -> loader.load(currentStart, null));
+
+        Map<Long, List<DealResponseDTO>> loaded = new HashMap<>();
+        long[] history = pairHistory(fromCurrency, toCurrency, current, loader, loaded);
+        List<DealResponseDTO> deals = new ArrayList<>(recent);
+        deals.addAll(pairDeals(fromCurrency, toCurrency, history, loader, loaded));
+        return deals;
+    }
+
+    @TransactionalEventListener
+    public void onDealSubmitted(DealSubmittedEvent event) {
+        invalidate(event.deal());
+    }
+
+    @EventListener
+    public void onDealsRewritten(DealsRewrittenEvent event) {
+        logger.info("Clearing query cache after {} of {} deal(s)", event.operation(), event.deals());
+        invalidateAll();
+    }
+
+    @Override
+    public void accept(List<FeedEntry> feedEntries) {
+        feedEntries.forEach(entry -> invalidate(entry.deal()));
+    }
+
+    /**
+     * Drops the cached results that {@code deal} belongs to.
+     */
+    public void invalidate(DealResponseDTO deal) {
+        long dealBucket = bucketOf(deal.dealTimestamp());
+        String fromCurrency = deal.fromCurrency().toUpperCase();
+        String toCurrency = deal.toCurrency().toUpperCase();
+        long current = bucketOf(LocalDateTime.now());
+
+        List<Key> keys = new ArrayList<>(4);
+        List<Key> indexes = new ArrayList<>(2);
+        keys.add(Key.range(dealBucket));
+        // Queries that started just before the current bucket opened still use the previous one
+        for (long pairBucket = current - 1; pairBucket <= current; pairBucket++) {
+            if (dealBucket < pairBucket) {
+                Key closed = new Key(Shape.PAIR_BUCKET, fromCurrency, toCurrency, dealBucket);
+                if (!keys.contains(closed)) {
+                    keys.add(closed);
+                }
+                indexes.add(new Key(Shape.PAIR_INDEX, fromCurrency, toCurrency, pairBucket));
+            } else {
+                keys.add(new Key(Shape.PAIR_SINCE, fromCurrency, toCurrency, pairBucket));
+            }
+        }
+
+        // Indexes are stamped too, as the buckets of a history being loaded are stored under its index's stamp
+        long now = System.nanoTime();
+        for (Key key : keys) {
+            stripeGenerations.incrementAndGet(stripe(key));
+            stripeInvalidatedAt.set(stripe(key), now);
+        }
+        for (Key index : indexes) {
+            stripeGenerations.incrementAndGet(stripe(index));
+            stripeInvalidatedAt.set(stripe(index), now);
+        }
+        synchronized (this) {
+            for (Key key : keys) {
+                remove(key);
+            }
+            // An index that lists the bucket of the deal already is still right
+            for (Key index : indexes) {
+                Entry entry = entries.get(index);
+                if (entry != null && LongStream.of((long[]) entry.value()).noneMatch(listed -> listed == dealBucket)) {
+                    remove(index);
+                }
+            }
+        }
+        invalidations.increment();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        clearedAt = System.nanoTime();
+        synchronized (this) {
+            entries.clear();
+            weight = 0;
+        }
+        invalidations.increment();
+    }
+
+    public synchronized Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        double hitRate = hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount);
+        return new Stats(enabled, bucket, entries.size(), weight, maxBytes, hitCount, missCount, hitRate,
+                evictions.sum(), invalidations.sum(), bypassed.sum());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("fxdeals.query.cache.gets", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Cached query results looked up")
+                .register(registry);
+        FunctionCounter.builder("fxdeals.query.cache.gets", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Cached query results looked up")
+                .register(registry);
+        FunctionCounter.builder("fxdeals.query.cache.evictions", evictions, LongAdder::sum)
+                .description("Cached query results evicted to stay within the maximum size")
+                .register(registry);
+        FunctionCounter.builder("fxdeals.query.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Deals and bulk changes that invalidated cached query results")
+                .register(registry);
+        FunctionCounter.builder("fxdeals.query.cache.bypassed", bypassed, LongAdder::sum)
+                .description("Queries or results too large to be cached")
+                .register(registry);
+        Gauge.builder("fxdeals.query.cache.size", this, cache -> cache.stats().entries())
+                .description("Cached query results")
+                .register(registry);
+        Gauge.builder("fxdeals.query.cache.weight", this, cache -> cache.stats().estimatedBytes())
+                .baseUnit("bytes")
+                .description("Estimated memory held by cached query results")
+                .register(registry);
+    }
+
+    private List<List<DealResponseDTO>> loadRange(long firstBucket, long lastBucket,
+                                                  BiFunction<LocalDateTime, LocalDateTime, List<DealResponseDTO>> loader) {
+        int count = (int) (lastBucket - firstBucket + 1);
+        List<Stamp> stamps = new ArrayList<>(count);
+        List<List<DealResponseDTO>> buckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stamps.add(stamp(Key.range(firstBucket + i)));
+            buckets.add(new ArrayList<>());
+        }
+
+        // The loader's end is inclusive; deals at the start of the next bucket are left out
+        for (DealResponseDTO deal : loader.apply(bucketStart(firstBucket), bucketStart(lastBucket + 1))) {
+            long dealBucket = bucketOf(deal.dealTimestamp());
+            if (dealBucket >= firstBucket && dealBucket <= lastBucket) {
+                buckets.get((int) (dealBucket - firstBucket)).add(deal);
+            }
+        }
+
+        List<List<DealResponseDTO>> loaded = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<DealResponseDTO> deals = List.copyOf(buckets.get(i));
+            put(Key.range(firstBucket + i), deals, stamps.get(i));
+            loaded.add(deals);
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the closed buckets before {@code current} that hold deals of the pair,
+     * newest first, and puts the deals of those it had to read into {@code loaded}.
+     */
+    private long[] pairHistory(String fromCurrency, String toCurrency, long current, PairLoader loader,
+                               Map<Long, List<DealResponseDTO>> loaded) {
+        Key indexKey = new Key(Shape.PAIR_INDEX, fromCurrency, toCurrency, current);
+        long[] index = get(indexKey);
+        if (index != null) {
+            return index;
+        }
+
+        // Every deal landing before the current bucket moves the index's stamp, so it covers the buckets read here
+        Stamp stamp = stamp(indexKey);
+        long[] previous = get(new Key(Shape.PAIR_INDEX, fromCurrency, toCurrency, current - 1));
+        Map<Long, List<DealResponseDTO>> read = splitByBucket(previous != null
+                ? loader.load(bucketStart(current - 1), bucketStart(current))
+                : loader.load(null, bucketStart(current)));
+        read.forEach((closed, deals) -> put(new Key(Shape.PAIR_BUCKET, fromCurrency, toCurrency, closed), deals, stamp));
+        loaded.putAll(read);
+
+        if (previous == null) {
+            index = read.keySet().stream().sorted(Comparator.reverseOrder()).mapToLong(Long::longValue).toArray();
+        } else if (read.isEmpty()) {
+            index = previous;
+        } else {
+            index = new long[previous.length + 1];
+            index[0] = current - 1;
+            System.arraycopy(previous, 0, index, 1, previous.length);
+        }
+        put(indexKey, index, ENTRY_BYTES + Long.BYTES * (long) index.length, stamp);
+        return index;
+    }
+
+    /**
+     * Merges the deals of the closed buckets in {@code history}, newest first. Buckets
+     * not cached, evicted or too large, are read together in one query.
+     */
+    private List<DealResponseDTO> pairDeals(String fromCurrency, String toCurrency, long[] history, PairLoader loader,
+                                            Map<Long, List<DealResponseDTO>> loaded) {
+        Map<Long, Stamp> missing = new LinkedHashMap<>();
+        for (long closed : history) {
+            if (!loaded.containsKey(closed)) {
+                Key key = new Key(Shape.PAIR_BUCKET, fromCurrency, toCurrency, closed);
+                List<DealResponseDTO> cached = get(key);
+                if (cached != null) {
+                    loaded.put(closed, cached);
+                } else {
+                    missing.put(closed, stamp(key));
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long newest = missing.keySet().iterator().next();
+            long oldest = newest;
+            for (long closed : missing.keySet()) {
+                oldest = closed;
+            }
+            Map<Long, List<DealResponseDTO>> read = splitByBucket(
+                    loader.load(bucketStart(oldest), bucketStart(newest + 1)));
+            missing.forEach((closed, stamp) -> {
+                List<DealResponseDTO> deals = read.getOrDefault(closed, List.of());
+                put(new Key(Shape.PAIR_BUCKET, fromCurrency, toCurrency, closed), deals, stamp);
+                loaded.put(closed, deals);
+            });
+        }
+
+        List<DealResponseDTO> deals = new ArrayList<>();
+        for (long closed : history) {
+            deals.addAll(loaded.get(closed));
+        }
+        return deals;
+    }
+
+    private Map<Long, List<DealResponseDTO>> splitByBucket(List<DealResponseDTO> deals) {
+        Map<Long, List<DealResponseDTO>> buckets = new LinkedHashMap<>();
+        for (DealResponseDTO deal : deals) {
+            buckets.computeIfAbsent(bucketOf(deal.dealTimestamp()), dealBucket -> new ArrayList<>()).add(deal);
+        }
+        buckets.replaceAll((dealBucket, bucketDeals) -> List.copyOf(bucketDeals));
+        return buckets;
+    }
+
+    private List<DealResponseDTO> getOrLoad(Key key, Supplier<List<DealResponseDTO>> loader) {
+        List<DealResponseDTO> cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Stamp stamp = stamp(key);
+        List<DealResponseDTO> deals = List.copyOf(loader.get());
+        put(key, deals, stamp);
+        return deals;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <V> V get(Key key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return (V) entry.value();
+    }
+
+    private void put(Key key, List<DealResponseDTO> deals, Stamp stamp) {
+        put(key, deals, weigh(deals), stamp);
+    }
+
+    private void put(Key key, Object value, long entryWeight, Stamp stamp) {
+        if (entryWeight > maxBytes / MAX_ENTRY_SHARE) {
+            bypassed.increment();
+            return;
+        }
+
+        int stripe = stamp.stripe();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (stamp.generation() != generation.get()
+                    || stamp.stripeGeneration() != stripeGenerations.get(stripe)
+                    || now - stripeInvalidatedAt.get(stripe) < settleNanos
+                    || now - clearedAt < settleNanos) {
+                return;
+            }
+
+            Entry previous = entries.put(key, new Entry(value, entryWeight));
+            weight += entryWeight - (previous != null ? previous.weight() : 0);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > maxBytes && eldest.hasNext()) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    private Stamp stamp(Key key) {
+        int stripe = stripe(key);
+        return new Stamp(stripe, generation.get(), stripeGenerations.get(stripe));
+    }
+
+    private static long weigh(List<DealResponseDTO> deals) {
+        long bytes = ENTRY_BYTES;
+        for (DealResponseDTO deal : deals) {
+            bytes += DEAL_BYTES + 2L * deal.dealUniqueId().length();
+        }
+        return bytes;
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    private LocalDateTime bucketStart(long bucketIndex) {
+        return LocalDateTime.ofEpochSecond(bucketIndex * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private static int stripe(Key key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    /**
+     * Loads the deals of a currency pair with a deal timestamp at or after
+     * {@code since} and before {@code before}, newest first; a {@code null} bound is
+     * open.
+     */
+    @FunctionalInterface
+    public interface PairLoader {
+
+        List<DealResponseDTO> load(@Nullable LocalDateTime since, @Nullable LocalDateTime before);
+    }
+
+    public record Stats(boolean enabled, Duration bucket, long entries, long estimatedBytes, long maxBytes,
+                        long hits, long misses, double hitRate, long evictions, long invalidations, long bypassed) {
+    }
+
+    private enum Shape {
+        RANGE, PAIR_BUCKET, PAIR_INDEX, PAIR_SINCE
+    }
+
+    /**
+     * A timestamp range bucket; the deals of a pair in a closed {@code bucket}, or
+     * since its start; or the index of the closed buckets with deals of a pair before
+     * {@code bucket}, newest first.
+     */
+    private record Key(Shape shape, String fromCurrency, String toCurrency, long bucket) {
+
+        static Key range(long bucket) {
+            return new Key(Shape.RANGE, null, null, bucket);
+        }
+    }
+
+    private record Entry(Object value, long weight) {
+    }
+
+    private record Stamp(int stripe, long generation, long stripeGeneration) {
+    }
+}
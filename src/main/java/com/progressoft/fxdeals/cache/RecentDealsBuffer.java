@@ -0,0 +1,131 @@
+package com.progressoft.fxdeals.cache;
+
+import com.progressoft.fxdeals.event.DealSubmittedEvent;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import com.progressoft.fxdeals.service.DealService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring of the last committed deals, newest last.
+ *
+ * <p>A writer claims a sequence number and then publishes its slot, so a reader may
+ * briefly see a claimed slot that still holds an older entry; such slots are
+ * skipped. Entries are ordered by commit, which matches {@code createdAt} order up
+ * to clock resolution.
+ *
+ * <p>The ring is filled from the database before the application accepts traffic
+ * and only reflects deals submitted through this instance afterwards.
+ */
+@Component
+public class RecentDealsBuffer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentDealsBuffer.class);
+
+    private static final int MAX_PRIMING_DEALS = 1000;
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final ObjectProvider<DealService> dealService;
+    private volatile boolean primed;
+
+    public RecentDealsBuffer(@Value("${fxdeals.recent-deals.capacity:1000}") int capacity,
+                             ObjectProvider<DealService> dealService) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Recent deals capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.dealService = dealService;
+    }
+
+    @TransactionalEventListener
+    public void onDealSubmitted(DealSubmittedEvent event) {
+        add(event.deal());
+    }
+
+    public void add(DealResponseDTO deal) {
+        long sequence = nextSequence.getAndIncrement();
+        int index = index(sequence);
+        Slot slot = new Slot(sequence, deal);
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence() > sequence) {
+                // A writer a full lap ahead got here first; this deal has already left the ring
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+
+    /**
+     * Returns up to {@code limit} deals, newest first.
+     */
+    public List<DealResponseDTO> latest(int limit) {
+        long head = nextSequence.get();
+        long oldest = Math.max(0, head - capacity);
+        List<DealResponseDTO> deals = new ArrayList<>(Math.min(limit, capacity));
+        for (long sequence = head - 1; sequence >= oldest && deals.size() < limit; sequence--) {
+            Slot slot = slots.get(index(sequence));
+            if (slot == null || slot.sequence() < sequence) {
+                // Claimed but not yet published
+                continue;
+            }
+            if (slot.sequence() > sequence) {
+                // Overwritten by a writer that lapped this reader
+                break;
+            }
+            deals.add(slot.deal());
+        }
+        return deals;
+    }
+
+    /**
+     * Whether {@link #latest(int)} can answer a request for {@code limit} deals
+     * as completely as the database would. The service never asks for more than
+     * the number of deals used for priming.
+     */
+    public boolean canServe(int limit) {
+        return primed && limit <= capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<DealResponseDTO> newestFirst;
+        try {
+            newestFirst = dealService.getObject().getRecentDeals(Math.min(capacity, MAX_PRIMING_DEALS));
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Could not prime recent deals buffer, recent deals will be read from the database", e);
+            return;
+        }
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            add(newestFirst.get(i));
+        }
+        primed = true;
+        logger.info("Recent deals buffer primed with {} deal(s)", newestFirst.size());
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    private record Slot(long sequence, DealResponseDTO deal) {
+    }
+}
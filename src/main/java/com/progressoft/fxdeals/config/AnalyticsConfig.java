@@ -0,0 +1,29 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.analytics.DealAggregator;
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Deal totals over many windows per request, served by
+ * {@code POST /api/v1/deals/aggregates}.
+ */
+@Configuration
+@EnableConfigurationProperties(AnalyticsProperties.class)
+public class AnalyticsConfig {
+
+    @Bean
+    public DealAggregator dealAggregator(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                         DealShardRouter dealShardRouter, DealArchive dealArchive,
+                                         DealStorageLayout dealStorageLayout, AnalyticsProperties analyticsProperties) {
+        return new DealAggregator(dataSource, transactionManager, dealShardRouter, dealArchive, dealStorageLayout,
+                analyticsProperties);
+    }
+}
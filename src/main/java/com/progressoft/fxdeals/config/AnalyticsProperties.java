@@ -0,0 +1,48 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.analytics")
+public class AnalyticsProperties {
+
+    /**
+     * Aggregate queries run at once, across all requests; keep it well below the
+     * connection pool size.
+     */
+    private int parallelism = 4;
+
+    /**
+     * Most windows in one request.
+     */
+    private int maxWindows = 500;
+
+    /**
+     * Most separate queries, windows times shards, one request may queue; requests
+     * with more windows are totalled by grouped queries.
+     */
+    private int maxParallelQueries = 32;
+
+    /**
+     * How long a request waits for totals when it sets no time budget.
+     */
+    private Duration timeBudget = Duration.ofSeconds(5);
+
+    /**
+     * Longest time budget a request may set.
+     */
+    private Duration maxTimeBudget = Duration.ofSeconds(30);
+
+    /**
+     * How windows are totalled: one query per window, run in parallel; one grouped
+     * query for all windows; or whichever reads fewer rows.
+     */
+    private Strategy strategy = Strategy.AUTO;
+
+    public enum Strategy {
+        AUTO, PARALLEL, GROUPED
+    }
+}
@@ -0,0 +1,49 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.ArchiveEndpoint;
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.archive.DealArchiver;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.repository.ArchiveSegmentRepository;
+import com.progressoft.fxdeals.repository.ArchivedDealKeyRepository;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Tiered storage of deals. Old deals are moved into compressed segment files on a
+ * schedule when enabled, or through the {@code archive} actuator endpoint; the
+ * archive is read on every instance.
+ */
+@Configuration
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ArchiveConfig {
+
+    @Bean
+    public DealArchive dealArchive(ArchiveSegmentRepository archiveSegmentRepository,
+                                   ArchivedDealKeyRepository archivedDealKeyRepository,
+                                   ArchiveProperties archiveProperties) {
+        return new DealArchive(archiveSegmentRepository, archivedDealKeyRepository,
+                archiveProperties.getDirectory(), archiveProperties.getCompressionLevel());
+    }
+
+    @Bean
+    public DealArchiver dealArchiver(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                     DealShardRouter dealShardRouter, DealArchive dealArchive,
+                                     ArchiveSegmentRepository archiveSegmentRepository,
+                                     DealStorageLayout dealStorageLayout, ApplicationEventPublisher eventPublisher,
+                                     ArchiveProperties archiveProperties) {
+        return new DealArchiver(dataSource, transactionManager, dealShardRouter, dealArchive,
+                archiveSegmentRepository, dealStorageLayout, eventPublisher, archiveProperties);
+    }
+
+    @Bean
+    public ArchiveEndpoint archiveEndpoint(DealArchiver dealArchiver) {
+        return new ArchiveEndpoint(dealArchiver);
+    }
+}
@@ -0,0 +1,54 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.archive")
+public class ArchiveProperties {
+
+    /**
+     * Whether this instance archives old deals on a schedule. Enable it on one
+     * instance only; the archive can still be read, and run on demand, everywhere.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory of the segment files, shared by all instances.
+     */
+    private Path directory = Path.of("archive");
+
+    /**
+     * Deals whose deal timestamp lies before the start of the day this long ago are
+     * archived.
+     */
+    private Duration maxAge = Duration.ofDays(90);
+
+    /**
+     * Most deals written to one segment file; a segment is built in memory.
+     */
+    private int segmentRows = 100_000;
+
+    /**
+     * Archived deals deleted from the deals table per transaction.
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * Compression level of the segment files, from 1 (fastest) to 9 (smallest).
+     */
+    private int compressionLevel = 6;
+
+    /**
+     * Delay after startup before the first scheduled run.
+     */
+    private Duration initialDelay = Duration.ofMinutes(10);
+
+    /**
+     * Delay between the end of one scheduled run and the start of the next.
+     */
+    private Duration interval = Duration.ofHours(24);
+}
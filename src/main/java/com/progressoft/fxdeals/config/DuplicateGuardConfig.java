@@ -0,0 +1,39 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.DuplicatesEndpoint;
+import com.progressoft.fxdeals.ingest.DuplicateGuard;
+import com.progressoft.fxdeals.ingest.SubmissionClientFilter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Duplicate storm protection. The deal service rejects retries of recently rejected
+ * duplicates without querying the database, the filter attributes submissions to
+ * clients, and the {@code duplicates} actuator endpoint shows the top offenders.
+ */
+@Configuration
+@EnableConfigurationProperties(DuplicateGuardProperties.class)
+public class DuplicateGuardConfig {
+
+    @Bean
+    public DuplicateGuard duplicateGuard(DuplicateGuardProperties duplicateGuardProperties) {
+        return new DuplicateGuard(duplicateGuardProperties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SubmissionClientFilter> submissionClientFilter(
+            DuplicateGuard duplicateGuard, DuplicateGuardProperties duplicateGuardProperties) {
+        FilterRegistrationBean<SubmissionClientFilter> registration = new FilterRegistrationBean<>(
+                new SubmissionClientFilter(duplicateGuard, duplicateGuardProperties.getClientHeader()));
+        registration.addUrlPatterns("/api/v1/deals");
+        registration.setEnabled(duplicateGuardProperties.isEnabled());
+        return registration;
+    }
+
+    @Bean
+    public DuplicatesEndpoint duplicatesEndpoint(DuplicateGuard duplicateGuard) {
+        return new DuplicatesEndpoint(duplicateGuard);
+    }
+}
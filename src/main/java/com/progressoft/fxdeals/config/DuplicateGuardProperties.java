@@ -0,0 +1,45 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.duplicate-guard")
+public class DuplicateGuardProperties {
+
+    /**
+     * Whether deal IDs recently rejected as duplicates are rejected again without
+     * querying the database.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Deal IDs remembered as duplicates; the least recently rejected are forgotten
+     * first.
+     */
+    private int negativeCacheSize = 10_000;
+
+    /**
+     * How long a deal ID is remembered as a duplicate.
+     */
+    private Duration negativeCacheTtl = Duration.ofMinutes(10);
+
+    /**
+     * Deal IDs and clients tracked for the top offender lists.
+     */
+    private int trackedKeys = 128;
+
+    /**
+     * Submission counts halve after this long, so the top offenders are the
+     * recent ones.
+     */
+    private Duration halfLife = Duration.ofMinutes(1);
+
+    /**
+     * Request header identifying the submitting client; the remote address is used
+     * when it is absent.
+     */
+    private String clientHeader = "X-Client-Id";
+}
@@ -0,0 +1,24 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.feed.DealFeed;
+import com.progressoft.fxdeals.feed.DealFeedSink;
+import com.progressoft.fxdeals.feed.DealOutbox;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Relays committed deals from the outbox to stream subscribers and to every
+ * {@link DealFeedSink} bean.
+ */
+@Configuration
+@EnableConfigurationProperties(FeedProperties.class)
+public class FeedConfig {
+
+    @Bean
+    public DealFeed dealFeed(DealOutbox dealOutbox, FeedProperties feedProperties,
+                             ObjectProvider<DealFeedSink> sinks) {
+        return new DealFeed(dealOutbox, feedProperties, sinks);
+    }
+}
@@ -0,0 +1,58 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.feed")
+public class FeedProperties {
+
+    /**
+     * Whether the relay polls the outbox. Without it nothing is delivered to
+     * subscribers, though deals are still written to the outbox.
+     */
+    private boolean relayEnabled = true;
+
+    /**
+     * How often the relay looks for new outbox entries.
+     */
+    private Duration pollInterval = Duration.ofMillis(250);
+
+    /**
+     * How long the relay waits before passing an entry on. Sequence numbers are
+     * assigned on insert but become visible on commit, so a younger entry can show
+     * up before an older one; waiting lets in-flight transactions commit first.
+     * Must exceed the clock skew between application instances.
+     */
+    private Duration settleDelay = Duration.ofSeconds(1);
+
+    /**
+     * How long the relay waits, past the settle delay, for a missing sequence before
+     * skipping it. Entries behind the gap are held back meanwhile. A gap that outlasts
+     * it is taken for a rolled back insert; an entry committed later still is lost.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Outbox entries read per query, and the largest batch handed to a subscriber.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Entries queued per subscriber. A subscriber whose queue overflows is caught up
+     * from the outbox instead.
+     */
+    private int subscriberQueueCapacity = 10_000;
+
+    /**
+     * Threads delivering entries to subscribers.
+     */
+    private int deliveryThreads = 4;
+
+    /**
+     * How long outbox entries are kept, and so how far back a subscriber can resume.
+     */
+    private Duration retention = Duration.ofDays(7);
+}
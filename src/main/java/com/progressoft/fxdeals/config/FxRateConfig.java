@@ -0,0 +1,44 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.FxRatesEndpoint;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.fx.DealRepricer;
+import com.progressoft.fxdeals.fx.FxRateTable;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Values deals in USD. Rates are read from a file at startup and again whenever the
+ * {@code fxrates} actuator endpoint is asked to reload them, which also reprices the
+ * stored deals affected by the change.
+ */
+@Configuration
+@EnableConfigurationProperties(FxRateProperties.class)
+public class FxRateConfig {
+
+    @Bean
+    public FxRateTable fxRateTable(FxRateProperties fxRateProperties, ResourceLoader resourceLoader) {
+        return new FxRateTable(resourceLoader.getResource(fxRateProperties.getLocation()));
+    }
+
+    @Bean
+    public DealRepricer dealRepricer(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                     DealShardRouter dealShardRouter, FxRateTable fxRateTable,
+                                     DealStorageLayout dealStorageLayout, ApplicationEventPublisher eventPublisher,
+                                     FxRateProperties fxRateProperties) {
+        return new DealRepricer(dataSource, transactionManager, dealShardRouter, fxRateTable, dealStorageLayout,
+                eventPublisher, fxRateProperties.getRepriceChunkSize(), fxRateProperties.getRepriceParallelism());
+    }
+
+    @Bean
+    public FxRatesEndpoint fxRatesEndpoint(FxRateTable fxRateTable, DealRepricer dealRepricer) {
+        return new FxRatesEndpoint(fxRateTable, dealRepricer);
+    }
+}
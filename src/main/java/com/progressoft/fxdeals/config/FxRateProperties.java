@@ -0,0 +1,24 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.fx-rates")
+public class FxRateProperties {
+
+    /**
+     * Rate file with one {@code pair,rate} line per currency, e.g. {@code EUR/USD,1.0842}.
+     */
+    private String location = "classpath:fx-rates.csv";
+
+    /**
+     * Primary key range repriced per transaction.
+     */
+    private int repriceChunkSize = 5000;
+
+    /**
+     * Chunks repriced in parallel. Each holds a connection while it runs.
+     */
+    private int repriceParallelism = 4;
+}
@@ -0,0 +1,39 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.FlightRecorderEndpoint;
+import com.progressoft.fxdeals.profiling.FlightRecorderProfiler;
+import com.progressoft.fxdeals.profiling.SubmitLatencyFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Flight recorder integration. Deal submissions are timed, a continuous recording is
+ * dumped when their p99 crosses the threshold, and the {@code flightrecorder}
+ * actuator endpoint starts and stops recordings on demand.
+ */
+@Configuration
+@EnableConfigurationProperties(ProfilingProperties.class)
+public class ProfilingConfig {
+
+    @Bean
+    public FlightRecorderProfiler flightRecorderProfiler(ProfilingProperties profilingProperties,
+                                                         MeterRegistry meterRegistry) {
+        return new FlightRecorderProfiler(profilingProperties, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SubmitLatencyFilter> submitLatencyFilter(FlightRecorderProfiler flightRecorderProfiler) {
+        FilterRegistrationBean<SubmitLatencyFilter> registration =
+                new FilterRegistrationBean<>(new SubmitLatencyFilter(flightRecorderProfiler));
+        registration.addUrlPatterns("/api/v1/deals");
+        return registration;
+    }
+
+    @Bean
+    public FlightRecorderEndpoint flightRecorderEndpoint(FlightRecorderProfiler flightRecorderProfiler) {
+        return new FlightRecorderEndpoint(flightRecorderProfiler);
+    }
+}
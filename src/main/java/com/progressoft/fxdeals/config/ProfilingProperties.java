@@ -0,0 +1,71 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.profiling")
+public class ProfilingProperties {
+
+    /**
+     * Directory flight recordings are written to.
+     */
+    private Path directory = Path.of("recordings");
+
+    /**
+     * Length of recordings started without a duration.
+     */
+    private Duration defaultDuration = Duration.ofMinutes(1);
+
+    /**
+     * Whether a low-overhead recording runs all the time, to be dumped when
+     * submission latency degrades.
+     */
+    private boolean continuous = true;
+
+    /**
+     * How far back the continuous recording reaches.
+     */
+    private Duration continuousMaxAge = Duration.ofMinutes(10);
+
+    /**
+     * Most disk space the continuous recording keeps.
+     */
+    private DataSize continuousMaxSize = DataSize.ofMegabytes(100);
+
+    /**
+     * Submission stages at least this slow are recorded by the continuous recording;
+     * recordings started on demand record every stage.
+     */
+    private Duration slowStageThreshold = Duration.ofMillis(10);
+
+    /**
+     * The continuous recording is dumped when the 99th percentile latency of deal
+     * submissions exceeds this.
+     */
+    private Duration p99Threshold = Duration.ofMillis(500);
+
+    /**
+     * Period over which the 99th percentile is computed.
+     */
+    private Duration latencyWindow = Duration.ofMinutes(1);
+
+    /**
+     * How often the 99th percentile is compared to the threshold.
+     */
+    private Duration checkInterval = Duration.ofSeconds(10);
+
+    /**
+     * Fewest submissions since the last check for the percentile to be trusted.
+     */
+    private int minSamples = 100;
+
+    /**
+     * Shortest time between two automatic dumps.
+     */
+    private Duration dumpCooldown = Duration.ofMinutes(15);
+}
@@ -0,0 +1,28 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.QueryCacheEndpoint;
+import com.progressoft.fxdeals.cache.DealQueryCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches the results of timestamp range and currency pair queries. The cache is
+ * kept current by submitted deals, by the deal feed for deals submitted through
+ * other instances, and by bulk changes; the {@code querycache} actuator endpoint
+ * shows its statistics and clears it.
+ */
+@Configuration
+@EnableConfigurationProperties(QueryCacheProperties.class)
+public class QueryCacheConfig {
+
+    @Bean
+    public DealQueryCache dealQueryCache(QueryCacheProperties queryCacheProperties) {
+        return new DealQueryCache(queryCacheProperties);
+    }
+
+    @Bean
+    public QueryCacheEndpoint queryCacheEndpoint(DealQueryCache dealQueryCache) {
+        return new QueryCacheEndpoint(dealQueryCache);
+    }
+}
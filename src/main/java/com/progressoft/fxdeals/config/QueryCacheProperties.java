@@ -0,0 +1,42 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.query-cache")
+public class QueryCacheProperties {
+
+    /**
+     * Whether timestamp range and currency pair queries are answered from cached
+     * results.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Width of the deal timestamp buckets results are cached by. A new deal only
+     * drops the cached results of the bucket its deal timestamp falls in.
+     */
+    private Duration bucket = Duration.ofHours(1);
+
+    /**
+     * Estimated memory held by cached results; least recently used results are
+     * evicted beyond it.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Timestamp ranges spanning more buckets than this bypass the cache.
+     */
+    private int maxBucketsPerQuery = 744;
+
+    /**
+     * How long after a bucket was last invalidated its results are read without
+     * being cached. Must cover the lag of read replicas when they are enabled, so
+     * that a lagging replica cannot put an outdated result in the cache.
+     */
+    private Duration settleDelay = Duration.ofSeconds(5);
+}
@@ -0,0 +1,78 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits database traffic between the primary and its read replicas. Read-only
+ * transactions go to the replicas, everything else to the primary, which keeps
+ * reporting queries off the ingestion pool. Cannot be combined with sharding.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+@ConditionalOnProperty(prefix = "fxdeals.datasource.replica", name = "enabled", havingValue = "true")
+// With sharding on, ShardingConfig refuses to start instead of a clash between the two data sources
+@ConditionalOnProperty(prefix = "fxdeals.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class ReadReplicaRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaRoutingConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("fxdeals.datasource.replica.hikari")
+    public HikariConfig replicaPoolConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(HikariDataSource primaryDataSource,
+                                                                 HikariConfig replicaPoolConfig,
+                                                                 ReplicaDataSourceProperties replicaProperties,
+                                                                 DataSourceProperties primaryProperties) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.getUrls().size(); i++) {
+            HikariConfig config = new HikariConfig();
+            replicaPoolConfig.copyStateTo(config);
+            config.setPoolName("fxdeals-replica-" + i);
+            config.setJdbcUrl(replicaProperties.getUrls().get(i));
+            config.setUsername(replicaProperties.getUsername() != null
+                    ? replicaProperties.getUsername() : primaryProperties.determineUsername());
+            config.setPassword(replicaProperties.getPassword() != null
+                    ? replicaProperties.getPassword() : primaryProperties.determinePassword());
+            if (config.getDriverClassName() == null) {
+                config.setDriverClassName(primaryProperties.determineDriverClassName());
+            }
+            config.setReadOnly(true);
+            replicas.add(new HikariDataSource(config));
+        }
+
+        logger.info("Routing read-only transactions to {} replica(s)", replicas.size());
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+}
@@ -0,0 +1,43 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.ReconciliationEndpoint;
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.reconciliation.Reconciler;
+import com.progressoft.fxdeals.reconciliation.ReconciliationJob;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Nightly reconciliation of counterparty confirmation files, started through the
+ * {@code reconciliation} actuator endpoint.
+ */
+@Configuration
+@EnableConfigurationProperties(ReconciliationProperties.class)
+public class ReconciliationConfig {
+
+    @Bean
+    public Reconciler reconciler(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                 DealShardRouter dealShardRouter, DealArchive dealArchive,
+                                 DealStorageLayout dealStorageLayout,
+                                 ReconciliationProperties reconciliationProperties) {
+        return new Reconciler(dataSource, transactionManager, dealShardRouter, dealArchive, dealStorageLayout,
+                reconciliationProperties);
+    }
+
+    @Bean
+    public ReconciliationJob reconciliationJob(Reconciler reconciler,
+                                               ReconciliationProperties reconciliationProperties) {
+        return new ReconciliationJob(reconciler, reconciliationProperties);
+    }
+
+    @Bean
+    public ReconciliationEndpoint reconciliationEndpoint(ReconciliationJob reconciliationJob) {
+        return new ReconciliationEndpoint(reconciliationJob);
+    }
+}
@@ -0,0 +1,56 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.reconciliation")
+public class ReconciliationProperties {
+
+    /**
+     * Directory counterparty files are read from. Runs name a file in it.
+     */
+    private Path inbox = Path.of("reconciliation", "inbox");
+
+    /**
+     * Directory the break list of every run is written to.
+     */
+    private Path reportDirectory = Path.of("reconciliation", "reports");
+
+    /**
+     * Directory for the partitioned copy of the file while a run is in progress.
+     */
+    private Path workDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+
+    /**
+     * Memory for rows on their way to the partitioned copy, shared by all key ranges.
+     * Rows are appended to a range's file once its buffer or the total is full, so no
+     * file is kept open however many ranges there are.
+     */
+    private DataSize spillBuffer = DataSize.ofMegabytes(8);
+
+    /**
+     * Key ranges matched in parallel. Each holds a connection while it scans.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Target number of file rows per key range; a range is sorted in memory.
+     */
+    private int rangeRows = 50_000;
+
+    /**
+     * Deals read per keyset query.
+     */
+    private int pageSize = 5_000;
+
+    /**
+     * Largest difference between our and the counterparty's deal timestamp that
+     * still counts as a match.
+     */
+    private Duration timestampTolerance = Duration.ZERO;
+}
@@ -0,0 +1,35 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    private boolean enabled;
+
+    /**
+     * JDBC URLs of the read replicas. Read-only transactions are spread across them.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * Defaults to {@code spring.datasource.username} when not set.
+     */
+    private String username;
+
+    /**
+     * Defaults to {@code spring.datasource.password} when not set.
+     */
+    private String password;
+
+    /**
+     * How long after a write lookups of that deal are served by the primary.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+}
@@ -0,0 +1,121 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.ShardsEndpoint;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ShardRebalancer;
+import com.progressoft.fxdeals.datasource.ShardRoutingDataSource;
+import com.progressoft.fxdeals.datasource.ShardSchemaInitializer;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Spreads deals over several databases by a consistent hash of their unique ID.
+ * The {@link DealShardRouter} is always present; with sharding disabled it runs
+ * everything against the single configured data source.
+ *
+ * <p>Sharding replaces the application's data source, so it cannot be combined
+ * with read replica routing; the application refuses to start with both enabled.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public DealShardRouter dealShardRouter(ShardingProperties shardingProperties) {
+        return new DealShardRouter(shardingProperties);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "fxdeals.sharding", name = "enabled", havingValue = "true")
+    static class ShardDataSourceConfig {
+
+        private static final Logger logger = LoggerFactory.getLogger(ShardDataSourceConfig.class);
+
+        ShardDataSourceConfig(Environment environment) {
+            if (environment.getProperty("fxdeals.datasource.replica.enabled", Boolean.class, false)) {
+                throw new IllegalStateException("fxdeals.sharding.enabled and fxdeals.datasource.replica.enabled "
+                        + "cannot both be true: sharding replaces the data source that replica routing splits. "
+                        + "Disable one of them.");
+            }
+        }
+
+        @Bean
+        @ConfigurationProperties("fxdeals.sharding.hikari")
+        public HikariConfig shardPoolConfig() {
+            return new HikariConfig();
+        }
+
+        @Bean
+        public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties shardingProperties,
+                                                             HikariConfig shardPoolConfig,
+                                                             DataSourceProperties dataSourceProperties) {
+            Map<String, DataSource> shards = new LinkedHashMap<>();
+            for (ShardingProperties.Shard shard : shardingProperties.getShards()) {
+                HikariConfig config = new HikariConfig();
+                shardPoolConfig.copyStateTo(config);
+                config.setPoolName("fxdeals-shard-" + shard.getName());
+                config.setJdbcUrl(shard.getUrl());
+                config.setUsername(shard.getUsername() != null
+                        ? shard.getUsername() : dataSourceProperties.determineUsername());
+                config.setPassword(shard.getPassword() != null
+                        ? shard.getPassword() : dataSourceProperties.determinePassword());
+                if (config.getDriverClassName() == null) {
+                    config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+                }
+                if (shards.put(shard.getName(), new HikariDataSource(config)) != null) {
+                    throw new IllegalStateException("Duplicate shard name: " + shard.getName());
+                }
+            }
+
+            logger.info("Sharding deals over {}", shards.keySet());
+            return new ShardRoutingDataSource(shards);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+        }
+
+        @Bean
+        public ShardSchemaInitializer shardSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                                             JpaProperties jpaProperties,
+                                                             ShardRoutingDataSource shardRoutingDataSource) {
+            return new ShardSchemaInitializer(entityManagerFactory, jpaProperties.getMappingResources(),
+                    shardRoutingDataSource);
+        }
+
+        @Bean
+        public ShardRebalancer shardRebalancer(ShardRoutingDataSource shardRoutingDataSource,
+                                               DealShardRouter dealShardRouter,
+                                               ApplicationEventPublisher eventPublisher,
+                                               ShardingProperties shardingProperties) {
+            return new ShardRebalancer(shardRoutingDataSource.getShards(), dealShardRouter.getRing(),
+                    eventPublisher, shardingProperties.getRebalanceBatchSize());
+        }
+
+        @Bean
+        public ShardsEndpoint shardsEndpoint(ShardRoutingDataSource shardRoutingDataSource,
+                                             ShardRebalancer shardRebalancer) {
+            return new ShardsEndpoint(shardRoutingDataSource, shardRebalancer);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    /**
+     * Shard databases. Shard names position the shards on the hash ring, so renaming
+     * a shard moves its deals.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Ring positions per shard. More positions spread deals more evenly.
+     */
+    private int virtualNodes = 256;
+
+    /**
+     * Threads used to query the shards in parallel for time-range, currency-pair and
+     * recent-deal queries.
+     */
+    private int scatterThreads = 16;
+
+    /**
+     * Upper bound on a scatter-gather query across all shards.
+     */
+    private Duration scatterTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Rows moved per batch by the rebalancer.
+     */
+    private int rebalanceBatchSize = 500;
+
+    @Data
+    public static class Shard {
+
+        private String name;
+
+        private String url;
+
+        /**
+         * Defaults to {@code spring.datasource.username} when not set.
+         */
+        private String username;
+
+        /**
+         * Defaults to {@code spring.datasource.password} when not set.
+         */
+        private String password;
+    }
+}
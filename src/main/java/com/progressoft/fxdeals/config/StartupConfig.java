@@ -0,0 +1,23 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.controller.DealController;
+import com.progressoft.fxdeals.service.DealService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Keeps the deal submission path eager when {@code spring.main.lazy-initialization}
+ * is on, as in the {@code prod} profile. Everything else is created on first use,
+ * but the first deal must not pay for building the controller, service and
+ * persistence layer. Spring Boot already keeps beans that start work once all
+ * singletons exist, like the deal feed relay, eager.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter dealPathLazyInitializationExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DealController.class, DealService.class);
+    }
+}
@@ -0,0 +1,37 @@
+package com.progressoft.fxdeals.config;
+
+import com.progressoft.fxdeals.actuator.StorageEndpoint;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import com.progressoft.fxdeals.storage.DealTableStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Storage layout of the deals table. The compact layout is selected by mapping
+ * {@value DealStorageLayout#COMPACT_MAPPING} through {@code spring.jpa.mapping-resources},
+ * as the {@code compact} profile does; the {@code storage} actuator endpoint reports
+ * the table and index sizes of the layout in use.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public DealStorageLayout dealStorageLayout(EntityManagerFactory entityManagerFactory) {
+        return DealStorageLayout.of(entityManagerFactory.getMetamodel());
+    }
+
+    @Bean
+    public DealTableStatistics dealTableStatistics(DataSource dataSource, DealShardRouter dealShardRouter) {
+        return new DealTableStatistics(dataSource, dealShardRouter);
+    }
+
+    @Bean
+    public StorageEndpoint storageEndpoint(DealStorageLayout dealStorageLayout,
+                                           DealTableStatistics dealTableStatistics) {
+        return new StorageEndpoint(dealStorageLayout, dealTableStatistics);
+    }
+}
@@ -0,0 +1,14 @@
+package com.progressoft.fxdeals.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Micro-batching of deal submissions. When enabled, the deal service parks
+ * concurrent submissions and saves them in batches per shard; clients still submit
+ * one deal per request.
+ */
+@Configuration
+@EnableConfigurationProperties(SubmitBatchingProperties.class)
+public class SubmitBatchingConfig {
+}
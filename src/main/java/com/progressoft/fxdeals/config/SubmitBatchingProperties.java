@@ -0,0 +1,39 @@
+package com.progressoft.fxdeals.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "fxdeals.submit-batching")
+public class SubmitBatchingProperties {
+
+    /**
+     * Whether concurrent deal submissions are saved together, one transaction per
+     * batch and shard, instead of one transaction each.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Most deals saved in one batch.
+     */
+    private int maxBatchSize = 256;
+
+    /**
+     * Longest a submission waits for others to join its batch.
+     */
+    private Duration maxDelay = Duration.ofNanos(200_000);
+
+    /**
+     * Time a batch should take to save; the batch size grows while batches are
+     * saved faster and shrinks when they take longer.
+     */
+    private Duration targetLatency = Duration.ofMillis(10);
+
+    /**
+     * Longest a submission waits for its batch. One not taken into a batch by then
+     * is saved on its own instead; one whose batch is still being saved fails.
+     */
+    private Duration maxWait = Duration.ofSeconds(10);
+}
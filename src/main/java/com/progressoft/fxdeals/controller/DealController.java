@@ -1,5 +1,9 @@
 package com.progressoft.fxdeals.controller;
 
+import com.progressoft.fxdeals.analytics.DealAggregator;
+import com.progressoft.fxdeals.feed.DealStreamService;
+import com.progressoft.fxdeals.model.dto.AggregateRequestDTO;
+import com.progressoft.fxdeals.model.dto.AggregateResponseDTO;
 import com.progressoft.fxdeals.model.dto.DealRequestDTO;
 import com.progressoft.fxdeals.model.dto.DealResponseDTO;
 import com.progressoft.fxdeals.service.DealService;
@@ -7,10 +11,15 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,22 +29,62 @@ public class DealController {
     private static final Logger logger = LoggerFactory.getLogger(DealController.class);
     
     private final DealService dealService;
+    private final DealStreamService dealStreamService;
+    private final DealAggregator dealAggregator;
     
     @Autowired
-    public DealController(DealService dealService) {
+    public DealController(DealService dealService, DealStreamService dealStreamService,
+                          DealAggregator dealAggregator) {
         this.dealService = dealService;
+        this.dealStreamService = dealStreamService;
+        this.dealAggregator = dealAggregator;
     }
     
     @PostMapping
     public ResponseEntity<DealResponseDTO> submitDeal(@Valid @RequestBody DealRequestDTO dealRequest) {
-        logger.info("Received deal submission request for deal ID: {}", dealRequest.getDealUniqueId());
+        logger.info("Received deal submission request for deal ID: {}", dealRequest.dealUniqueId());
         
         DealResponseDTO savedDeal = dealService.submitDeal(dealRequest);
         
-        logger.info("Deal successfully submitted with ID: {}", savedDeal.getDealUniqueId());
+        logger.info("Deal successfully submitted with ID: {}", savedDeal.dealUniqueId());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedDeal);
     }
     
+    @GetMapping("/{dealUniqueId}")
+    public ResponseEntity<DealResponseDTO> getDeal(@PathVariable String dealUniqueId) {
+        return ResponseEntity.ok(dealService.getDealByUniqueId(dealUniqueId));
+    }
+    
+    @GetMapping("/time-range")
+    public ResponseEntity<List<DealResponseDTO>> getDealsByTimestampRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return ResponseEntity.ok(dealService.getDealsByTimestampRange(start, end));
+    }
+    
+    @GetMapping("/currency-pair")
+    public ResponseEntity<List<DealResponseDTO>> getDealsByCurrencyPair(@RequestParam String from,
+                                                                        @RequestParam String to) {
+        return ResponseEntity.ok(dealService.getDealsByCurrencyPair(from, to));
+    }
+    
+    @PostMapping("/aggregates")
+    public ResponseEntity<AggregateResponseDTO> aggregateDeals(@Valid @RequestBody AggregateRequestDTO aggregateRequest) {
+        return ResponseEntity.ok(dealAggregator.aggregate(aggregateRequest));
+    }
+    
+    @GetMapping("/recent")
+    public ResponseEntity<List<DealResponseDTO>> getRecentDeals(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(dealService.getRecentDeals(limit));
+    }
+    
+    @GetMapping(value = "/recent/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRecentDeals(@RequestParam(defaultValue = "10") int backlog,
+                                        @RequestParam(required = false) String after,
+                                        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return dealStreamService.subscribe(backlog, lastEventId != null ? lastEventId : after);
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
         return ResponseEntity.ok(Map.of(
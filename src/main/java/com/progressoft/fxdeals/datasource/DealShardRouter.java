@@ -0,0 +1,148 @@
+package com.progressoft.fxdeals.datasource;
+
+import com.progressoft.fxdeals.config.ShardingProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Places deal operations on their shard. Single-deal work runs on the shard owning
+ * the deal's unique ID; queries without a deal key run on every shard in parallel
+ * and their ordered results are merged.
+ *
+ * <p>When sharding is disabled every method simply runs the work in the calling
+ * thread, so callers do not need to know whether sharding is on.
+ */
+public class DealShardRouter implements DisposableBean {
+
+    private final ConsistentHashRing ring;
+    private final ExecutorService scatterExecutor;
+    private final Duration scatterTimeout;
+
+    public DealShardRouter(ShardingProperties properties) {
+        if (properties.isEnabled()) {
+            List<String> names = properties.getShards().stream().map(ShardingProperties.Shard::getName).toList();
+            this.ring = new ConsistentHashRing(names, properties.getVirtualNodes());
+            this.scatterExecutor = Executors.newFixedThreadPool(properties.getScatterThreads(), daemonThreads());
+        } else {
+            this.ring = null;
+            this.scatterExecutor = null;
+        }
+        this.scatterTimeout = properties.getScatterTimeout();
+    }
+
+    public boolean isSharded() {
+        return ring != null;
+    }
+
+    public List<String> getShards() {
+        return isSharded() ? ring.getShards() : List.of();
+    }
+
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    public <T> T onShardOf(String dealUniqueId, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        return ShardRoutingContext.onShard(ring.shardFor(dealUniqueId), work);
+    }
+
+    /**
+     * Runs the query on every shard and merges the per-shard results, each of which
+     * must already be sorted by {@code order}, keeping at most {@code limit} rows.
+     * The query must open its own transaction, as it runs on a pool thread.
+     */
+    public <T> List<T> scatterGather(Supplier<List<T>> query, Comparator<? super T> order, int limit) {
+        if (!isSharded()) {
+            List<T> result = query.get();
+            return result.size() > limit ? result.subList(0, limit) : result;
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (String shard : ring.getShards()) {
+            futures.add(scatterExecutor.submit(() -> ShardRoutingContext.onShard(shard, query)));
+        }
+
+        long deadline = System.nanoTime() + scatterTimeout.toNanos();
+        List<List<T>> partials = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<T>> future : futures) {
+                partials.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Shard query did not complete within " + scatterTimeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new DataAccessResourceFailureException("Shard query failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        return mergeSorted(partials, order, limit);
+    }
+
+    static <T> List<T> mergeSorted(List<List<T>> sortedLists, Comparator<? super T> order, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.value, b.value));
+        int total = 0;
+        for (List<T> list : sortedLists) {
+            total += list.size();
+            Iterator<T> iterator = list.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head<T> head = heads.poll();
+            merged.add(head.value);
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void destroy() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Head<T>(T value, Iterator<T> rest) {
+    }
+}
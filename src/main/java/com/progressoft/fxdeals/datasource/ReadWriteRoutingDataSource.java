@@ -0,0 +1,67 @@
+package com.progressoft.fxdeals.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes connections of read-only transactions to the replica pools (round-robin)
+ * and everything else to the primary pool.
+ *
+ * <p>The routing key is evaluated when a physical connection is requested, so this
+ * data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} for the
+ * transaction's read-only flag to be visible at that point.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY_KEY = "primary";
+    static final String REPLICA_KEY_PREFIX = "replica-";
+
+    private final List<DataSource> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+        this.replicas = List.copyOf(replicas);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(REPLICA_KEY_PREFIX + i, this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty()
+                || ReplicaRoutingContext.isPrimaryForced()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY_KEY;
+        }
+        int index = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        return REPLICA_KEY_PREFIX + index;
+    }
+
+    /**
+     * Closes the replica pools. The primary pool is left to its owner.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : replicas) {
+            if (pool instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.progressoft.fxdeals.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers deals written to the primary within the replica lag window, so that
+ * read-your-writes lookups for them can bypass the replicas.
+ */
+@Component
+public class ReplicaLagTracker {
+
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    public ReplicaLagTracker(@Value("${fxdeals.datasource.replica.enabled:false}") boolean enabled,
+                             @Value("${fxdeals.datasource.replica.read-your-writes-window:5s}") Duration window) {
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Returns whether reads may be served by replicas at all.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recordWrite(String dealUniqueId) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        recentWrites.put(dealUniqueId, now);
+        if (recentWrites.size() > PRUNE_THRESHOLD) {
+            recentWrites.values().removeIf(writtenAt -> now - writtenAt > windowNanos);
+        }
+    }
+
+    /**
+     * Returns whether the deal may not have reached the replicas yet.
+     */
+    public boolean isRecentlyWritten(String dealUniqueId) {
+        if (!enabled) {
+            return false;
+        }
+        Long writtenAt = recentWrites.get(dealUniqueId);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt > windowNanos) {
+            recentWrites.remove(dealUniqueId, writtenAt);
+            return false;
+        }
+        return true;
+    }
+}
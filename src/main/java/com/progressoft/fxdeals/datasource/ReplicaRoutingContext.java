@@ -0,0 +1,38 @@
+package com.progressoft.fxdeals.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound override that pins connection lookups to the primary database,
+ * even inside a read-only transaction.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static boolean isPrimaryForced() {
+        return Boolean.TRUE.equals(PRIMARY_FORCED.get());
+    }
+
+    /**
+     * Runs the given work with primary routing forced. Only connections that are
+     * acquired while the work runs are affected, so this must wrap the first
+     * statement of the surrounding transaction.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        }
+    }
+}
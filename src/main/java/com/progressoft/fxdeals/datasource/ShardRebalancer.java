@@ -0,0 +1,153 @@
+package com.progressoft.fxdeals.datasource;
+
+import com.progressoft.fxdeals.event.DealsRewrittenEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Moves deals that are stored on a shard other than the one the hash ring assigns
+ * them to, e.g. after a shard has been added. Each shard is scanned in primary key
+ * order and misplaced rows are copied to their owner, then deleted from the source.
+ *
+ * <p>Rows are copied column by column, so the rebalancer does not depend on the
+ * entity mapping. A run that is interrupted between copy and delete is finished by
+ * the next run, which skips rows the owner already has.
+ *
+ * <p>Archived deals are indexed per shard in {@code deal_archive_keys} and
+ * {@code deal_archive_segments}, and a segment holds deals of many owners, so they
+ * cannot be moved row by row. Deals are only moved while no shard has archived any:
+ * an archived deal left behind on its old shard would no longer be found by ID, nor
+ * count as a duplicate.
+ */
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final Map<String, DataSource> shards;
+    private final ConsistentHashRing ring;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public ShardRebalancer(Map<String, DataSource> shards, ConsistentHashRing ring,
+                           ApplicationEventPublisher eventPublisher, int batchSize) {
+        this.shards = shards;
+        this.ring = ring;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public RebalanceReport rebalance(boolean dryRun) {
+        List<String> archived = shardsWithArchivedDeals();
+        if (!archived.isEmpty()) {
+            if (!dryRun) {
+                throw new IllegalStateException("Cannot rebalance while shards " + archived
+                        + " hold archived deals, which would no longer be found on their new shard");
+            }
+            logger.warn("Shards {} hold archived deals, deals will not be moved", archived);
+        }
+
+        long scanned = 0;
+        Map<String, Long> moves = new TreeMap<>();
+
+        for (Map.Entry<String, DataSource> source : shards.entrySet()) {
+            JdbcTemplate sourceTemplate = new JdbcTemplate(source.getValue());
+            long lastId = 0;
+            while (true) {
+                List<Map<String, Object>> keys = sourceTemplate.queryForList(
+                        "SELECT id, deal_unique_id FROM deals WHERE id > ? ORDER BY id LIMIT " + batchSize,
+                        lastId);
+                if (keys.isEmpty()) {
+                    break;
+                }
+                scanned += keys.size();
+                lastId = ((Number) keys.get(keys.size() - 1).get("id")).longValue();
+
+                Map<String, List<Long>> misplaced = new LinkedHashMap<>();
+                for (Map<String, Object> key : keys) {
+                    String owner = ring.shardFor((String) key.get("deal_unique_id"));
+                    if (!owner.equals(source.getKey())) {
+                        misplaced.computeIfAbsent(owner, o -> new ArrayList<>()).add(((Number) key.get("id")).longValue());
+                    }
+                }
+
+                for (Map.Entry<String, List<Long>> target : misplaced.entrySet()) {
+                    if (!dryRun) {
+                        move(source.getValue(), shards.get(target.getKey()), target.getValue());
+                    }
+                    moves.merge(source.getKey() + "->" + target.getKey(), (long) target.getValue().size(), Long::sum);
+                }
+            }
+        }
+
+        long moved = moves.values().stream().mapToLong(Long::longValue).sum();
+        logger.info("Rebalance {}: scanned {} deals, {} misplaced {}", dryRun ? "dry run" : "completed", scanned, moved, moves);
+        if (!dryRun && moved > 0) {
+            // Moved deals get a new id on their owner
+            eventPublisher.publishEvent(new DealsRewrittenEvent("rebalance", moved));
+        }
+        return new RebalanceReport(dryRun, scanned, moved, moves);
+    }
+
+    private List<String> shardsWithArchivedDeals() {
+        List<String> archived = new ArrayList<>();
+        shards.forEach((name, dataSource) -> {
+            if (!new JdbcTemplate(dataSource).queryForList(
+                    "SELECT deal_unique_id FROM deal_archive_keys LIMIT 1", String.class).isEmpty()) {
+                archived.add(name);
+            }
+        });
+        return archived;
+    }
+
+    private void move(DataSource source, DataSource target, List<Long> ids) {
+        NamedParameterJdbcTemplate sourceTemplate = new NamedParameterJdbcTemplate(source);
+        MapSqlParameterSource idParams = new MapSqlParameterSource("ids", ids);
+        List<Map<String, Object>> rows = sourceTemplate.queryForList("SELECT * FROM deals WHERE id IN (:ids)", idParams);
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        new TransactionTemplate(new DataSourceTransactionManager(target)).executeWithoutResult(status -> {
+            NamedParameterJdbcTemplate targetTemplate = new NamedParameterJdbcTemplate(target);
+            List<String> uniqueIds = rows.stream().map(row -> (String) row.get("deal_unique_id")).toList();
+            Set<String> present = new HashSet<>(targetTemplate.queryForList(
+                    "SELECT deal_unique_id FROM deals WHERE deal_unique_id IN (:ids)",
+                    new MapSqlParameterSource("ids", uniqueIds), String.class));
+
+            List<String> columns = rows.get(0).keySet().stream()
+                    .filter(column -> !column.equalsIgnoreCase("id"))
+                    .toList();
+            String insert = "INSERT INTO deals (" + String.join(", ", columns) + ") VALUES ("
+                    + String.join(", ", columns.stream().map(column -> "?").toList()) + ")";
+
+            List<Object[]> batch = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                if (!present.contains((String) row.get("deal_unique_id"))) {
+                    batch.add(columns.stream().map(row::get).toArray());
+                }
+            }
+            new JdbcTemplate(target).batchUpdate(insert, batch);
+        });
+
+        new TransactionTemplate(new DataSourceTransactionManager(source)).executeWithoutResult(status ->
+                sourceTemplate.update("DELETE FROM deals WHERE id IN (:ids)", idParams));
+    }
+
+    public record RebalanceReport(boolean dryRun, long scanned, long moved, Map<String, Long> moves) {
+    }
+}
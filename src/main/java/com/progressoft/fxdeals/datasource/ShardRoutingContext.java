@@ -0,0 +1,37 @@
+package com.progressoft.fxdeals.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound shard selection read by {@link ShardRoutingDataSource}.
+ */
+public final class ShardRoutingContext {
+
+    private static final ThreadLocal<String> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardRoutingContext() {
+    }
+
+    public static String currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Runs the given work against the given shard. As with
+     * {@link ReplicaRoutingContext}, only connections acquired while the work runs
+     * are affected.
+     */
+    public static <T> T onShard(String shard, Supplier<T> work) {
+        String previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.progressoft.fxdeals.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Routes connections to the shard bound in {@link ShardRoutingContext}. Connections
+ * requested with no shard bound (schema management, metadata lookups) go to the
+ * first shard.
+ *
+ * <p>Like {@link ReadWriteRoutingDataSource}, this must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so that
+ * a transaction opened before the shard is known still lands on the right shard.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final Map<String, DataSource> shards;
+
+    public ShardRoutingDataSource(Map<String, ? extends DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = new LinkedHashMap<>(shards);
+        setTargetDataSources(new LinkedHashMap<>(this.shards));
+        setDefaultTargetDataSource(this.shards.values().iterator().next());
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRoutingContext.currentShard();
+    }
+
+    /**
+     * Returns the physical data sources by shard name, in configuration order.
+     */
+    public Map<String, DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards.values()) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
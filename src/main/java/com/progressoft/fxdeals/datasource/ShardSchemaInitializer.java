@@ -0,0 +1,88 @@
+package com.progressoft.fxdeals.datasource;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the entity schema to every shard but the first. Hibernate's own
+ * {@code ddl-auto} handling only reaches the first shard, since that is where
+ * connections go when no shard is bound.
+ *
+ * <p>Runs only when {@code spring.jpa.hibernate.ddl-auto} asks Hibernate to create
+ * or update the schema, and always performs an update on the other shards.
+ */
+public class ShardSchemaInitializer implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    private static final Set<String> SCHEMA_ACTIONS = Set.of("update", "create", "create-drop", "create-only");
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<String> mappingResources;
+    private final ShardRoutingDataSource shardRoutingDataSource;
+
+    public ShardSchemaInitializer(EntityManagerFactory entityManagerFactory, List<String> mappingResources,
+                                  ShardRoutingDataSource shardRoutingDataSource) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.mappingResources = mappingResources;
+        this.shardRoutingDataSource = shardRoutingDataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Map<String, Object> settings = new HashMap<>(entityManagerFactory.getProperties());
+        Object action = settings.get(AvailableSettings.HBM2DDL_AUTO);
+        if (action == null || !SCHEMA_ACTIONS.contains(action.toString())) {
+            return;
+        }
+
+        Iterator<Map.Entry<String, DataSource>> shards = shardRoutingDataSource.getShards().entrySet().iterator();
+        shards.next();
+        while (shards.hasNext()) {
+            Map.Entry<String, DataSource> shard = shards.next();
+            logger.info("Updating schema of shard {}", shard.getKey());
+            updateSchema(settings, shard.getValue());
+        }
+    }
+
+    private void updateSchema(Map<String, Object> settings, DataSource shard) {
+        Map<String, Object> shardSettings = new HashMap<>(settings);
+        shardSettings.put(AvailableSettings.HBM2DDL_AUTO, "update");
+        // The factory's properties carry the routing data source, under the legacy key as well
+        shardSettings.values().removeIf(DataSource.class::isInstance);
+        shardSettings.put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, shard);
+
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySettings(shardSettings)
+                .build();
+        try {
+            MetadataSources sources = new MetadataSources(registry);
+            for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+                sources.addAnnotatedClass(entity.getJavaType());
+            }
+            // XML mappings, such as the compact deal layout, override the annotations
+            mappingResources.forEach(sources::addResource);
+            Metadata metadata = sources.buildMetadata();
+            SchemaManagementToolCoordinator.process(metadata, registry, shardSettings, dropAction -> {
+            });
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.progressoft.fxdeals.event;
+
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+
+/**
+ * Published inside the submitting transaction once a deal has been saved. Listeners
+ * that must only see committed deals use
+ * {@link org.springframework.transaction.event.TransactionalEventListener}.
+ */
+public record DealSubmittedEvent(DealResponseDTO deal) {
+}
@@ -0,0 +1,9 @@
+package com.progressoft.fxdeals.event;
+
+/**
+ * Published once deals have been changed or moved in bulk outside the submission
+ * path, e.g. repriced, archived or moved between shards. Holders of query results
+ * drop what they hold.
+ */
+public record DealsRewrittenEvent(String operation, long deals) {
+}
@@ -0,0 +1,15 @@
+package com.progressoft.fxdeals.exception;
+
+public class DealNotFoundException extends RuntimeException {
+    
+    private final String dealUniqueId;
+    
+    public DealNotFoundException(String dealUniqueId) {
+        super("Deal with unique ID '" + dealUniqueId + "' was not found");
+        this.dealUniqueId = dealUniqueId;
+    }
+    
+    public String getDealUniqueId() {
+        return dealUniqueId;
+    }
+}
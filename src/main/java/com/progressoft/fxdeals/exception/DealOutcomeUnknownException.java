@@ -0,0 +1,20 @@
+package com.progressoft.fxdeals.exception;
+
+/**
+ * A submitted deal whose transaction was still running when the request stopped
+ * waiting for it, so it may or may not have been stored.
+ */
+public class DealOutcomeUnknownException extends RuntimeException {
+    
+    private final String dealUniqueId;
+    
+    public DealOutcomeUnknownException(String dealUniqueId, Throwable cause) {
+        super("Deal with unique ID '" + dealUniqueId + "' may have been stored; look it up before submitting it again",
+                cause);
+        this.dealUniqueId = dealUniqueId;
+    }
+    
+    public String getDealUniqueId() {
+        return dealUniqueId;
+    }
+}
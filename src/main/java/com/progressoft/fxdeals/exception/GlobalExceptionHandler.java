@@ -6,8 +6,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -31,6 +33,32 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
     }
     
+    @ExceptionHandler(DealNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleDealNotFound(DealNotFoundException ex) {
+        logger.debug("Deal lookup miss: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            "DEAL_NOT_FOUND",
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+        
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+    
+    @ExceptionHandler(DealOutcomeUnknownException.class)
+    public ResponseEntity<ErrorResponse> handleDealOutcomeUnknown(DealOutcomeUnknownException ex) {
+        logger.warn("Deal submission outcome unknown: {}", ex.getCause().getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            "OUTCOME_UNKNOWN",
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+    
     @ExceptionHandler(DealValidationException.class)
     public ResponseEntity<ErrorResponse> handleDealValidation(DealValidationException ex) {
         logger.warn("Deal validation error: {}", ex.getMessage());
@@ -64,6 +92,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
     
+    @ExceptionHandler({MissingServletRequestParameterException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<ErrorResponse> handleBadRequestParameter(Exception ex) {
+        logger.warn("Request parameter error: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            "VALIDATION_ERROR",
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+    
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
         logger.error("Unexpected error occurred: {}", ex.getMessage(), ex);
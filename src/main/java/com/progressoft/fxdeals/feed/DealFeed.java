@@ -0,0 +1,473 @@
+package com.progressoft.fxdeals.feed;
+
+import com.progressoft.fxdeals.config.FeedProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Fans committed deals out to subscribers. A relay thread polls the outbox of every
+ * source and hands new entries, in batches, to each subscriber's bounded queue;
+ * delivery threads drain the queues. Every instance runs its own relay, so
+ * subscribers see the deals submitted through any instance.
+ *
+ * <p>Sequences are assigned on insert but become visible on commit, so the relay
+ * stops at a missing sequence and reads it again on the next polls. Entries behind
+ * the gap are passed on once it fills, or once it has been open for the gap timeout,
+ * when it is taken for a rolled back insert and skipped.
+ *
+ * <p>The relay never waits for a subscriber. When a queue is full its entries are
+ * dropped and the subscriber is later caught up from the outbox, starting at the
+ * last sequence it received. The same catch-up serves subscribers resuming from an
+ * earlier position, and subscribers whose consumer failed: their position is only
+ * moved once a batch has been accepted, and the batch is delivered again after a
+ * backoff.
+ *
+ * <p>The relay runs from the start of the application context to its close. While
+ * the outbox cannot be read, e.g. its database is gone, the relay backs off
+ * exponentially instead of polling at the usual interval.
+ */
+public class DealFeed implements SmartLifecycle, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealFeed.class);
+
+    private static final Duration PRUNE_INTERVAL = Duration.ofMinutes(10);
+
+    private static final Duration MAX_RELAY_BACKOFF = Duration.ofMinutes(1);
+
+    private final DealOutbox outbox;
+    private final FeedProperties properties;
+    private final ObjectProvider<DealFeedSink> sinks;
+    private final Map<String, Long> positions = new ConcurrentHashMap<>();
+    private final Map<String, OpenGap> openGaps = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService relayExecutor;
+    private final ExecutorService deliveryExecutor;
+    private volatile int relayFailures;
+    private volatile boolean running;
+    private boolean sinksSubscribed;
+    private ScheduledFuture<?> relayTask;
+    private ScheduledFuture<?> pruneTask;
+
+    public DealFeed(DealOutbox outbox, FeedProperties properties, ObjectProvider<DealFeedSink> sinks) {
+        this.outbox = outbox;
+        this.properties = properties;
+        this.sinks = sinks;
+        this.relayExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("deal-feed-relay"));
+        this.deliveryExecutor = Executors.newFixedThreadPool(properties.getDeliveryThreads(), daemonThreads("deal-feed-delivery"));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (!sinksSubscribed) {
+            // Positions the relay at the end of the outbox before sinks subscribe from there
+            relay();
+            sinks.orderedStream().forEach(sink -> subscribe(sink.name(), new FeedCursor(), sink::accept));
+            sinksSubscribed = true;
+        }
+        running = true;
+        relayTask = relayExecutor.schedule(this::poll, properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+        pruneTask = relayExecutor.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL.toMillis(),
+                PRUNE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (relayTask != null) {
+            relayTask.cancel(false);
+            pruneTask.cancel(false);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isRelayEnabled();
+    }
+
+    /**
+     * Subscribes {@code consumer} to every entry after {@code from}. Sources missing
+     * from {@code from} are delivered from their current position on.
+     */
+    public Subscription subscribe(String name, FeedCursor from, Consumer<List<FeedEntry>> consumer) {
+        Subscription subscription = new Subscription(name, from.copy(), consumer);
+        // Registered before the positions are read, so no entry falls between catch-up and queue
+        subscriptions.add(subscription);
+        positions.forEach((source, position) -> {
+            if (!subscription.cursor.contains(source)) {
+                subscription.cursor.set(source, position);
+            } else if (subscription.cursor.get(source) < position) {
+                subscription.catchUpPending = true;
+            }
+        });
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Returns {@code from} with every source it does not mention set to the current
+     * position.
+     */
+    public FeedCursor resolve(FeedCursor from) {
+        FeedCursor cursor = from.copy();
+        positions.forEach((source, position) -> {
+            if (!cursor.contains(source)) {
+                cursor.set(source, position);
+            }
+        });
+        return cursor;
+    }
+
+    /**
+     * Returns a cursor just before the {@code latest} most recent entries, so that a
+     * subscription starting there receives them first.
+     */
+    public FeedCursor cursorBefore(int latest) {
+        FeedCursor cursor = new FeedCursor();
+        List<FeedEntry> recent = new ArrayList<>();
+        positions.forEach((source, position) -> {
+            cursor.set(source, position);
+            if (latest > 0) {
+                recent.addAll(outbox.readLatest(source, position, latest));
+            }
+        });
+
+        recent.stream()
+                .sorted(Comparator.comparing((FeedEntry entry) -> entry.deal().createdAt()).reversed())
+                .limit(latest)
+                .forEach(entry -> cursor.set(entry.source(),
+                        Math.min(cursor.get(entry.source()), entry.sequence() - 1)));
+        return cursor;
+    }
+
+    public Map<String, Long> getPositions() {
+        return Map.copyOf(positions);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Relays once and schedules the next poll, later the longer the relay has been
+     * failing.
+     */
+    private synchronized void poll() {
+        if (!running) {
+            return;
+        }
+        relay();
+        relayTask = relayExecutor.schedule(this::poll, nextPollDelay().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    Duration nextPollDelay() {
+        return backoff(relayFailures);
+    }
+
+    private Duration backoff(int failures) {
+        Duration delay = properties.getPollInterval();
+        for (int i = 0; i < failures && delay.compareTo(MAX_RELAY_BACKOFF) < 0; i++) {
+            delay = delay.multipliedBy(2);
+        }
+        return delay.compareTo(MAX_RELAY_BACKOFF) < 0 ? delay : MAX_RELAY_BACKOFF;
+    }
+
+    void relay() {
+        LocalDateTime settledBefore = LocalDateTime.now().minus(properties.getSettleDelay());
+        try {
+            for (String source : outbox.sources()) {
+                relay(source, settledBefore);
+            }
+            if (relayFailures > 0) {
+                relayFailures = 0;
+                logger.info("Deal feed relay recovered");
+            }
+        } catch (RuntimeException e) {
+            if (relayFailures++ == 0) {
+                logger.warn("Deal feed relay failed, retrying with backoff up to {}", MAX_RELAY_BACKOFF, e);
+            }
+        }
+
+        // Retries catch-ups that failed, even when no new entries arrive
+        for (Subscription subscription : subscriptions) {
+            if (subscription.catchUpPending && subscription.retryDue()) {
+                subscription.schedule();
+            }
+        }
+    }
+
+    private void relay(String source, LocalDateTime settledBefore) {
+        Long position = positions.get(source);
+        if (position == null) {
+            positions.put(source, outbox.lastSequenceCreatedBefore(source, settledBefore));
+            return;
+        }
+
+        while (true) {
+            List<FeedEntry> entries = untilOpenGap(source, position,
+                    outbox.readAfter(source, position, settledBefore, properties.getBatchSize()));
+            if (entries.isEmpty()) {
+                return;
+            }
+            position = entries.get(entries.size() - 1).sequence();
+            // Moved before publishing, so a subscriber registering meanwhile catches up past these entries
+            positions.put(source, position);
+            for (Subscription subscription : subscriptions) {
+                subscription.offer(entries);
+            }
+            if (entries.size() < properties.getBatchSize()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the leading {@code entries} that follow {@code position} without a gap,
+     * skipping gaps that have been open for the gap timeout.
+     */
+    private List<FeedEntry> untilOpenGap(String source, long position, List<FeedEntry> entries) {
+        long expected = position + 1;
+        for (int i = 0; i < entries.size(); i++) {
+            long sequence = entries.get(i).sequence();
+            if (sequence != expected && !gapTimedOut(source, expected, sequence - 1)) {
+                return entries.subList(0, i);
+            }
+            expected = sequence + 1;
+        }
+        return entries;
+    }
+
+    private boolean gapTimedOut(String source, long from, long to) {
+        long now = System.nanoTime();
+        OpenGap gap = openGaps.get(source);
+        if (gap == null || gap.from() != from) {
+            gap = new OpenGap(from, now);
+            openGaps.put(source, gap);
+        }
+        if (now - gap.since() < properties.getGapTimeout().toNanos()) {
+            return false;
+        }
+        openGaps.remove(source);
+        logger.warn("Deal feed skipped outbox sequences {}-{} of {}, not committed within {}",
+                from, to, source, properties.getGapTimeout());
+        return true;
+    }
+
+    private void prune() {
+        try {
+            int deleted = outbox.prune(LocalDateTime.now().minus(properties.getRetention()));
+            if (deleted > 0) {
+                logger.info("Pruned {} deal outbox entries older than {}", deleted, properties.getRetention());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not prune deal outbox", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+        relayExecutor.shutdownNow();
+        deliveryExecutor.shutdownNow();
+        subscriptions.clear();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record OpenGap(long from, long since) {
+    }
+
+    /**
+     * A subscriber's queue and position. Deliveries to one subscription never overlap.
+     */
+    public final class Subscription {
+
+        private final String name;
+        private final FeedCursor cursor;
+        private final Consumer<List<FeedEntry>> consumer;
+        private final BlockingQueue<FeedEntry> queue;
+        // Held until the subscription has started, so deliveries see its initial cursor
+        private final AtomicBoolean scheduled = new AtomicBoolean(true);
+        private volatile boolean catchUpPending;
+        private volatile boolean cancelled;
+        private int failures;
+        private volatile long retryAt = System.nanoTime();
+
+        private Subscription(String name, FeedCursor cursor, Consumer<List<FeedEntry>> consumer) {
+            this.name = name;
+            this.cursor = cursor;
+            this.consumer = consumer;
+            this.queue = new ArrayBlockingQueue<>(properties.getSubscriberQueueCapacity());
+        }
+
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            queue.clear();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void start() {
+            scheduled.set(false);
+            schedule();
+        }
+
+        private void offer(List<FeedEntry> entries) {
+            for (FeedEntry entry : entries) {
+                if (!queue.offer(entry)) {
+                    queue.clear();
+                    catchUpPending = true;
+                    logger.debug("Feed subscriber {} fell behind, catching up from the outbox", name);
+                    break;
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            boolean caughtUp = true;
+            try {
+                while (!cancelled) {
+                    if (catchUpPending) {
+                        if (!retryDue()) {
+                            caughtUp = false;
+                            return;
+                        }
+                        catchUpPending = false;
+                        caughtUp = catchUp();
+                        if (!caughtUp) {
+                            return;
+                        }
+                    }
+                    List<FeedEntry> batch = new ArrayList<>();
+                    queue.drainTo(batch, properties.getBatchSize());
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        deliver(batch);
+                    } catch (RuntimeException e) {
+                        caughtUp = false;
+                        retryLater(e);
+                        return;
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (caughtUp && (!queue.isEmpty() || catchUpPending)) {
+                    schedule();
+                }
+            }
+        }
+
+        private boolean catchUp() {
+            try {
+                for (Map.Entry<String, Long> target : positions.entrySet()) {
+                    String source = target.getKey();
+                    while (!cancelled && cursor.contains(source) && cursor.get(source) < target.getValue()) {
+                        List<FeedEntry> entries = outbox.readAfter(source, cursor.get(source), null, properties.getBatchSize())
+                                .stream()
+                                .filter(entry -> entry.sequence() <= target.getValue())
+                                .toList();
+                        if (entries.isEmpty()) {
+                            break;
+                        }
+                        deliver(entries);
+                    }
+                }
+                return true;
+            } catch (RuntimeException e) {
+                retryLater(e);
+                return false;
+            }
+        }
+
+        private boolean retryDue() {
+            return System.nanoTime() - retryAt >= 0;
+        }
+
+        /**
+         * Delivers again from the position after a backoff. Queued entries are read
+         * from the outbox then, behind the ones that failed.
+         */
+        private void retryLater(RuntimeException e) {
+            failures++;
+            Duration delay = backoff(failures);
+            retryAt = System.nanoTime() + delay.toNanos();
+            queue.clear();
+            catchUpPending = true;
+            if (failures == 1) {
+                logger.error("Feed subscriber {} failed at {}, retrying with backoff up to {}",
+                        name, cursor, MAX_RELAY_BACKOFF, e);
+            } else {
+                logger.debug("Feed subscriber {} failed {} times at {}, retrying in {}: {}",
+                        name, failures, cursor, delay, e.toString());
+            }
+        }
+
+        private void deliver(List<FeedEntry> entries) {
+            List<FeedEntry> unseen = new ArrayList<>(entries.size());
+            for (FeedEntry entry : entries) {
+                if (entry.sequence() > cursor.get(entry.source())) {
+                    unseen.add(entry);
+                }
+            }
+            if (unseen.isEmpty()) {
+                return;
+            }
+            // Moved once accepted, so a batch the consumer failed on is delivered again
+            consumer.accept(unseen);
+            unseen.forEach(cursor::advance);
+            if (failures > 0) {
+                failures = 0;
+                logger.info("Feed subscriber {} recovered", name);
+            }
+        }
+    }
+}
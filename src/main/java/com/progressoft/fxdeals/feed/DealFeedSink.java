@@ -0,0 +1,22 @@
+package com.progressoft.fxdeals.feed;
+
+import java.util.List;
+
+/**
+ * Receives every committed deal from the {@link DealFeed}. Beans implementing this
+ * interface are subscribed when the application starts and receive deals committed
+ * from then on.
+ *
+ * <p>Each sink has its own bounded queue and is called from a feed delivery thread,
+ * never concurrently with itself. Entries arrive in sequence order per source. A
+ * sink that falls behind its queue is caught up from the outbox, so it still sees
+ * every deal, only later.
+ */
+public interface DealFeedSink {
+
+    void accept(List<FeedEntry> entries);
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
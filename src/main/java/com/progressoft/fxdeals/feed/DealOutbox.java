@@ -0,0 +1,111 @@
+package com.progressoft.fxdeals.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ReplicaRoutingContext;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.event.DealSubmittedEvent;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import com.progressoft.fxdeals.model.entity.DealOutboxEntry;
+import com.progressoft.fxdeals.repository.DealOutboxRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Transactional outbox of submitted deals. An entry is saved next to every new deal
+ * in the submitting transaction, on the deal's shard, so the feed sees a deal if and
+ * only if it was committed.
+ *
+ * <p>Reads always go to the primary database, as replicas may not have the newest
+ * entries yet.
+ */
+@Component
+public class DealOutbox {
+
+    public static final String DEFAULT_SOURCE = "deals";
+
+    private final DealOutboxRepository outboxRepository;
+    private final DealShardRouter dealShardRouter;
+    private final ObjectMapper objectMapper;
+
+    public DealOutbox(DealOutboxRepository outboxRepository, DealShardRouter dealShardRouter,
+                      ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.dealShardRouter = dealShardRouter;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onDealSubmitted(DealSubmittedEvent event) {
+        DealResponseDTO deal = event.deal();
+        try {
+            outboxRepository.insertEntry(deal.dealUniqueId(), objectMapper.writeValueAsString(deal));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize deal " + deal.dealUniqueId(), e);
+        }
+    }
+
+    /**
+     * The shards, or {@link #DEFAULT_SOURCE} when sharding is disabled.
+     */
+    public List<String> sources() {
+        return dealShardRouter.isSharded() ? dealShardRouter.getShards() : List.of(DEFAULT_SOURCE);
+    }
+
+    /**
+     * Returns up to {@code limit} entries following {@code after}, in sequence order.
+     * With {@code settledBefore} set, stops at the first entry created after it.
+     */
+    public List<FeedEntry> readAfter(String source, long after, LocalDateTime settledBefore, int limit) {
+        List<DealOutboxEntry> entries = on(source, () -> outboxRepository.findEntriesAfter(after, limit));
+        List<FeedEntry> feedEntries = new ArrayList<>(entries.size());
+        for (DealOutboxEntry entry : entries) {
+            if (settledBefore != null && entry.getCreatedAt().isAfter(settledBefore)) {
+                break;
+            }
+            feedEntries.add(toFeedEntry(source, entry));
+        }
+        return feedEntries;
+    }
+
+    /**
+     * Returns up to {@code limit} entries up to and including {@code upTo}, newest first.
+     */
+    public List<FeedEntry> readLatest(String source, long upTo, int limit) {
+        return on(source, () -> outboxRepository.findLatestEntries(upTo, limit)).stream()
+                .map(entry -> toFeedEntry(source, entry))
+                .toList();
+    }
+
+    public long lastSequenceCreatedBefore(String source, LocalDateTime createdBefore) {
+        Long last = on(source, () -> outboxRepository.findLastIdCreatedBefore(createdBefore));
+        return last != null ? last : 0;
+    }
+
+    public int prune(LocalDateTime createdBefore) {
+        int deleted = 0;
+        for (String source : sources()) {
+            deleted += on(source, () -> outboxRepository.deleteEntriesCreatedBefore(createdBefore));
+        }
+        return deleted;
+    }
+
+    private <T> T on(String source, Supplier<T> work) {
+        Supplier<T> onPrimary = () -> ReplicaRoutingContext.onPrimary(work);
+        return dealShardRouter.isSharded() ? ShardRoutingContext.onShard(source, onPrimary) : onPrimary.get();
+    }
+
+    private FeedEntry toFeedEntry(String source, DealOutboxEntry entry) {
+        try {
+            return new FeedEntry(source, entry.getId(), objectMapper.readValue(entry.getPayload(), DealResponseDTO.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read outbox entry " + entry.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.progressoft.fxdeals.feed;
+
+import com.progressoft.fxdeals.exception.DealValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the {@link DealFeed} to server-sent-event subscribers, so screens showing
+ * recent deals do not have to poll. Every event carries the feed position after its
+ * deal as event ID; a client that reconnects with that ID in {@code Last-Event-ID}
+ * continues right after it.
+ */
+@Component
+public class DealStreamService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealStreamService.class);
+
+    private static final int MAX_BACKLOG = 1000;
+
+    private final Map<SseEmitter, DealFeed.Subscription> subscribers = new ConcurrentHashMap<>();
+    private final DealFeed dealFeed;
+    private final long timeoutMillis;
+
+    public DealStreamService(DealFeed dealFeed,
+                             @Value("${fxdeals.recent-deals.stream-timeout:30m}") Duration timeout) {
+        this.dealFeed = dealFeed;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Opens a stream of every deal committed after {@code lastEventId}, or, without
+     * one, of up to {@code backlog} recent deals followed by every deal committed
+     * from now on.
+     */
+    public SseEmitter subscribe(int backlog, String lastEventId) {
+        if (backlog < 0 || backlog > MAX_BACKLOG) {
+            throw new DealValidationException("Backlog must be between 0 and " + MAX_BACKLOG);
+        }
+
+        FeedCursor start = lastEventId == null || lastEventId.isBlank()
+                ? dealFeed.cursorBefore(backlog)
+                : dealFeed.resolve(parseCursor(lastEventId));
+        FeedCursor eventIds = start.copy();
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        DealFeed.Subscription subscription = dealFeed.subscribe("stream", start,
+                entries -> send(emitter, eventIds, entries));
+        subscribers.put(emitter, subscription);
+        emitter.onCompletion(() -> unsubscribe(emitter));
+        emitter.onTimeout(() -> unsubscribe(emitter));
+        emitter.onError(error -> unsubscribe(emitter));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private FeedCursor parseCursor(String lastEventId) {
+        try {
+            return FeedCursor.parse(lastEventId);
+        } catch (IllegalArgumentException e) {
+            throw new DealValidationException(e.getMessage());
+        }
+    }
+
+    private void send(SseEmitter emitter, FeedCursor eventIds, List<FeedEntry> entries) {
+        // One write and flush per batch
+        Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+        for (FeedEntry entry : entries) {
+            eventIds.advance(entry);
+            events.addAll(SseEmitter.event()
+                    .name("deal")
+                    .id(eventIds.toString())
+                    .data(entry.deal(), MediaType.APPLICATION_JSON)
+                    .build());
+        }
+        try {
+            emitter.send(events);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping deal stream subscriber: {}", e.getMessage());
+            unsubscribe(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(SseEmitter emitter) {
+        DealFeed.Subscription subscription = subscribers.remove(emitter);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach((emitter, subscription) -> {
+            subscription.cancel();
+            emitter.complete();
+        });
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,92 @@
+package com.progressoft.fxdeals.feed;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Position of a feed subscriber: the last sequence number delivered per source.
+ *
+ * <p>Written as a plain sequence number while the only source is
+ * {@link DealOutbox#DEFAULT_SOURCE}, and as {@code source:sequence} pairs separated
+ * by commas otherwise, e.g. {@code shard-a:120,shard-b:97}. That text is what
+ * stream clients send back to resume after a disconnect.
+ */
+public final class FeedCursor {
+
+    private final Map<String, Long> positions;
+
+    public FeedCursor() {
+        this(new LinkedHashMap<>());
+    }
+
+    private FeedCursor(Map<String, Long> positions) {
+        this.positions = positions;
+    }
+
+    public static FeedCursor parse(String text) {
+        FeedCursor cursor = new FeedCursor();
+        String trimmed = text.trim();
+        try {
+            if (trimmed.indexOf(':') < 0) {
+                cursor.positions.put(DealOutbox.DEFAULT_SOURCE, parseSequence(trimmed));
+                return cursor;
+            }
+            for (String part : trimmed.split(",")) {
+                int separator = part.lastIndexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Invalid feed position: " + text);
+                }
+                cursor.positions.put(part.substring(0, separator).trim(), parseSequence(part.substring(separator + 1).trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid feed position: " + text, e);
+        }
+        return cursor;
+    }
+
+    private static long parseSequence(String text) {
+        long sequence = Long.parseLong(text);
+        if (sequence < 0) {
+            throw new NumberFormatException("Negative sequence: " + text);
+        }
+        return sequence;
+    }
+
+    public boolean contains(String source) {
+        return positions.containsKey(source);
+    }
+
+    public long get(String source) {
+        return positions.getOrDefault(source, 0L);
+    }
+
+    public void set(String source, long sequence) {
+        positions.put(source, sequence);
+    }
+
+    /**
+     * Moves past {@code entry}, returning {@code false} if it had already been passed.
+     */
+    public boolean advance(FeedEntry entry) {
+        if (entry.sequence() <= get(entry.source())) {
+            return false;
+        }
+        positions.put(entry.source(), entry.sequence());
+        return true;
+    }
+
+    public FeedCursor copy() {
+        return new FeedCursor(new LinkedHashMap<>(positions));
+    }
+
+    @Override
+    public String toString() {
+        if (positions.size() == 1 && positions.containsKey(DealOutbox.DEFAULT_SOURCE)) {
+            return String.valueOf(positions.get(DealOutbox.DEFAULT_SOURCE));
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        positions.forEach((source, sequence) -> joiner.add(source + ":" + sequence));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,11 @@
+package com.progressoft.fxdeals.feed;
+
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+
+/**
+ * A committed deal as delivered by the {@link DealFeed}. Sequence numbers increase
+ * per source, which is the shard the deal is stored on, or
+ * {@link DealOutbox#DEFAULT_SOURCE} when sharding is disabled.
+ */
+public record FeedEntry(String source, long sequence, DealResponseDTO deal) {
+}
@@ -0,0 +1,186 @@
+package com.progressoft.fxdeals.fx;
+
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.event.DealsRewrittenEvent;
+import com.progressoft.fxdeals.feed.DealOutbox;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Recomputes the USD notional of stored deals after rates have been corrected.
+ * Each shard's primary key range is split in half until the pieces are at most one
+ * chunk, and every chunk is repriced in its own short transaction on a fork-join
+ * pool, so a full reprice neither holds long locks nor runs on a single connection.
+ *
+ * <p>Deals without a notional are repriced as well, which backfills deals stored
+ * before their currency had a rate. Deals submitted while a reprice runs may keep
+ * the notional of the rates they were submitted with.
+ */
+public class DealRepricer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealRepricer.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DealShardRouter dealShardRouter;
+    private final FxRateTable fxRateTable;
+    private final DealStorageLayout layout;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public DealRepricer(DataSource dataSource, PlatformTransactionManager transactionManager,
+                        DealShardRouter dealShardRouter, FxRateTable fxRateTable,
+                        DealStorageLayout layout, ApplicationEventPublisher eventPublisher,
+                        int chunkSize, int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Reprice chunk size and parallelism must be positive");
+        }
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dealShardRouter = dealShardRouter;
+        this.fxRateTable = fxRateTable;
+        this.layout = layout;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reprices deals whose from-currency is in {@code currencies}, and deals without
+     * a notional, at the current rates.
+     */
+    public RepricingReport reprice(Set<String> currencies) {
+        FxRateSnapshot rates = fxRateTable.current();
+        List<String> shards = dealShardRouter.isSharded() ? dealShardRouter.getShards() : Collections.singletonList(null);
+        long started = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Map<String, ForkJoinTask<Long>> tasks = new TreeMap<>();
+            for (String shard : shards) {
+                long[] range = onShard(shard, () -> transactionTemplate.execute(status -> idRange()));
+                if (range != null) {
+                    tasks.put(shard != null ? shard : DealOutbox.DEFAULT_SOURCE,
+                            pool.submit(new RepriceTask(shard, rates, currencies, range[0], range[1] + 1)));
+                }
+            }
+
+            Map<String, Long> updated = new TreeMap<>();
+            tasks.forEach((shard, task) -> updated.put(shard, task.join()));
+            long total = updated.values().stream().mapToLong(Long::longValue).sum();
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Repriced {} deal(s) at FX rates version {} for {} in {} ms",
+                    total, rates.getVersion(), currencies, millis);
+            if (total > 0) {
+                eventPublisher.publishEvent(new DealsRewrittenEvent("reprice", total));
+            }
+            return new RepricingReport(rates.getVersion(), currencies, total, updated, millis);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private long[] idRange() {
+        Map<String, Object> range = jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi FROM deals", Map.of());
+        if (range.get("lo") == null) {
+            return null;
+        }
+        return new long[]{((Number) range.get("lo")).longValue(), ((Number) range.get("hi")).longValue()};
+    }
+
+    private long repriceChunk(FxRateSnapshot rates, Set<String> currencies, long fromId, long toId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromId", fromId)
+                .addValue("toId", toId);
+        String filter = "usd_notional IS NULL";
+        List<Object> storedCurrencies = currencies.stream()
+                .filter(layout::canStoreCurrency)
+                .map(layout::currencyParameter)
+                .toList();
+        if (!storedCurrencies.isEmpty()) {
+            filter = "(from_currency IN (:currencies) OR " + filter + ")";
+            params.addValue("currencies", storedCurrencies);
+        }
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, from_currency, deal_amount, usd_notional FROM deals WHERE id >= :fromId AND id < :toId AND "
+                        + filter, params);
+
+        List<MapSqlParameterSource> updates = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            BigDecimal current = (BigDecimal) row.get("usd_notional");
+            BigDecimal repriced = rates.usdNotional(layout.currency(row.get("from_currency")),
+                    layout.amount(row.get("deal_amount")));
+            if (repriced != null && (current == null || current.compareTo(repriced) != 0)) {
+                updates.add(new MapSqlParameterSource()
+                        .addValue("id", row.get("id"))
+                        .addValue("usdNotional", repriced));
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE deals SET usd_notional = :usdNotional WHERE id = :id",
+                    updates.toArray(MapSqlParameterSource[]::new));
+        }
+        return updates.size();
+    }
+
+    private static <T> T onShard(String shard, Supplier<T> work) {
+        return shard == null ? work.get() : ShardRoutingContext.onShard(shard, work);
+    }
+
+    private class RepriceTask extends RecursiveTask<Long> {
+
+        private final String shard;
+        private final FxRateSnapshot rates;
+        private final Set<String> currencies;
+        private final long fromId;
+        private final long toId;
+
+        RepriceTask(String shard, FxRateSnapshot rates, Set<String> currencies, long fromId, long toId) {
+            this.shard = shard;
+            this.rates = rates;
+            this.currencies = currencies;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected Long compute() {
+            if (toId - fromId <= chunkSize) {
+                // Pool threads carry no shard binding of their own
+                return onShard(shard, () -> transactionTemplate.execute(
+                        status -> repriceChunk(rates, currencies, fromId, toId)));
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RepriceTask upper = new RepriceTask(shard, rates, currencies, middle, toId);
+            upper.fork();
+            long lower = new RepriceTask(shard, rates, currencies, fromId, middle).compute();
+            return lower + upper.join();
+        }
+    }
+
+    public record RepricingReport(long rateVersion, Set<String> currencies, long repriced,
+                                  Map<String, Long> repricedPerShard, long durationMillis) {
+    }
+}
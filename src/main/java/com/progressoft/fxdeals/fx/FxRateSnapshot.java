@@ -0,0 +1,197 @@
+package com.progressoft.fxdeals.fx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable set of USD rates, one per currency, indexed by ISO 4217 numeric code so
+ * that a lookup is a single array read. {@link FxRateTable} replaces the whole
+ * snapshot when rates change, so readers never lock.
+ *
+ * <p>Rates are kept as quoted in market convention ({@code EUR/USD}, {@code USD/JPY});
+ * amounts in a currency quoted against USD are divided rather than multiplied by a
+ * rounded inverse.
+ */
+public final class FxRateSnapshot {
+
+    public static final String USD = "USD";
+
+    /**
+     * Scale of USD notionals, matching the scale of deal amounts.
+     */
+    public static final int NOTIONAL_SCALE = 4;
+
+    /**
+     * ISO 4217 numeric codes are three digits.
+     */
+    private static final int SLOTS = 1000;
+
+    public static final FxRateSnapshot EMPTY = new FxRateSnapshot(0, Instant.EPOCH, new UsdRate[SLOTS]);
+
+    private final long version;
+    private final Instant loadedAt;
+    private final UsdRate[] rates;
+
+    private FxRateSnapshot(long version, Instant loadedAt, UsdRate[] rates) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.rates = rates;
+    }
+
+    /**
+     * Reads {@code pair,rate} lines such as {@code EUR/USD,1.0842}. Blank lines and
+     * lines starting with {@code #} are ignored; every pair must have USD on one side.
+     */
+    public static FxRateSnapshot parse(Reader source, long version) throws IOException {
+        UsdRate[] rates = new UsdRate[SLOTS];
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            UsdRate rate = parseLine(line, lineNumber);
+            int slot = slot(rate.currency());
+            if (rates[slot] != null) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": duplicate rate for " + rate.currency());
+            }
+            rates[slot] = rate;
+        }
+        return new FxRateSnapshot(version, Instant.now(), rates);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Values {@code amount} of {@code currency} in USD, or returns {@code null} when
+     * there is no rate for the currency.
+     */
+    public BigDecimal usdNotional(String currency, BigDecimal amount) {
+        if (USD.equals(currency)) {
+            return amount.setScale(NOTIONAL_SCALE, RoundingMode.HALF_EVEN);
+        }
+        UsdRate rate = rates[slot(currency)];
+        return rate != null ? rate.toUsd(amount) : null;
+    }
+
+    public boolean hasRate(String currency) {
+        return USD.equals(currency) || rates[slot(currency)] != null;
+    }
+
+    /**
+     * Currencies whose rate differs from {@code previous}, including currencies that
+     * gained or lost their rate.
+     */
+    public Set<String> changedSince(FxRateSnapshot previous) {
+        Set<String> changed = new TreeSet<>();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            UsdRate current = rates[slot];
+            UsdRate before = previous.rates[slot];
+            if (current == null && before == null) {
+                continue;
+            }
+            if (current == null || before == null || current.quote().compareTo(before.quote()) != 0
+                    || current.usdBase() != before.usdBase()) {
+                changed.add(current != null ? current.currency() : before.currency());
+            }
+        }
+        return changed;
+    }
+
+    public Set<String> getCurrencies() {
+        Set<String> currencies = new TreeSet<>();
+        for (UsdRate rate : rates) {
+            if (rate != null) {
+                currencies.add(rate.currency());
+            }
+        }
+        return currencies;
+    }
+
+    /**
+     * The quotes this snapshot was built from, keyed by pair.
+     */
+    public Map<String, BigDecimal> getQuotes() {
+        Map<String, BigDecimal> quotes = new TreeMap<>();
+        for (UsdRate rate : rates) {
+            if (rate != null) {
+                quotes.put(rate.pair(), rate.quote());
+            }
+        }
+        return quotes;
+    }
+
+    private static UsdRate parseLine(String line, int lineNumber) {
+        String[] fields = line.split(",");
+        String[] pair = fields[0].strip().toUpperCase().split("/");
+        if (fields.length != 2 || pair.length != 2) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected pair,rate but got '" + line + "'");
+        }
+
+        BigDecimal quote;
+        try {
+            quote = new BigDecimal(fields[1].strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid rate '" + fields[1].strip() + "'");
+        }
+        if (quote.signum() <= 0) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": rate must be positive");
+        }
+
+        boolean usdBase = pair[0].equals(USD);
+        String currency = usdBase ? pair[1] : pair[0];
+        if (usdBase == pair[1].equals(USD)) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": pair must have USD on exactly one side");
+        }
+        int numericCode;
+        try {
+            numericCode = Currency.getInstance(currency).getNumericCode();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid currency code " + currency);
+        }
+        if (numericCode <= 0) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + currency + " has no numeric code");
+        }
+        return new UsdRate(currency, quote, usdBase);
+    }
+
+    private static int slot(String currency) {
+        // No ISO currency uses 000, so currencies without a numeric code share an empty slot
+        return Math.max(0, Currency.getInstance(currency).getNumericCode());
+    }
+
+    /**
+     * A currency's rate against USD, as quoted: {@code usdBase} for pairs like
+     * {@code USD/JPY} that give units of the currency per dollar.
+     */
+    private record UsdRate(String currency, BigDecimal quote, boolean usdBase) {
+
+        BigDecimal toUsd(BigDecimal amount) {
+            return usdBase
+                    ? amount.divide(quote, NOTIONAL_SCALE, RoundingMode.HALF_EVEN)
+                    : amount.multiply(quote).setScale(NOTIONAL_SCALE, RoundingMode.HALF_EVEN);
+        }
+
+        String pair() {
+            return usdBase ? USD + "/" + currency : currency + "/" + USD;
+        }
+    }
+}
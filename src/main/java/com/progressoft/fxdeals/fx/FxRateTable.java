@@ -0,0 +1,76 @@
+package com.progressoft.fxdeals.fx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Current USD rates, read from a rate file. Lookups read the current
+ * {@link FxRateSnapshot} without locking; {@link #reload()} builds a new snapshot and
+ * swaps it in.
+ */
+public class FxRateTable implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxRateTable.class);
+
+    private final Resource location;
+    private volatile FxRateSnapshot snapshot = FxRateSnapshot.EMPTY;
+
+    public FxRateTable(Resource location) {
+        this.location = location;
+    }
+
+    public FxRateSnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Values {@code amount} of {@code currency} in USD at the current rates, or
+     * returns {@code null} when there is no rate for the currency.
+     */
+    public BigDecimal usdNotional(String currency, BigDecimal amount) {
+        return snapshot.usdNotional(currency, amount);
+    }
+
+    /**
+     * Re-reads the rate file and returns the currencies whose rate changed. A file
+     * that cannot be parsed leaves the current rates in place.
+     */
+    public synchronized Set<String> reload() {
+        FxRateSnapshot previous = snapshot;
+        FxRateSnapshot next;
+        try (Reader reader = new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8)) {
+            next = FxRateSnapshot.parse(reader, previous.getVersion() + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read FX rates from " + location, e);
+        }
+
+        Set<String> changed = next.changedSince(previous);
+        snapshot = next;
+        logger.info("Loaded FX rates version {} from {}, {} currencies, changed: {}",
+                next.getVersion(), location, next.getCurrencies().size(), changed);
+        return changed;
+    }
+
+    public String getLocation() {
+        return location.getDescription();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!location.exists()) {
+            logger.warn("FX rate file {} not found, deals will be stored without a USD notional", location);
+            return;
+        }
+        reload();
+    }
+}
@@ -0,0 +1,162 @@
+package com.progressoft.fxdeals.ingest;
+
+import com.progressoft.fxdeals.config.DuplicateGuardProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Guards deal submission against duplicate storms, where an upstream system retries
+ * the same deal many times a minute.
+ *
+ * <p>Deal IDs rejected as duplicates are remembered for a while, so their retries
+ * are rejected again without a database round trip. Deals are never deleted, so a
+ * remembered ID cannot turn valid again; the time limit only bounds how long a deal
+ * removed directly in the database keeps being rejected.
+ *
+ * <p>The most frequently submitted deal IDs, and the clients submitting or being
+ * rejected most, are tracked approximately in a fixed amount of memory; see
+ * {@link SpaceSavingCounter}.
+ *
+ * <p>Almost every submission is of a new deal, so the remembered IDs are looked up
+ * without locking, and are evicted oldest first through a queue in the order they
+ * were rejected. When the guard is disabled, only duplicates are counted.
+ */
+public class DuplicateGuard implements MeterBinder {
+
+    private final boolean enabled;
+    private final int negativeCacheSize;
+    private final long negativeCacheTtlNanos;
+    private final SpaceSavingCounter dealIds;
+    private final SpaceSavingCounter clients;
+    private final SpaceSavingCounter rejectedClients;
+    private final Map<String, Long> rejectedDealIds = new ConcurrentHashMap<>();
+    private final Queue<Rejection> rejectionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedRejections = new AtomicInteger();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+
+    public DuplicateGuard(DuplicateGuardProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.negativeCacheSize = properties.getNegativeCacheSize();
+        this.negativeCacheTtlNanos = properties.getNegativeCacheTtl().toNanos();
+        this.dealIds = new SpaceSavingCounter(properties.getTrackedKeys(), properties.getHalfLife());
+        this.clients = new SpaceSavingCounter(properties.getTrackedKeys(), properties.getHalfLife());
+        this.rejectedClients = new SpaceSavingCounter(properties.getTrackedKeys(), properties.getHalfLife());
+    }
+
+    /**
+     * Counts a submission of {@code dealUniqueId} and tells whether it was recently
+     * rejected as a duplicate, in which case it can be rejected again right away.
+     */
+    public boolean isKnownDuplicate(String dealUniqueId) {
+        if (!enabled) {
+            return false;
+        }
+        dealIds.add(dealUniqueId);
+        Long rejectedAt = rejectedDealIds.get(dealUniqueId);
+        if (rejectedAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - rejectedAt >= negativeCacheTtlNanos) {
+            rejectedDealIds.remove(dealUniqueId, rejectedAt);
+            return false;
+        }
+        duplicates.increment();
+        shortCircuited.increment();
+        return true;
+    }
+
+    /**
+     * Remembers that {@code dealUniqueId} was rejected as a duplicate by the database.
+     */
+    public void recordDuplicate(String dealUniqueId) {
+        duplicates.increment();
+        if (!enabled) {
+            return;
+        }
+        Long now = System.nanoTime();
+        rejectedDealIds.put(dealUniqueId, now);
+        rejectionOrder.add(new Rejection(dealUniqueId, now));
+        queuedRejections.incrementAndGet();
+        // The queue also holds rejections superseded by a later one of the same ID,
+        // which are skipped, and is bounded so that those cannot pile up
+        while (rejectedDealIds.size() > negativeCacheSize || queuedRejections.get() > 2 * negativeCacheSize) {
+            Rejection oldest = rejectionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            queuedRejections.decrementAndGet();
+            rejectedDealIds.remove(oldest.dealUniqueId(), oldest.rejectedAt());
+        }
+    }
+
+    /**
+     * Counts a submission by {@code client}, and whether it was rejected as a duplicate.
+     */
+    public void recordClient(String client, boolean rejectedAsDuplicate) {
+        if (!enabled) {
+            return;
+        }
+        clients.add(client);
+        if (rejectedAsDuplicate) {
+            rejectedClients.add(client);
+        }
+    }
+
+    /**
+     * Forgets the deal IDs rejected as duplicates, e.g. after deals were removed
+     * directly in the database.
+     */
+    public void forgetDuplicates() {
+        rejectedDealIds.clear();
+    }
+
+    /**
+     * The {@code limit} most submitted deal IDs, the {@code limit} clients submitting
+     * most and the {@code limit} clients rejected most as duplicates.
+     */
+    public Report report(int limit) {
+        return new Report(duplicates.sum(), shortCircuited.sum(), rememberedDuplicates(),
+                dealIds.top(limit), clients.top(limit), rejectedClients.top(limit));
+    }
+
+    private int rememberedDuplicates() {
+        return rejectedDealIds.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("fxdeals.submit.duplicates", duplicates, LongAdder::sum)
+                .description("Deal submissions rejected as duplicates")
+                .register(registry);
+        FunctionCounter.builder("fxdeals.submit.duplicates.short.circuited", shortCircuited, LongAdder::sum)
+                .description("Duplicate deal submissions rejected without querying the database")
+                .register(registry);
+        Gauge.builder("fxdeals.submit.duplicates.remembered", this, DuplicateGuard::rememberedDuplicates)
+                .description("Deal IDs remembered as duplicates")
+                .register(registry);
+    }
+
+    private record Rejection(String dealUniqueId, Long rejectedAt) {
+    }
+
+    /**
+     * Duplicate counts and top offenders. Counts of the top lists decay, so they
+     * reflect recent submissions; each is over-estimated by at most its error.
+     */
+    public record Report(long duplicates, long shortCircuited, int rememberedDuplicates,
+                         List<SpaceSavingCounter.HeavyHitter> topDealIds,
+                         List<SpaceSavingCounter.HeavyHitter> topClients,
+                         List<SpaceSavingCounter.HeavyHitter> topRejectedClients) {
+    }
+}
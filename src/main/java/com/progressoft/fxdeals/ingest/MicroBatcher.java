@@ -0,0 +1,271 @@
+package com.progressoft.fxdeals.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent calls into batches. A caller {@link #submit submits} an item
+ * to a lane and parks; the lane's flusher thread takes up to the current batch
+ * limit, or whatever arrived within the maximum delay of the first item, and hands
+ * the batch to the handler, which completes every submission with its own result
+ * or failure.
+ *
+ * <p>A caller waits for its batch for the maximum wait at most. A submission still
+ * queued by then is withdrawn, and the caller told it was {@link NotHandledException
+ * not handled}, so that it can be saved some other way; one whose batch is being
+ * handled fails with an {@link OutcomeUnknownException}. Submissions made or still
+ * queued once the batcher is closed are not handled either. Whatever the handler
+ * throws, errors included, fails its batch and leaves the lane running.
+ *
+ * <p>The batch limit of each lane adapts to how long its batches take: it grows
+ * while full batches are handled within the target latency and shrinks in
+ * proportion when a batch takes longer, so batches stay as large as the database
+ * absorbs without parking callers behind ever slower flushes.
+ */
+public class MicroBatcher<T, R> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private static final int INITIAL_LIMIT = 8;
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long targetLatencyNanos;
+    private final long maxWaitNanos;
+    private final BatchHandler<T, R> handler;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public MicroBatcher(String name, int maxBatchSize, Duration maxDelay, Duration targetLatency, Duration maxWait,
+                        BatchHandler<T, R> handler) {
+        if (maxBatchSize < 1 || maxDelay.isNegative() || targetLatency.isNegative() || targetLatency.isZero()
+                || maxWait.isNegative() || maxWait.isZero()) {
+            throw new IllegalArgumentException("Batch size, target latency and maximum wait must be positive, "
+                    + "delay not negative");
+        }
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.handler = handler;
+    }
+
+    /**
+     * Queues {@code item} on {@code lane} and waits until its batch has been handled.
+     * Items of one lane are handled together; items of different lanes never are.
+     *
+     * @return the result the handler completed the submission with
+     * @throws NotHandledException if the submission was still queued after the
+     *                             maximum wait, and has been withdrawn, or the
+     *                             batcher is closed
+     * @throws OutcomeUnknownException if its batch was still being handled after
+     *                                 the maximum wait
+     * @throws RuntimeException the failure the handler completed the submission with
+     */
+    public R submit(String lane, T item) {
+        if (closed) {
+            throw new NotHandledException(name + " is closed");
+        }
+        Submission<T, R> submission = new Submission<>(item);
+        BlockingQueue<Submission<T, R>> queue = lanes.computeIfAbsent(lane, Lane::new).queue;
+        queue.add(submission);
+        if (closed) {
+            // The flusher may have drained its queue for the last time already
+            submission.fail(new NotHandledException(name + " is closed"));
+        }
+        try {
+            return submission.result.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(submission)) {
+                throw new NotHandledException(name + " did not take the submission within "
+                        + Duration.ofNanos(maxWaitNanos));
+            }
+            throw new OutcomeUnknownException(name + " did not finish the batch of the submission within "
+                    + Duration.ofNanos(maxWaitNanos) + ", its outcome is unknown");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(name + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Batch limit, batches and submissions per lane.
+     */
+    public Map<String, LaneStats> stats() {
+        Map<String, LaneStats> stats = new TreeMap<>();
+        lanes.forEach((laneName, lane) ->
+                stats.put(laneName, new LaneStats(lane.limit, lane.batches.sum(), lane.submissions.sum())));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        lanes.values().forEach(lane -> lane.thread.interrupt());
+    }
+
+    @FunctionalInterface
+    public interface BatchHandler<T, R> {
+
+        /**
+         * Handles the submissions of one batch, in the order they were submitted, and
+         * completes each of them. Submissions left incomplete fail; if the handler
+         * throws, all incomplete submissions fail with its exception.
+         */
+        void handle(String lane, List<Submission<T, R>> batch);
+    }
+
+    public static final class Submission<T, R> {
+
+        private final T item;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        private Submission(T item) {
+            this.item = item;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public void complete(R value) {
+            result.complete(value);
+        }
+
+        public void fail(RuntimeException failure) {
+            result.completeExceptionally(failure);
+        }
+
+        public boolean isDone() {
+            return result.isDone();
+        }
+    }
+
+    /**
+     * A submission withdrawn before its lane took it, so never handled.
+     */
+    public static final class NotHandledException extends IllegalStateException {
+
+        public NotHandledException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A submission whose batch was still being handled when its caller stopped
+     * waiting, so it may or may not have succeeded.
+     */
+    public static final class OutcomeUnknownException extends IllegalStateException {
+
+        public OutcomeUnknownException(String message) {
+            super(message);
+        }
+    }
+
+    public record LaneStats(int batchLimit, long batches, long submissions) {
+    }
+
+    private final class Lane implements Runnable {
+
+        private final String laneName;
+        private final BlockingQueue<Submission<T, R>> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder submissions = new LongAdder();
+        private volatile int limit = Math.min(INITIAL_LIMIT, maxBatchSize);
+
+        private Lane(String laneName) {
+            this.laneName = laneName;
+            this.thread = new Thread(this, name + "-" + laneName);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            List<Submission<T, R>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                while (!closed) {
+                    collect(batch);
+                    flush(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            }
+            NotHandledException failure = new NotHandledException(name + " is closed");
+            batch.forEach(submission -> submission.fail(failure));
+            queue.forEach(submission -> submission.fail(failure));
+        }
+
+        private void collect(List<Submission<T, R>> batch) throws InterruptedException {
+            batch.add(queue.take());
+            int batchLimit = limit;
+            queue.drainTo(batch, batchLimit - batch.size());
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < batchLimit) {
+                long remaining = deadline - System.nanoTime();
+                Submission<T, R> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+                queue.drainTo(batch, batchLimit - batch.size());
+            }
+        }
+
+        private void flush(List<Submission<T, R>> batch) {
+            batches.increment();
+            submissions.add(batch.size());
+            long started = System.nanoTime();
+            try {
+                handler.handle(laneName, List.copyOf(batch));
+            } catch (RuntimeException e) {
+                batch.forEach(submission -> submission.fail(e));
+            } catch (Throwable e) {
+                logger.error("{} lane {} failed handling a batch of {}", name, laneName, batch.size(), e);
+                IllegalStateException failure = new IllegalStateException(name + " failed handling the batch", e);
+                batch.forEach(submission -> submission.fail(failure));
+            }
+            long elapsed = System.nanoTime() - started;
+
+            IllegalStateException incomplete = new IllegalStateException(name + " left a submission incomplete");
+            batch.forEach(submission -> submission.fail(incomplete));
+            adapt(batch.size(), elapsed);
+        }
+
+        private void adapt(int size, long elapsedNanos) {
+            int previous = limit;
+            if (elapsedNanos > targetLatencyNanos) {
+                limit = Math.max(1, (int) (previous * ((double) targetLatencyNanos / elapsedNanos)));
+            } else if (size >= previous) {
+                limit = Math.min(maxBatchSize, previous + Math.max(1, previous / 4));
+            }
+            if (limit != previous && logger.isDebugEnabled()) {
+                logger.debug("{} lane {}: batch of {} took {} µs, batch limit {} -> {}",
+                        name, laneName, size, elapsedNanos / 1_000, previous, limit);
+            }
+        }
+    }
+}
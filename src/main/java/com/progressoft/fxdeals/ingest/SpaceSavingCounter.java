@@ -0,0 +1,222 @@
+package com.progressoft.fxdeals.ingest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate counts of the most frequent keys of a stream, kept in a fixed number
+ * of counters (the Space-Saving algorithm). A key seen while all counters are taken
+ * replaces the key with the smallest count and inherits that count as its error, so
+ * every key counted more often than {@code total / capacity} times is always
+ * present, and its count is over-estimated by at most its error.
+ *
+ * <p>Counters are kept in buckets of equal count, linked in ascending order (the
+ * Stream-Summary structure), so that both counting a key and replacing the smallest
+ * one take constant time whatever the capacity.
+ *
+ * <p>Counts decay by half every {@code halfLife}, so the top keys are those frequent
+ * recently.
+ */
+public class SpaceSavingCounter {
+
+    private final int capacity;
+    private final long halfLifeNanos;
+    private final Map<String, Counter> counters;
+    private Bucket smallest;
+    private long nextDecay;
+
+    public SpaceSavingCounter(int capacity, Duration halfLife) {
+        if (capacity < 1 || halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("Capacity and half-life must be positive");
+        }
+        this.capacity = capacity;
+        this.halfLifeNanos = halfLife.toNanos();
+        this.counters = new HashMap<>(capacity * 2);
+        this.nextDecay = System.nanoTime() + halfLifeNanos;
+    }
+
+    public synchronized void add(String key) {
+        decayIfDue();
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            increment(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, 0);
+            counters.put(key, counter);
+            Bucket ones = smallest != null && smallest.count == 1 ? smallest : insertBefore(smallest, 1);
+            ones.add(counter);
+            return;
+        }
+        Counter replaced = smallest.first;
+        counters.remove(replaced.key);
+        replaced.key = key;
+        replaced.error = replaced.bucket.count;
+        counters.put(key, replaced);
+        increment(replaced);
+    }
+
+    /**
+     * Returns up to {@code limit} keys, most frequent first.
+     */
+    public synchronized List<HeavyHitter> top(int limit) {
+        decayIfDue();
+        List<HeavyHitter> top = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            top.add(new HeavyHitter(counter.key, counter.bucket.count, counter.error));
+        }
+        top.sort(Comparator.comparingLong(HeavyHitter::count).reversed().thenComparing(HeavyHitter::key));
+        return top.size() > limit ? top.subList(0, limit) : top;
+    }
+
+    private void increment(Counter counter) {
+        Bucket bucket = counter.bucket;
+        long count = bucket.count + 1;
+        Bucket next = bucket.next != null && bucket.next.count == count ? bucket.next : insertAfter(bucket, count);
+        bucket.remove(counter);
+        next.add(counter);
+        if (bucket.first == null) {
+            unlink(bucket);
+        }
+    }
+
+    private Bucket insertBefore(Bucket successor, long count) {
+        Bucket bucket = new Bucket(count);
+        bucket.next = successor;
+        if (successor != null) {
+            successor.previous = bucket;
+        }
+        smallest = bucket;
+        return bucket;
+    }
+
+    private static Bucket insertAfter(Bucket predecessor, long count) {
+        Bucket bucket = new Bucket(count);
+        bucket.previous = predecessor;
+        bucket.next = predecessor.next;
+        if (predecessor.next != null) {
+            predecessor.next.previous = bucket;
+        }
+        predecessor.next = bucket;
+        return bucket;
+    }
+
+    private void unlink(Bucket bucket) {
+        if (bucket.previous != null) {
+            bucket.previous.next = bucket.next;
+        } else {
+            smallest = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.previous = bucket.previous;
+        }
+    }
+
+    /**
+     * Halves every count and error once per half-life passed, dropping counters that
+     * reach zero, and rebuilds the buckets.
+     */
+    private void decayIfDue() {
+        long now = System.nanoTime();
+        if (now - nextDecay < 0) {
+            return;
+        }
+        int halvings = 0;
+        // Shifting a long by 63 clears every count already
+        while (now - nextDecay >= 0 && halvings < Long.SIZE - 1) {
+            nextDecay += halfLifeNanos;
+            halvings++;
+        }
+        if (now - nextDecay >= 0) {
+            nextDecay = now + halfLifeNanos;
+        }
+
+        List<Counter> remaining = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            long count = counter.bucket.count >>> halvings;
+            if (count > 0) {
+                counter.decayedCount = count;
+                counter.error >>>= halvings;
+                remaining.add(counter);
+            }
+        }
+        counters.clear();
+        smallest = null;
+        remaining.sort(Comparator.comparingLong(counter -> counter.decayedCount));
+        Bucket last = null;
+        for (Counter counter : remaining) {
+            if (last == null || last.count != counter.decayedCount) {
+                last = last == null ? insertBefore(null, counter.decayedCount) : insertAfter(last, counter.decayedCount);
+            }
+            counter.previous = null;
+            counter.next = null;
+            last.add(counter);
+            counters.put(counter.key, counter);
+        }
+    }
+
+    /**
+     * A frequent key. Its true recent count lies between {@code count - error} and
+     * {@code count}.
+     */
+    public record HeavyHitter(String key, long count, long error) {
+    }
+
+    private static final class Counter {
+
+        private String key;
+        private long error;
+        private long decayedCount;
+        private Bucket bucket;
+        private Counter previous;
+        private Counter next;
+
+        private Counter(String key, long error) {
+            this.key = key;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The counters of one count, in a doubly linked list.
+     */
+    private static final class Bucket {
+
+        private final long count;
+        private Bucket previous;
+        private Bucket next;
+        private Counter first;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+
+        private void add(Counter counter) {
+            counter.bucket = this;
+            counter.previous = null;
+            counter.next = first;
+            if (first != null) {
+                first.previous = counter;
+            }
+            first = counter;
+        }
+
+        private void remove(Counter counter) {
+            if (counter.previous != null) {
+                counter.previous.next = counter.next;
+            } else {
+                first = counter.next;
+            }
+            if (counter.next != null) {
+                counter.next.previous = counter.previous;
+            }
+            counter.previous = null;
+            counter.next = null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.progressoft.fxdeals.ingest;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts deal submissions per client for the {@link DuplicateGuard}, and which of
+ * them were rejected as duplicates. A client is identified by the configured
+ * header, or by its remote address when the header is absent.
+ */
+public class SubmissionClientFilter extends OncePerRequestFilter {
+
+    private final DuplicateGuard duplicateGuard;
+    private final String clientHeader;
+
+    public SubmissionClientFilter(DuplicateGuard duplicateGuard, String clientHeader) {
+        this.duplicateGuard = duplicateGuard;
+        this.clientHeader = clientHeader;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            duplicateGuard.recordClient(clientOf(request), response.getStatus() == HttpStatus.CONFLICT.value());
+        }
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client.trim();
+    }
+}
@@ -0,0 +1,24 @@
+package com.progressoft.fxdeals.model.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AggregateRequestDTO {
+    
+    @NotEmpty(message = "At least one window is required")
+    private List<@Valid @NotNull AggregateWindowDTO> windows;
+    
+    /**
+     * How long to wait for totals; windows not totalled by then are returned
+     * incomplete. The configured default applies when absent.
+     */
+    @Positive(message = "Time budget must be positive")
+    private Long timeBudgetMillis;
+}
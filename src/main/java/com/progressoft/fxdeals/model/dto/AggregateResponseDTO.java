@@ -0,0 +1,17 @@
+package com.progressoft.fxdeals.model.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AggregateResponseDTO {
+    
+    private String strategy;
+    private boolean complete;
+    private long elapsedMillis;
+    private List<WindowTotalsDTO> windows;
+}
@@ -0,0 +1,30 @@
+package com.progressoft.fxdeals.model.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A window to total deals over: deals with a deal timestamp from {@code startTime},
+ * inclusive, to {@code endTime}, exclusive, of one currency pair, or of every pair
+ * when no pair is given.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AggregateWindowDTO {
+    
+    @Pattern(regexp = "^[A-Za-z]{3}$", message = "From currency must be a valid 3-letter ISO currency code")
+    private String fromCurrency;
+    
+    @Pattern(regexp = "^[A-Za-z]{3}$", message = "To currency must be a valid 3-letter ISO currency code")
+    private String toCurrency;
+    
+    @NotNull(message = "Window start time is required")
+    private LocalDateTime startTime;
+    
+    @NotNull(message = "Window end time is required")
+    private LocalDateTime endTime;
+}
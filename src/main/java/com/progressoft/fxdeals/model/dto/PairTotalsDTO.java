@@ -0,0 +1,18 @@
+package com.progressoft.fxdeals.model.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PairTotalsDTO {
+    
+    private String fromCurrency;
+    private String toCurrency;
+    private long dealCount;
+    private BigDecimal totalAmount;
+    private BigDecimal totalUsdNotional;
+}
@@ -0,0 +1,20 @@
+package com.progressoft.fxdeals.model.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WindowTotalsDTO {
+    
+    private String fromCurrency;
+    private String toCurrency;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private boolean complete;
+    private List<PairTotalsDTO> pairs;
+}
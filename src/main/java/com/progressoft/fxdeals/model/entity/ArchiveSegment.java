@@ -0,0 +1,55 @@
+package com.progressoft.fxdeals.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file of archived deals. Segments are found by the deal timestamps they span;
+ * each holds consecutive deals in timestamp order, and spans may overlap when deals
+ * with old timestamps arrive after their period was archived.
+ */
+@Entity
+@Table(name = "deal_archive_segments", indexes = {
+    @Index(name = "idx_archive_segment_timestamps", columnList = "minTimestamp, maxTimestamp")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveSegment {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "file_name", nullable = false, unique = true, length = 255)
+    private String fileName;
+    
+    @Column(name = "min_timestamp", nullable = false)
+    private LocalDateTime minTimestamp;
+    
+    @Column(name = "max_timestamp", nullable = false)
+    private LocalDateTime maxTimestamp;
+    
+    @Column(name = "row_count", nullable = false)
+    private int rowCount;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public ArchiveSegment(String fileName, LocalDateTime minTimestamp, LocalDateTime maxTimestamp,
+                          int rowCount, long sizeBytes) {
+        this.fileName = fileName;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.rowCount = rowCount;
+        this.sizeBytes = sizeBytes;
+    }
+}
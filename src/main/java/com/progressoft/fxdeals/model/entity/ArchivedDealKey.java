@@ -0,0 +1,25 @@
+package com.progressoft.fxdeals.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The segment holding an archived deal, so archived deals can still be looked up
+ * and rejected as duplicates by their unique ID.
+ */
+@Entity
+@Table(name = "deal_archive_keys", indexes = {
+    @Index(name = "idx_archive_key_segment", columnList = "segmentId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedDealKey {
+    
+    @Id
+    @Column(name = "deal_unique_id", nullable = false, length = 100)
+    private String dealUniqueId;
+    
+    @Column(name = "segment_id", nullable = false)
+    private Long segmentId;
+}
@@ -3,6 +3,7 @@ package com.progressoft.fxdeals.model.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import com.progressoft.fxdeals.storage.DealKeys;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
@@ -20,6 +21,8 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(of = "dealUniqueId")
 public class Deal {
     
+    public static final String DEAL_KEY_ATTRIBUTE = "dealKey";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -51,10 +54,31 @@ public class Deal {
     @Digits(integer = 15, fraction = 4, message = "Deal amount must have at most 15 integer digits and 4 decimal places")
     private BigDecimal dealAmount;
     
+    @Column(name = "usd_notional", precision = 21, scale = 4)
+    private BigDecimal usdNotional;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
+    // Persisted by the compact mapping only, see DealStorageLayout. Hibernate checks
+    // the attributes of a mapping file against public getters (HHH000207), so the
+    // getter stays public; the mapping itself uses field access.
+    @Transient
+    @Setter(AccessLevel.NONE)
+    private Long dealKey;
+    
+    /**
+     * Pre-persist callback of the compact mapping. Its XML metadata replaces the
+     * annotations of this class, {@code @CreationTimestamp} included.
+     */
+    void prepareCompactInsert() {
+        dealKey = DealKeys.of(dealUniqueId);
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+    
     public void setFromCurrency(String fromCurrency) {
         this.fromCurrency = fromCurrency != null ? fromCurrency.toUpperCase() : null;
     }
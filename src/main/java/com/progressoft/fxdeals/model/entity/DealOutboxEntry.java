@@ -0,0 +1,42 @@
+package com.progressoft.fxdeals.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A submitted deal waiting to be relayed to feed subscribers. Entries are written in
+ * the submitting transaction, so they exist exactly for the committed deals; their
+ * ID is the feed sequence number.
+ */
+@Entity
+@Table(name = "deal_outbox", indexes = {
+    @Index(name = "idx_deal_outbox_created_at", columnList = "createdAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DealOutboxEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "deal_unique_id", nullable = false, length = 100)
+    private String dealUniqueId;
+    
+    @Column(name = "payload", nullable = false, length = 2000)
+    private String payload;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public DealOutboxEntry(String dealUniqueId, String payload) {
+        this.dealUniqueId = dealUniqueId;
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,67 @@
+package com.progressoft.fxdeals.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event timing one stage of a deal submission. A batched submission
+ * records each stage once for the whole batch, without a deal ID or pair.
+ */
+@Name(DealSubmitStageEvent.NAME)
+@Label("Deal Submit Stage")
+@Category({"FX Deals", "Submission"})
+@Description("Duration of a stage of saving a submitted deal")
+@StackTrace(false)
+public class DealSubmitStageEvent extends Event {
+
+    public static final String NAME = "com.progressoft.fxdeals.DealSubmitStage";
+
+    public static final String DEDUPE = "dedupe";
+    public static final String VALIDATE = "validate";
+    public static final String PERSIST = "persist";
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Deal Unique ID")
+    private String dealUniqueId;
+
+    @Label("Currency Pair")
+    private String currencyPair;
+
+    @Label("Deals")
+    private int deals;
+
+    /**
+     * Begins timing {@code stage} of a single deal; {@link #commit() commit} the event
+     * when the stage is done.
+     */
+    public static DealSubmitStageEvent start(String stage, String dealUniqueId, String fromCurrency, String toCurrency) {
+        DealSubmitStageEvent event = new DealSubmitStageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage;
+            event.dealUniqueId = dealUniqueId;
+            event.currencyPair = fromCurrency + "/" + toCurrency;
+            event.deals = 1;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Begins timing {@code stage} of a batch of {@code deals}.
+     */
+    public static DealSubmitStageEvent start(String stage, int deals) {
+        DealSubmitStageEvent event = new DealSubmitStageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage;
+            event.deals = deals;
+            event.begin();
+        }
+        return event;
+    }
+}
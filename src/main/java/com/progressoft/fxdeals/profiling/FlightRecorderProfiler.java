@@ -0,0 +1,298 @@
+package com.progressoft.fxdeals.profiling;
+
+import com.progressoft.fxdeals.config.ProfilingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Flight recordings of this instance.
+ *
+ * <p>Recordings started on demand use the JDK's {@code profile} settings, with every
+ * deal submission stage recorded and database socket reads and writes from 1 ms.
+ * They stop after their duration, or when stopped, and are written to the
+ * recordings directory.
+ *
+ * <p>A continuous recording with the JDK's low-overhead {@code default} settings,
+ * plus submission stages slower than a threshold, keeps the last few minutes on
+ * disk. It is dumped to the recordings directory when the 99th percentile latency
+ * of deal submissions crosses the configured threshold, at most once per cooldown,
+ * so a latency spike can be examined after the fact.
+ */
+public class FlightRecorderProfiler implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderProfiler.class);
+
+    public static final String CONTINUOUS = "continuous";
+
+    private static final Pattern RECORDING_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ProfilingProperties properties;
+    private final Timer submitLatency;
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile Recording continuous;
+    private volatile Dump lastDump;
+    private long checkedCount;
+    private long lastAutomaticDump;
+
+    public FlightRecorderProfiler(ProfilingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.submitLatency = Timer.builder("fxdeals.submit.latency")
+                .description("Time taken to answer deal submissions")
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(properties.getLatencyWindow())
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flight-recorder-trigger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!properties.isContinuous()) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("Flight recorder is not available, no continuous recording");
+            return;
+        }
+        Recording recording = new Recording(settings("default", properties.getSlowStageThreshold()));
+        recording.setName("fxdeals-" + CONTINUOUS);
+        recording.setToDisk(true);
+        recording.setMaxAge(properties.getContinuousMaxAge());
+        recording.setMaxSize(properties.getContinuousMaxSize().toBytes());
+        recording.start();
+        continuous = recording;
+        logger.info("Continuous flight recording started, dumped when submission p99 exceeds {} ms",
+                properties.getP99Threshold().toMillis());
+
+        long interval = properties.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkLatency, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records how long a deal submission took to answer.
+     */
+    public void recordSubmission(long nanos) {
+        submitLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts a recording with the tuned profile. It stops after {@code duration}, or
+     * the default duration, and is then written to the recordings directory.
+     *
+     * @throws IllegalArgumentException if the name is invalid
+     * @throws IllegalStateException if a recording of that name is running, or the
+     *                               flight recorder is not available
+     */
+    public RecordingInfo start(@Nullable String name, @Nullable Duration duration) {
+        String recordingName = name != null ? name : "fxdeals-" + LocalDateTime.now().format(FILE_TIMESTAMP);
+        if (!RECORDING_NAME.matcher(recordingName).matches() || recordingName.equals(CONTINUOUS)) {
+            throw new IllegalArgumentException("Invalid recording name: " + recordingName);
+        }
+        if (duration != null && (duration.isNegative() || duration.isZero())) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("Flight recorder is not available");
+        }
+
+        // Finished recordings are on disk already
+        recordings.values().removeIf(finished -> {
+            if (finished.getState() == RecordingState.STOPPED || finished.getState() == RecordingState.CLOSED) {
+                finished.close();
+                return true;
+            }
+            return false;
+        });
+
+        Recording recording = new Recording(settings("profile", Duration.ZERO));
+        recording.setName(recordingName);
+        recording.setToDisk(true);
+        recording.setDuration(duration != null ? duration : properties.getDefaultDuration());
+        Recording running = recordings.compute(recordingName, (key, previous) -> {
+            if (previous != null && previous.getState() == RecordingState.RUNNING) {
+                recording.close();
+                throw new IllegalStateException("Recording " + key + " is already running");
+            }
+            return recording;
+        });
+        try {
+            running.setDestination(file(recordingName));
+        } catch (IOException e) {
+            recordings.remove(recordingName);
+            running.close();
+            throw new UncheckedIOException(e);
+        }
+        running.start();
+        logger.info("Flight recording {} started for {}", recordingName, running.getDuration());
+        return info(recordingName, running);
+    }
+
+    /**
+     * Stops the recording {@code name} and writes it to the recordings directory. The
+     * continuous recording is dumped instead, and keeps running.
+     *
+     * @throws IllegalArgumentException if there is no such recording
+     */
+    public RecordingInfo stop(String name) {
+        if (name.equals(CONTINUOUS)) {
+            Recording recording = continuous;
+            if (recording == null) {
+                throw new IllegalArgumentException("No continuous recording");
+            }
+            dumpContinuous("requested");
+            return info(CONTINUOUS, recording);
+        }
+        Recording recording = recordings.get(name);
+        if (recording == null) {
+            throw new IllegalArgumentException("No recording " + name);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            logger.info("Flight recording {} stopped and written to {}", name, recording.getDestination());
+        }
+        return info(name, recording);
+    }
+
+    public Status status() {
+        List<RecordingInfo> onDemand = new ArrayList<>();
+        recordings.forEach((name, recording) -> onDemand.add(info(name, recording)));
+        Recording recording = continuous;
+        return new Status(FlightRecorder.isAvailable(),
+                recording != null ? info(CONTINUOUS, recording) : null,
+                p99Millis(), properties.getP99Threshold().toMillis(), lastDump, onDemand);
+    }
+
+    private void checkLatency() {
+        try {
+            long count = submitLatency.count();
+            long samples = count - checkedCount;
+            checkedCount = count;
+            double p99 = p99Millis();
+            if (samples < properties.getMinSamples() || p99 <= properties.getP99Threshold().toMillis()) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (lastAutomaticDump != 0 && now - lastAutomaticDump < properties.getDumpCooldown().toNanos()) {
+                return;
+            }
+            lastAutomaticDump = now;
+            logger.warn("Deal submission p99 is {} ms over the last {}, dumping the continuous flight recording",
+                    Math.round(p99), properties.getLatencyWindow());
+            dumpContinuous("p99 " + Math.round(p99) + " ms");
+        } catch (RuntimeException e) {
+            logger.error("Checking submission latency failed", e);
+        }
+    }
+
+    private synchronized void dumpContinuous(String reason) {
+        Path file;
+        try {
+            file = file(CONTINUOUS);
+            continuous.dump(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastDump = new Dump(file.toString(), Instant.now(), reason);
+        logger.info("Continuous flight recording dumped to {} ({})", file, reason);
+    }
+
+    private double p99Millis() {
+        for (ValueAtPercentile percentile : submitLatency.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    private Path file(String name) throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        return properties.getDirectory().resolve(name + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+    }
+
+    /**
+     * The JDK settings {@code base}, with deal submission stages recorded from
+     * {@code stageThreshold}. Recordings of the tuned profile also keep database
+     * round trips from 1 ms.
+     */
+    private static Map<String, String> settings(String base, Duration stageThreshold) {
+        Map<String, String> settings;
+        try {
+            settings = new HashMap<>(Configuration.getConfiguration(base).getSettings());
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot read flight recorder settings " + base, e);
+        }
+        settings.put(DealSubmitStageEvent.NAME + "#enabled", "true");
+        settings.put(DealSubmitStageEvent.NAME + "#threshold", stageThreshold.toMillis() + " ms");
+        if (base.equals("profile")) {
+            settings.put("jdk.SocketRead#threshold", "1 ms");
+            settings.put("jdk.SocketWrite#threshold", "1 ms");
+        }
+        return settings;
+    }
+
+    private static RecordingInfo info(String name, Recording recording) {
+        Path destination = recording.getDestination();
+        return new RecordingInfo(name, recording.getState().name(), recording.getStartTime(),
+                recording.getDuration(), destination != null ? destination.toString() : null, recording.getSize());
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        recordings.values().forEach(Recording::close);
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+
+    public record RecordingInfo(String name, String state, Instant startTime, Duration duration,
+                                String destination, long bytes) {
+    }
+
+    public record Dump(String file, Instant time, String reason) {
+    }
+
+    /**
+     * Recordings of this instance, the current submission p99 against the dump
+     * threshold, and the last dump of the continuous recording.
+     */
+    public record Status(boolean available, RecordingInfo continuous, double p99Millis, long p99ThresholdMillis,
+                         Dump lastDump, List<RecordingInfo> recordings) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.progressoft.fxdeals.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Times deal submissions as clients see them, whatever their outcome, for the
+ * latency trigger of the {@link FlightRecorderProfiler}.
+ */
+public class SubmitLatencyFilter extends OncePerRequestFilter {
+
+    private final FlightRecorderProfiler profiler;
+
+    public SubmitLatencyFilter(FlightRecorderProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            profiler.recordSubmission(System.nanoTime() - started);
+        }
+    }
+}
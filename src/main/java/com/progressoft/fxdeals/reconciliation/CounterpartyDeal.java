@@ -0,0 +1,58 @@
+package com.progressoft.fxdeals.reconciliation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * One confirmation row of a counterparty file:
+ * {@code dealUniqueId,fromCurrency,toCurrency,dealTimestamp,dealAmount}.
+ */
+record CounterpartyDeal(String dealUniqueId, String fromCurrency, String toCurrency,
+                        LocalDateTime dealTimestamp, BigDecimal dealAmount, long line) {
+
+    static final String HEADER = "dealUniqueId,fromCurrency,toCurrency,dealTimestamp,dealAmount";
+
+    /**
+     * Parses a row; timestamps may use a space or {@code T} between date and time.
+     *
+     * @throws IllegalArgumentException if the row is malformed
+     */
+    static CounterpartyDeal parse(String row, long line) {
+        String[] fields = row.split(",", -1);
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("expected 5 fields but got " + fields.length);
+        }
+        String dealUniqueId = fields[0].strip();
+        if (dealUniqueId.isEmpty()) {
+            throw new IllegalArgumentException("deal unique ID is empty");
+        }
+        try {
+            return new CounterpartyDeal(dealUniqueId,
+                    fields[1].strip().toUpperCase(),
+                    fields[2].strip().toUpperCase(),
+                    LocalDateTime.parse(fields[3].strip().replace(' ', 'T')),
+                    new BigDecimal(fields[4].strip()),
+                    line);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(dealUniqueId);
+        out.writeUTF(fromCurrency);
+        out.writeUTF(toCurrency);
+        out.writeUTF(dealTimestamp.toString());
+        out.writeUTF(dealAmount.toPlainString());
+        out.writeLong(line);
+    }
+
+    static CounterpartyDeal readFrom(DataInput in) throws IOException {
+        return new CounterpartyDeal(in.readUTF(), in.readUTF(), in.readUTF(),
+                LocalDateTime.parse(in.readUTF()), new BigDecimal(in.readUTF()), in.readLong());
+    }
+}
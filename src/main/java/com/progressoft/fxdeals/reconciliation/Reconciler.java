@@ -0,0 +1,567 @@
+package com.progressoft.fxdeals.reconciliation;
+
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.config.ReconciliationProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles a counterparty file against the {@code deals} table without a query
+ * per row.
+ *
+ * <p>The file is read twice. The first pass samples deal IDs to cut the key space
+ * into ranges of roughly {@code rangeRows} rows. The second pass partitions every row
+ * by the shard its deal ID hashes to and by key range, and spills it to that
+ * bucket's file. Buckets are then matched in parallel: each sorts its rows and merges
+ * them with a keyset-ordered scan of the same key range on its shard.
+ *
+ * <p>Rows whose deal is not in the {@code deals} table are looked up in the
+ * {@link DealArchive} of the shard, and compared with the archived deal if found.
+ * Archived deals missing from the file are not reported, as the archive is not
+ * scanned by key range.
+ *
+ * <p>The merge relies on the database ordering {@code deal_unique_id} the way Java
+ * orders strings, which holds for binary collations (PostgreSQL {@code C}, H2,
+ * MySQL {@code utf8mb4_bin}). A run against a column that sorts differently fails
+ * instead of reporting false breaks.
+ */
+public class Reconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(Reconciler.class);
+
+    private static final int SAMPLE_SIZE = 100_000;
+    private static final int MAX_RANGES = 4096;
+    private static final int SPILL_CHUNK = 1 << 16;
+    private static final int ARCHIVE_LOOKUP_BATCH = 1000;
+
+    private static final Comparator<CounterpartyDeal> BY_ID_THEN_LINE =
+            Comparator.comparing(CounterpartyDeal::dealUniqueId).thenComparingLong(CounterpartyDeal::line);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final DealShardRouter dealShardRouter;
+    private final DealArchive dealArchive;
+    private final ReconciliationProperties properties;
+    private final RowMapper<StoredDeal> storedDealMapper;
+
+    public Reconciler(DataSource dataSource, PlatformTransactionManager transactionManager,
+                      DealShardRouter dealShardRouter, DealArchive dealArchive, DealStorageLayout layout,
+                      ReconciliationProperties properties) {
+        if (properties.getParallelism() < 1 || properties.getRangeRows() < 1 || properties.getPageSize() < 1) {
+            throw new IllegalArgumentException("Reconciliation parallelism, range rows and page size must be positive");
+        }
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.dealShardRouter = dealShardRouter;
+        this.dealArchive = dealArchive;
+        this.properties = properties;
+        this.storedDealMapper = (rs, rowNum) -> new StoredDeal(
+                rs.getString("deal_unique_id"),
+                layout.currency(rs.getObject("from_currency")),
+                layout.currency(rs.getObject("to_currency")),
+                rs.getObject("deal_timestamp", LocalDateTime.class),
+                layout.amount(rs.getObject("deal_amount")));
+    }
+
+    /**
+     * Reconciles {@code file} against our deals and writes the breaks to
+     * {@code breaksFile}. Deals missing from the file are only reported when their
+     * timestamp falls within {@code [from, to)}; either bound may be {@code null}.
+     */
+    public ReconciliationReport reconcile(Path file, @Nullable LocalDateTime from, @Nullable LocalDateTime to,
+                                          Path breaksFile) throws IOException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.nanoTime();
+        List<String> partitions = dealShardRouter.isSharded()
+                ? dealShardRouter.getShards() : Collections.singletonList(null);
+
+        Files.createDirectories(properties.getWorkDirectory());
+        Path workDirectory = Files.createTempDirectory(properties.getWorkDirectory(), "fxdeals-reconciliation-");
+        try {
+            Sample sample = sample(file);
+            String[] boundaries = boundaries(sample, partitions.size());
+            List<Bucket> buckets = new ArrayList<>();
+            for (int range = 0; range <= boundaries.length; range++) {
+                for (String partition : partitions) {
+                    int index = buckets.size();
+                    buckets.add(new Bucket(partition,
+                            range == 0 ? null : boundaries[range - 1],
+                            range == boundaries.length ? null : boundaries[range],
+                            workDirectory.resolve("bucket-" + index + ".bin"),
+                            workDirectory.resolve("bucket-" + index + ".csv")));
+                }
+            }
+
+            Path unreadable = workDirectory.resolve("unreadable.csv");
+            Tally total = spill(file, partitions, boundaries, buckets, unreadable);
+            for (Tally tally : matchAll(buckets, from, to)) {
+                total.add(tally);
+            }
+            writeBreaks(breaksFile, unreadable, buckets);
+
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Reconciled {} rows of {} over {} buckets in {} ms: {} matched, breaks {}",
+                    total.rows, file.getFileName(), buckets.size(), millis, total.matched, total.breaks);
+            return new ReconciliationReport(file.getFileName().toString(), startedAt, millis, total.rows,
+                    total.matched, total.breaks, breaksFile.toString(), buckets.size());
+        } finally {
+            deleteRecursively(workDirectory);
+        }
+    }
+
+    private Sample sample(Path file) throws IOException {
+        // Reservoir sample, so every row is equally likely to be picked in one pass
+        List<String> reservoir = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(file.getFileName().hashCode());
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String row;
+            long line = 0;
+            while ((row = reader.readLine()) != null) {
+                line++;
+                String dealUniqueId = leadingField(row);
+                if (dealUniqueId.isEmpty() || (line == 1 && row.startsWith(CounterpartyDeal.HEADER))) {
+                    continue;
+                }
+                rows++;
+                if (reservoir.size() < SAMPLE_SIZE) {
+                    reservoir.add(dealUniqueId);
+                } else {
+                    long slot = random.nextLong(rows);
+                    if (slot < SAMPLE_SIZE) {
+                        reservoir.set((int) slot, dealUniqueId);
+                    }
+                }
+            }
+        }
+        return new Sample(rows, reservoir);
+    }
+
+    private String[] boundaries(Sample sample, int partitions) {
+        long rowsPerPartition = Math.max(1, sample.rows() / partitions);
+        long byRows = (rowsPerPartition + properties.getRangeRows() - 1) / properties.getRangeRows();
+        long byThreads = (properties.getParallelism() + partitions - 1) / partitions;
+        int ranges = (int) Math.min(MAX_RANGES, Math.max(byRows, byThreads));
+
+        String[] keys = new TreeSet<>(sample.keys()).toArray(String[]::new);
+        if (ranges < 2 || keys.length < 2) {
+            return new String[0];
+        }
+        TreeSet<String> boundaries = new TreeSet<>();
+        for (int range = 1; range < ranges; range++) {
+            boundaries.add(keys[(int) ((long) range * keys.length / ranges)]);
+        }
+        return boundaries.toArray(String[]::new);
+    }
+
+    private Tally spill(Path file, List<String> partitions, String[] boundaries, List<Bucket> buckets,
+                        Path unreadable) throws IOException {
+        Tally tally = new Tally();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             BufferedWriter unreadableRows = Files.newBufferedWriter(unreadable, StandardCharsets.UTF_8);
+             SpillBuffers spillBuffers = new SpillBuffers(buckets, properties.getSpillBuffer().toBytes())) {
+            String row;
+            long line = 0;
+            while ((row = reader.readLine()) != null) {
+                line++;
+                if (row.isBlank() || (line == 1 && row.startsWith(CounterpartyDeal.HEADER))) {
+                    continue;
+                }
+                CounterpartyDeal deal;
+                try {
+                    deal = CounterpartyDeal.parse(row, line);
+                } catch (IllegalArgumentException e) {
+                    tally.record(new ReconciliationBreak(ReconciliationBreak.Type.UNREADABLE, leadingField(row),
+                            null, null, e.getMessage(), line), unreadableRows);
+                    continue;
+                }
+
+                int partition = partitions.size() == 1
+                        ? 0 : partitions.indexOf(dealShardRouter.getRing().shardFor(deal.dealUniqueId()));
+                int range = Arrays.binarySearch(boundaries, deal.dealUniqueId());
+                range = range >= 0 ? range + 1 : -range - 1;
+                spillBuffers.write(range * partitions.size() + partition, deal);
+            }
+        }
+        return tally;
+    }
+
+    private List<Tally> matchAll(List<Bucket> buckets, @Nullable LocalDateTime from, @Nullable LocalDateTime to) {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Tally>> futures = new ArrayList<>();
+            for (Bucket bucket : buckets) {
+                futures.add(executor.submit(() -> match(bucket, from, to)));
+            }
+            List<Tally> tallies = new ArrayList<>();
+            for (Future<Tally> future : futures) {
+                tallies.add(future.get());
+            }
+            return tallies;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while reconciling", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            throw new IllegalStateException("Reconciliation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges the bucket's rows, sorted by deal ID, with our deals in the bucket's key
+     * range, read in the same order.
+     */
+    private Tally match(Bucket bucket, @Nullable LocalDateTime from, @Nullable LocalDateTime to) throws IOException {
+        List<CounterpartyDeal> theirs = readRows(bucket.rows());
+        theirs.sort(BY_ID_THEN_LINE);
+        Tally tally = new Tally();
+        tally.rows = theirs.size();
+
+        try (BufferedWriter breaks = Files.newBufferedWriter(bucket.breaks(), StandardCharsets.UTF_8)) {
+            List<CounterpartyDeal> notHot = new ArrayList<>();
+            KeysetScan ours = new KeysetScan(bucket);
+            StoredDeal our = ours.next();
+            String lastTheirs = null;
+            int next = 0;
+            while (next < theirs.size() || our != null) {
+                CounterpartyDeal their = next < theirs.size() ? theirs.get(next) : null;
+                if (their != null && their.dealUniqueId().equals(lastTheirs)) {
+                    tally.record(new ReconciliationBreak(ReconciliationBreak.Type.DUPLICATE, their.dealUniqueId(),
+                            null, null, null, their.line()), breaks);
+                    next++;
+                    continue;
+                }
+
+                int order = their == null ? 1 : our == null ? -1 : their.dealUniqueId().compareTo(our.dealUniqueId());
+                if (order < 0) {
+                    notHot.add(their);
+                    lastTheirs = their.dealUniqueId();
+                    next++;
+                } else if (order > 0) {
+                    if ((from == null || !our.dealTimestamp().isBefore(from))
+                            && (to == null || our.dealTimestamp().isBefore(to))) {
+                        tally.record(new ReconciliationBreak(ReconciliationBreak.Type.EXTRA, our.dealUniqueId(),
+                                null, null, null, 0), breaks);
+                    }
+                    our = ours.next();
+                } else {
+                    compare(our, their, tally, breaks);
+                    lastTheirs = their.dealUniqueId();
+                    next++;
+                    our = ours.next();
+                }
+            }
+            matchArchived(bucket, notHot, tally, breaks);
+        }
+        return tally;
+    }
+
+    /**
+     * Compares rows whose deal is not in the {@code deals} table with the archived
+     * deals of the same IDs, and reports the others as missing.
+     */
+    private void matchArchived(Bucket bucket, List<CounterpartyDeal> notHot, Tally tally, BufferedWriter breaks)
+            throws IOException {
+        for (int start = 0; start < notHot.size(); start += ARCHIVE_LOOKUP_BATCH) {
+            List<CounterpartyDeal> batch = notHot.subList(start, Math.min(start + ARCHIVE_LOOKUP_BATCH, notHot.size()));
+            List<String> ids = batch.stream().map(CounterpartyDeal::dealUniqueId).toList();
+            Map<String, Deal> archived = onShard(bucket.partition(), () -> dealArchive.findDeals(ids));
+            for (CounterpartyDeal their : batch) {
+                Deal deal = archived.get(their.dealUniqueId());
+                if (deal == null) {
+                    tally.record(new ReconciliationBreak(ReconciliationBreak.Type.MISSING, their.dealUniqueId(),
+                            null, null, null, their.line()), breaks);
+                } else {
+                    compare(new StoredDeal(deal.getDealUniqueId(), deal.getFromCurrency(), deal.getToCurrency(),
+                            deal.getDealTimestamp(), deal.getDealAmount()), their, tally, breaks);
+                }
+            }
+        }
+    }
+
+    private void compare(StoredDeal our, CounterpartyDeal their, Tally tally, BufferedWriter breaks) throws IOException {
+        boolean matched = true;
+        if (our.dealAmount().compareTo(their.dealAmount()) != 0) {
+            tally.record(new ReconciliationBreak(ReconciliationBreak.Type.AMOUNT_MISMATCH, our.dealUniqueId(),
+                    "dealAmount", our.dealAmount().toPlainString(), their.dealAmount().toPlainString(),
+                    their.line()), breaks);
+            matched = false;
+        }
+        Duration skew = Duration.between(our.dealTimestamp(), their.dealTimestamp()).abs();
+        if (skew.compareTo(properties.getTimestampTolerance()) > 0) {
+            tally.record(new ReconciliationBreak(ReconciliationBreak.Type.TIMESTAMP_MISMATCH, our.dealUniqueId(),
+                    "dealTimestamp", our.dealTimestamp().toString(), their.dealTimestamp().toString(),
+                    their.line()), breaks);
+            matched = false;
+        }
+        if (!our.fromCurrency().equals(their.fromCurrency()) || !our.toCurrency().equals(their.toCurrency())) {
+            tally.record(new ReconciliationBreak(ReconciliationBreak.Type.CURRENCY_MISMATCH, our.dealUniqueId(),
+                    "currencyPair", our.fromCurrency() + "/" + our.toCurrency(),
+                    their.fromCurrency() + "/" + their.toCurrency(), their.line()), breaks);
+            matched = false;
+        }
+        if (matched) {
+            tally.matched++;
+        }
+    }
+
+    private static List<CounterpartyDeal> readRows(Path rows) throws IOException {
+        List<CounterpartyDeal> deals = new ArrayList<>();
+        if (!Files.exists(rows)) {
+            return deals;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(rows), 1 << 16))) {
+            while (true) {
+                deals.add(CounterpartyDeal.readFrom(input));
+            }
+        } catch (EOFException endOfBucket) {
+            return deals;
+        }
+    }
+
+    private static void writeBreaks(Path breaksFile, Path unreadable, List<Bucket> buckets) throws IOException {
+        if (breaksFile.getParent() != null) {
+            Files.createDirectories(breaksFile.getParent());
+        }
+        try (OutputStream output = Files.newOutputStream(breaksFile)) {
+            output.write((ReconciliationBreak.CSV_HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.copy(unreadable, output);
+            for (Bucket bucket : buckets) {
+                Files.copy(bucket.breaks(), output);
+            }
+        }
+    }
+
+    private static String leadingField(String row) {
+        int comma = row.indexOf(',');
+        return (comma < 0 ? row : row.substring(0, comma)).strip();
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not delete reconciliation work directory {}", directory, e);
+        }
+    }
+
+    private static <T> T onShard(@Nullable String shard, Supplier<T> work) {
+        return shard == null ? work.get() : ShardRoutingContext.onShard(shard, work);
+    }
+
+    /**
+     * Our deals in a bucket's key range, in deal ID order, read a page at a time.
+     */
+    private class KeysetScan {
+
+        private final Bucket bucket;
+        private List<StoredDeal> page = List.of();
+        private int position;
+        private String last;
+        private boolean exhausted;
+
+        KeysetScan(Bucket bucket) {
+            this.bucket = bucket;
+        }
+
+        StoredDeal next() {
+            if (position == page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = fetch();
+                position = 0;
+                exhausted = page.size() < properties.getPageSize();
+                if (page.isEmpty()) {
+                    return null;
+                }
+            }
+            StoredDeal deal = page.get(position++);
+            if (last != null && deal.dealUniqueId().compareTo(last) <= 0) {
+                throw new IllegalStateException("deals.deal_unique_id is not returned in binary order ('" + last
+                        + "' before '" + deal.dealUniqueId() + "'); reconciliation needs a binary collation");
+            }
+            last = deal.dealUniqueId();
+            return deal;
+        }
+
+        private List<StoredDeal> fetch() {
+            List<String> conditions = new ArrayList<>();
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            if (last != null) {
+                conditions.add("deal_unique_id > :after");
+                params.addValue("after", last);
+            } else if (bucket.lowerBound() != null) {
+                conditions.add("deal_unique_id >= :lower");
+                params.addValue("lower", bucket.lowerBound());
+            }
+            if (bucket.upperBound() != null) {
+                conditions.add("deal_unique_id < :upper");
+                params.addValue("upper", bucket.upperBound());
+            }
+            String sql = "SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, deal_amount FROM deals"
+                    + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                    + " ORDER BY deal_unique_id LIMIT " + properties.getPageSize();
+            return onShard(bucket.partition(), () -> readOnlyTransaction.execute(
+                    status -> jdbcTemplate.query(sql, params, storedDealMapper)));
+        }
+    }
+
+    /**
+     * Rows on their way to the bucket files, buffered per bucket. A bucket's rows are
+     * appended to its file once its buffer reaches {@link #SPILL_CHUNK}, and every
+     * bucket's once all buffers together reach the memory limit, so at most one file
+     * is open at a time whatever the number of buckets.
+     */
+    private static final class SpillBuffers implements AutoCloseable {
+
+        private final List<Bucket> buckets;
+        private final long memoryLimit;
+        private final ByteArrayOutputStream[] buffers;
+        private final DataOutputStream[] outputs;
+        private long buffered;
+
+        SpillBuffers(List<Bucket> buckets, long memoryLimit) {
+            this.buckets = buckets;
+            this.memoryLimit = memoryLimit;
+            this.buffers = new ByteArrayOutputStream[buckets.size()];
+            this.outputs = new DataOutputStream[buckets.size()];
+        }
+
+        void write(int index, CounterpartyDeal deal) throws IOException {
+            if (buffers[index] == null) {
+                buffers[index] = new ByteArrayOutputStream(512);
+                outputs[index] = new DataOutputStream(buffers[index]);
+            }
+            int before = buffers[index].size();
+            deal.writeTo(outputs[index]);
+            buffered += buffers[index].size() - before;
+            if (buffers[index].size() >= SPILL_CHUNK) {
+                flush(index);
+            } else if (buffered >= memoryLimit) {
+                flushAll();
+            }
+        }
+
+        private void flush(int index) throws IOException {
+            try (OutputStream output = Files.newOutputStream(buckets.get(index).rows(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                buffers[index].writeTo(output);
+            }
+            buffered -= buffers[index].size();
+            // Dropped rather than reset, so an idle bucket does not keep its capacity
+            buffers[index] = null;
+            outputs[index] = null;
+        }
+
+        private void flushAll() throws IOException {
+            for (int index = 0; index < buffers.length; index++) {
+                if (buffers[index] != null) {
+                    flush(index);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushAll();
+        }
+    }
+
+    /**
+     * Counts for one bucket, or for the whole run once merged.
+     */
+    private static final class Tally {
+
+        private final Map<ReconciliationBreak.Type, Long> breaks = new EnumMap<>(ReconciliationBreak.Type.class);
+        private long rows;
+        private long matched;
+
+        Tally() {
+            for (ReconciliationBreak.Type type : ReconciliationBreak.Type.values()) {
+                breaks.put(type, 0L);
+            }
+        }
+
+        void record(ReconciliationBreak reconciliationBreak, BufferedWriter writer) throws IOException {
+            breaks.merge(reconciliationBreak.type(), 1L, Long::sum);
+            writer.write(reconciliationBreak.toCsv());
+            writer.newLine();
+        }
+
+        void add(Tally other) {
+            rows += other.rows;
+            matched += other.matched;
+            other.breaks.forEach((type, count) -> breaks.merge(type, count, Long::sum));
+        }
+    }
+
+    private record Sample(long rows, List<String> keys) {
+    }
+
+    private record Bucket(String partition, String lowerBound, String upperBound, Path rows, Path breaks) {
+    }
+
+    private record StoredDeal(String dealUniqueId, String fromCurrency, String toCurrency,
+                              LocalDateTime dealTimestamp, BigDecimal dealAmount) {
+    }
+}
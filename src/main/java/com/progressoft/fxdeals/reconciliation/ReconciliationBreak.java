@@ -0,0 +1,40 @@
+package com.progressoft.fxdeals.reconciliation;
+
+/**
+ * A difference between our deals and a counterparty file. {@code ours} and
+ * {@code theirs} hold the differing values, {@code line} the file line, if any.
+ */
+public record ReconciliationBreak(Type type, String dealUniqueId, String field, String ours, String theirs,
+                                  long line) {
+
+    static final String CSV_HEADER = "break,dealUniqueId,field,ours,theirs,line";
+
+    public enum Type {
+        /** In the file but not in our deals. */
+        MISSING,
+        /** In our deals but not in the file. */
+        EXTRA,
+        AMOUNT_MISMATCH,
+        TIMESTAMP_MISMATCH,
+        CURRENCY_MISMATCH,
+        /** Listed more than once in the file. */
+        DUPLICATE,
+        /** A file row that could not be read. */
+        UNREADABLE
+    }
+
+    String toCsv() {
+        return String.join(",", type.name(), csv(dealUniqueId), csv(field), csv(ours), csv(theirs),
+                line > 0 ? Long.toString(line) : "");
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
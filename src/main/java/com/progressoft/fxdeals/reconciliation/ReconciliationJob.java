@@ -0,0 +1,95 @@
+package com.progressoft.fxdeals.reconciliation;
+
+import com.progressoft.fxdeals.config.ReconciliationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs reconciliations in the background, one at a time, on files placed in the
+ * configured inbox, and keeps the outcome of the last run.
+ */
+public class ReconciliationJob implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationJob.class);
+
+    private static final DateTimeFormatter RUN_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Reconciler reconciler;
+    private final ReconciliationProperties properties;
+    private final ExecutorService runner;
+    private volatile Status status = new Status(false, null, null, null, null);
+
+    public ReconciliationJob(Reconciler reconciler, ReconciliationProperties properties) {
+        this.reconciler = reconciler;
+        this.properties = properties;
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts reconciling the inbox file {@code fileName}. Our deals outside
+     * {@code [from, to)} are not reported as missing from the file.
+     *
+     * @throws IllegalArgumentException if the file is not in the inbox
+     * @throws IllegalStateException    if a reconciliation is already running
+     */
+    public synchronized Status start(String fileName, @Nullable LocalDateTime from, @Nullable LocalDateTime to) {
+        Path inbox = properties.getInbox().toAbsolutePath().normalize();
+        Path file = inbox.resolve(fileName).normalize();
+        if (!file.getParent().equals(inbox) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("No file named " + fileName + " in the reconciliation inbox");
+        }
+        if (status.running()) {
+            throw new IllegalStateException("A reconciliation of " + status.file() + " is already running");
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        String stem = fileName.replaceFirst("\\.[^.]*$", "");
+        Path breaksFile = properties.getReportDirectory().resolve(stem + "-" + RUN_STAMP.format(startedAt) + "-breaks.csv");
+        Status previous = status;
+        status = new Status(true, fileName, startedAt, previous.lastReport(), previous.lastError());
+        runner.execute(() -> run(file, from, to, breaksFile));
+        return status;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    private void run(Path file, LocalDateTime from, LocalDateTime to, Path breaksFile) {
+        Status running = status;
+        try {
+            ReconciliationReport report = reconciler.reconcile(file, from, to, breaksFile);
+            status = new Status(false, running.file(), running.startedAt(), report, null);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Reconciliation of {} failed", file, e);
+            status = new Status(false, running.file(), running.startedAt(), running.lastReport(), e.toString());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Whether a run is in progress, the file and start of the current or last run,
+     * and the report of the last successful run or the error of the last failed one.
+     */
+    public record Status(boolean running, String file, LocalDateTime startedAt,
+                         ReconciliationReport lastReport, String lastError) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.progressoft.fxdeals.reconciliation;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Outcome of reconciling one counterparty file. {@code breaks} counts every break
+ * type, including those that did not occur; the breaks themselves are listed in
+ * {@code breaksFile}.
+ */
+public record ReconciliationReport(String file, LocalDateTime startedAt, long durationMillis, long rows,
+                                   long matched, Map<ReconciliationBreak.Type, Long> breaks, String breaksFile,
+                                   int buckets) {
+}
@@ -0,0 +1,18 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.entity.ArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchiveSegmentRepository extends JpaRepository<ArchiveSegment, Long> {
+    
+    @Query("SELECT s FROM ArchiveSegment s WHERE s.minTimestamp <= :endTime AND s.maxTimestamp >= :startTime ORDER BY s.maxTimestamp DESC")
+    List<ArchiveSegment> findSegmentsOverlapping(@Param("startTime") LocalDateTime startTime,
+                                                 @Param("endTime") LocalDateTime endTime);
+}
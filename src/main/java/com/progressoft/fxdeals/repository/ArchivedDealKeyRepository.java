@@ -0,0 +1,17 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.entity.ArchivedDealKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedDealKeyRepository extends JpaRepository<ArchivedDealKey, String> {
+    
+    @Query("SELECT k.dealUniqueId FROM ArchivedDealKey k WHERE k.dealUniqueId IN :dealUniqueIds")
+    List<String> findArchivedIds(@Param("dealUniqueIds") Collection<String> dealUniqueIds);
+}
@@ -0,0 +1,23 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserts of newly submitted deals that bind their values straight from the request
+ * to the statement, without an entity, nor a persistence context snapshot, per deal.
+ */
+public interface DealInsertRepository {
+
+    /**
+     * Inserts {@code deals}, validated, in one JDBC batch and returns their generated
+     * IDs, in the same order. Currency codes are stored upper case, every deal with
+     * its USD notional from {@code usdNotionals} (null when unknown) and
+     * {@code createdAt} as creation time. The rows are not managed by the persistence
+     * context of the transaction.
+     */
+    long[] insertDeals(List<DealRequestDTO> deals, BigDecimal[] usdNotionals, LocalDateTime createdAt);
+}
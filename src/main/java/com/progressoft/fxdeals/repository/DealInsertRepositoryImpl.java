@@ -0,0 +1,102 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
+import com.progressoft.fxdeals.storage.DealKeys;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Runs on the connection of the current transaction, so that the insert goes to the
+ * primary of the shard the transaction is bound to. Columns are bound the way the
+ * mapped storage layout stores them.
+ */
+@Transactional
+class DealInsertRepositoryImpl implements DealInsertRepository {
+
+    private static final String STANDARD_INSERT = "INSERT INTO deals (deal_unique_id, from_currency, to_currency, "
+            + "deal_timestamp, deal_amount, usd_notional, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COMPACT_INSERT = "INSERT INTO deals (deal_unique_id, from_currency, to_currency, "
+            + "deal_timestamp, deal_amount, usd_notional, created_at, deal_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final EntityManager entityManager;
+    private volatile DealStorageLayout layout;
+
+    DealInsertRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public long[] insertDeals(List<DealRequestDTO> deals, BigDecimal[] usdNotionals, LocalDateTime createdAt) {
+        if (deals.isEmpty()) {
+            return new long[0];
+        }
+        DealStorageLayout layout = layout();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    layout.isCompact() ? COMPACT_INSERT : STANDARD_INSERT, new String[] {"id"})) {
+                for (int i = 0; i < deals.size(); i++) {
+                    bind(statement, layout, deals.get(i), usdNotionals[i], createdAt);
+                    if (deals.size() > 1) {
+                        statement.addBatch();
+                    }
+                }
+                if (deals.size() > 1) {
+                    statement.executeBatch();
+                } else {
+                    statement.executeUpdate();
+                }
+                return readGeneratedIds(statement, deals);
+            }
+        });
+    }
+
+    private static void bind(PreparedStatement statement, DealStorageLayout layout, DealRequestDTO deal,
+                             BigDecimal usdNotional, LocalDateTime createdAt) throws SQLException {
+        statement.setString(1, deal.dealUniqueId());
+        // toUpperCase returns codes that are upper case already as they are
+        statement.setObject(2, layout.currencyParameter(deal.fromCurrency().toUpperCase()));
+        statement.setObject(3, layout.currencyParameter(deal.toCurrency().toUpperCase()));
+        statement.setObject(4, deal.dealTimestamp());
+        statement.setObject(5, layout.amountParameter(deal.dealAmount()));
+        if (usdNotional != null) {
+            statement.setBigDecimal(6, usdNotional);
+        } else {
+            statement.setNull(6, Types.DECIMAL);
+        }
+        statement.setObject(7, createdAt);
+        if (layout.isCompact()) {
+            statement.setLong(8, DealKeys.of(deal.dealUniqueId()));
+        }
+    }
+
+    private static long[] readGeneratedIds(PreparedStatement statement, List<DealRequestDTO> deals) throws SQLException {
+        long[] generated = new long[deals.size()];
+        try (ResultSet ids = statement.getGeneratedKeys()) {
+            for (int i = 0; i < generated.length; i++) {
+                if (!ids.next()) {
+                    throw new SQLException("No generated ID returned for deal " + deals.get(i).dealUniqueId());
+                }
+                generated[i] = ids.getLong(1);
+            }
+        }
+        return generated;
+    }
+
+    private DealStorageLayout layout() {
+        if (layout == null) {
+            layout = DealStorageLayout.of(entityManager.getMetamodel());
+        }
+        return layout;
+    }
+}
@@ -0,0 +1,23 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.entity.Deal;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lookups of a deal by its unique ID that use the unique index of whichever storage
+ * layout is mapped.
+ */
+public interface DealLookupRepository {
+    
+    boolean existsByDealUniqueId(String dealUniqueId);
+    
+    Optional<Deal> findByDealUniqueId(String dealUniqueId);
+    
+    /**
+     * Returns those of {@code dealUniqueIds} that are stored.
+     */
+    List<String> findExistingDealUniqueIds(Collection<String> dealUniqueIds);
+}
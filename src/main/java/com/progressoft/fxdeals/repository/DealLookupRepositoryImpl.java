@@ -0,0 +1,73 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.storage.DealKeys;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In the compact layout only the 64-bit deal key is indexed, so lookups select by
+ * key and compare the full unique ID to rule out key collisions.
+ */
+@Transactional(readOnly = true)
+class DealLookupRepositoryImpl implements DealLookupRepository {
+    
+    private final EntityManager entityManager;
+    private volatile DealStorageLayout layout;
+    
+    DealLookupRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    @Override
+    public boolean existsByDealUniqueId(String dealUniqueId) {
+        return !query("SELECT d.id", Long.class, dealUniqueId).setMaxResults(1).getResultList().isEmpty();
+    }
+    
+    @Override
+    public Optional<Deal> findByDealUniqueId(String dealUniqueId) {
+        return query("SELECT d", Deal.class, dealUniqueId).getResultStream().findFirst();
+    }
+    
+    @Override
+    public List<String> findExistingDealUniqueIds(Collection<String> dealUniqueIds) {
+        if (dealUniqueIds.isEmpty()) {
+            return List.of();
+        }
+        if (!layout().isCompact()) {
+            return entityManager.createQuery("SELECT d.dealUniqueId FROM Deal d WHERE d.dealUniqueId IN :dealUniqueIds",
+                            String.class)
+                    .setParameter("dealUniqueIds", dealUniqueIds)
+                    .getResultList();
+        }
+        return entityManager.createQuery("SELECT d.dealUniqueId FROM Deal d WHERE d." + Deal.DEAL_KEY_ATTRIBUTE
+                        + " IN :dealKeys AND d.dealUniqueId IN :dealUniqueIds", String.class)
+                .setParameter("dealKeys", dealUniqueIds.stream().map(DealKeys::of).toList())
+                .setParameter("dealUniqueIds", dealUniqueIds)
+                .getResultList();
+    }
+    
+    private <T> TypedQuery<T> query(String select, Class<T> resultType, String dealUniqueId) {
+        if (!layout().isCompact()) {
+            return entityManager.createQuery(select + " FROM Deal d WHERE d.dealUniqueId = :dealUniqueId", resultType)
+                    .setParameter("dealUniqueId", dealUniqueId);
+        }
+        return entityManager.createQuery(select + " FROM Deal d WHERE d." + Deal.DEAL_KEY_ATTRIBUTE
+                        + " = :dealKey AND d.dealUniqueId = :dealUniqueId", resultType)
+                .setParameter("dealKey", DealKeys.of(dealUniqueId))
+                .setParameter("dealUniqueId", dealUniqueId);
+    }
+    
+    private DealStorageLayout layout() {
+        if (layout == null) {
+            layout = DealStorageLayout.of(entityManager.getMetamodel());
+        }
+        return layout;
+    }
+}
@@ -0,0 +1,14 @@
+package com.progressoft.fxdeals.repository;
+
+/**
+ * Inserts of outbox entries for newly submitted deals, bound straight to the
+ * statement like the deals themselves, without an entity per deal.
+ */
+public interface DealOutboxInsertRepository {
+
+    /**
+     * Inserts an entry created now for the deal serialized as {@code payload}. The row
+     * is not managed by the persistence context of the transaction.
+     */
+    void insertEntry(String dealUniqueId, String payload);
+}
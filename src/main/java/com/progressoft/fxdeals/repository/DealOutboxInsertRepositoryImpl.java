@@ -0,0 +1,36 @@
+package com.progressoft.fxdeals.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+
+/**
+ * Runs on the connection of the current transaction, so that the entry is committed
+ * together with the deal, on the deal's shard.
+ */
+@Transactional
+class DealOutboxInsertRepositoryImpl implements DealOutboxInsertRepository {
+
+    private static final String INSERT = "INSERT INTO deal_outbox (deal_unique_id, payload, created_at) VALUES (?, ?, ?)";
+
+    private final EntityManager entityManager;
+
+    DealOutboxInsertRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void insertEntry(String dealUniqueId, String payload) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+                statement.setString(1, dealUniqueId);
+                statement.setString(2, payload);
+                statement.setObject(3, LocalDateTime.now());
+                statement.executeUpdate();
+            }
+        });
+    }
+}
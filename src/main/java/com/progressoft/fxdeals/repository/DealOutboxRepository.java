@@ -0,0 +1,30 @@
+package com.progressoft.fxdeals.repository;
+
+import com.progressoft.fxdeals.model.entity.DealOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DealOutboxRepository extends JpaRepository<DealOutboxEntry, Long>, DealOutboxInsertRepository {
+    
+    @Query("SELECT e FROM DealOutboxEntry e WHERE e.id > :after ORDER BY e.id LIMIT :limit")
+    List<DealOutboxEntry> findEntriesAfter(@Param("after") long after, @Param("limit") int limit);
+    
+    @Query("SELECT e FROM DealOutboxEntry e WHERE e.id <= :upTo ORDER BY e.id DESC LIMIT :limit")
+    List<DealOutboxEntry> findLatestEntries(@Param("upTo") long upTo, @Param("limit") int limit);
+    
+    @Query("SELECT MAX(e.id) FROM DealOutboxEntry e WHERE e.createdAt <= :createdBefore")
+    Long findLastIdCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DealOutboxEntry e WHERE e.createdAt < :createdBefore")
+    int deleteEntriesCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore);
+}
@@ -8,14 +8,9 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
-public interface DealRepository extends JpaRepository<Deal, Long> {
-    
-    boolean existsByDealUniqueId(String dealUniqueId);
-    
-    Optional<Deal> findByDealUniqueId(String dealUniqueId);
+public interface DealRepository extends JpaRepository<Deal, Long>, DealLookupRepository, DealInsertRepository {
     
     @Query("SELECT d FROM Deal d WHERE d.dealTimestamp BETWEEN :startTime AND :endTime ORDER BY d.dealTimestamp DESC")
     List<Deal> findDealsByTimestampRange(@Param("startTime") LocalDateTime startTime, 
@@ -25,6 +20,16 @@ public interface DealRepository extends JpaRepository<Deal, Long> {
     List<Deal> findDealsByCurrencyPair(@Param("fromCurrency") String fromCurrency, 
                                        @Param("toCurrency") String toCurrency);
     
+    @Query("SELECT d FROM Deal d WHERE d.fromCurrency = :fromCurrency AND d.toCurrency = :toCurrency AND d.dealTimestamp < :before ORDER BY d.dealTimestamp DESC")
+    List<Deal> findDealsByCurrencyPairBefore(@Param("fromCurrency") String fromCurrency,
+                                             @Param("toCurrency") String toCurrency,
+                                             @Param("before") LocalDateTime before);
+    
+    @Query("SELECT d FROM Deal d WHERE d.fromCurrency = :fromCurrency AND d.toCurrency = :toCurrency AND d.dealTimestamp >= :since ORDER BY d.dealTimestamp DESC")
+    List<Deal> findDealsByCurrencyPairSince(@Param("fromCurrency") String fromCurrency,
+                                            @Param("toCurrency") String toCurrency,
+                                            @Param("since") LocalDateTime since);
+    
     @Query("SELECT d FROM Deal d ORDER BY d.createdAt DESC LIMIT :limit")
     List<Deal> findRecentDeals(@Param("limit") int limit);
 } 
\ No newline at end of file
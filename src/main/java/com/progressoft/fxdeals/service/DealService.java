@@ -3,7 +3,18 @@ package com.progressoft.fxdeals.service;
 import com.progressoft.fxdeals.model.dto.DealRequestDTO;
 import com.progressoft.fxdeals.model.dto.DealResponseDTO;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 public interface DealService {
     
     DealResponseDTO submitDeal(DealRequestDTO dealRequest);
-} 
\ No newline at end of file
+    
+    DealResponseDTO getDealByUniqueId(String dealUniqueId);
+    
+    List<DealResponseDTO> getDealsByTimestampRange(LocalDateTime startTime, LocalDateTime endTime);
+    
+    List<DealResponseDTO> getDealsByCurrencyPair(String fromCurrency, String toCurrency);
+    
+    List<DealResponseDTO> getRecentDeals(int limit);
+}
@@ -1,63 +1,385 @@
 package com.progressoft.fxdeals.service.impl;
 
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.cache.DealQueryCache;
+import com.progressoft.fxdeals.cache.RecentDealsBuffer;
+import com.progressoft.fxdeals.config.SubmitBatchingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ReplicaLagTracker;
+import com.progressoft.fxdeals.datasource.ReplicaRoutingContext;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.event.DealSubmittedEvent;
+import com.progressoft.fxdeals.exception.DealNotFoundException;
+import com.progressoft.fxdeals.exception.DealOutcomeUnknownException;
 import com.progressoft.fxdeals.exception.DealValidationException;
 import com.progressoft.fxdeals.exception.DuplicateDealException;
+import com.progressoft.fxdeals.feed.DealOutbox;
+import com.progressoft.fxdeals.fx.FxRateTable;
+import com.progressoft.fxdeals.ingest.DuplicateGuard;
+import com.progressoft.fxdeals.ingest.MicroBatcher;
 import com.progressoft.fxdeals.model.dto.DealRequestDTO;
 import com.progressoft.fxdeals.model.dto.DealResponseDTO;
 import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.profiling.DealSubmitStageEvent;
 import com.progressoft.fxdeals.repository.DealRepository;
 import com.progressoft.fxdeals.service.DealService;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Currency;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
-public class DealServiceImpl implements DealService {
+public class DealServiceImpl implements DealService, DisposableBean {
     
     private static final Logger logger = LoggerFactory.getLogger(DealServiceImpl.class);
     
+    private static final int MAX_RECENT_DEALS = 1000;
+    
+    private static final Comparator<Deal> NEWEST_DEAL_TIMESTAMP_FIRST =
+            Comparator.comparing(Deal::getDealTimestamp).reversed();
+    private static final Comparator<Deal> NEWEST_CREATED_FIRST =
+            Comparator.comparing(Deal::getCreatedAt).reversed();
+    
     private final DealRepository dealRepository;
+    private final ReplicaLagTracker replicaLagTracker;
+    private final DealShardRouter dealShardRouter;
+    private final RecentDealsBuffer recentDealsBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FxRateTable fxRateTable;
+    private final DealArchive dealArchive;
+    private final DealStorageLayout dealStorageLayout;
+    private final DealQueryCache dealQueryCache;
+    private final DuplicateGuard duplicateGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final MicroBatcher<DealRequestDTO, DealResponseDTO> submitBatcher;
     
     @Autowired
-    public DealServiceImpl(DealRepository dealRepository) {
+    public DealServiceImpl(DealRepository dealRepository, ReplicaLagTracker replicaLagTracker,
+                           DealShardRouter dealShardRouter, RecentDealsBuffer recentDealsBuffer,
+                           ApplicationEventPublisher eventPublisher, FxRateTable fxRateTable,
+                           DealArchive dealArchive, DealStorageLayout dealStorageLayout,
+                           DealQueryCache dealQueryCache, PlatformTransactionManager transactionManager,
+                           SubmitBatchingProperties submitBatchingProperties, DuplicateGuard duplicateGuard) {
         this.dealRepository = dealRepository;
+        this.replicaLagTracker = replicaLagTracker;
+        this.dealShardRouter = dealShardRouter;
+        this.recentDealsBuffer = recentDealsBuffer;
+        this.eventPublisher = eventPublisher;
+        this.fxRateTable = fxRateTable;
+        this.dealArchive = dealArchive;
+        this.dealStorageLayout = dealStorageLayout;
+        this.dealQueryCache = dealQueryCache;
+        this.duplicateGuard = duplicateGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.submitBatcher = submitBatchingProperties.isEnabled()
+                ? new MicroBatcher<>("deal-submit", submitBatchingProperties.getMaxBatchSize(),
+                        submitBatchingProperties.getMaxDelay(), submitBatchingProperties.getTargetLatency(),
+                        submitBatchingProperties.getMaxWait(), this::saveNewDeals)
+                : null;
     }
     
+    // Transactions are begun per shard below, or per batch by the flusher; a parked
+    // submission holds no connection
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public DealResponseDTO submitDeal(DealRequestDTO dealRequest) {
-        logger.info("Submitting new deal with ID: {}", dealRequest.getDealUniqueId());
+        // Retries of a recently rejected duplicate are rejected again without touching the database
+        if (duplicateGuard.isKnownDuplicate(dealRequest.dealUniqueId())) {
+            logger.debug("Rejecting known duplicate deal with ID: {}", dealRequest.dealUniqueId());
+            throw new DuplicateDealException(dealRequest.dealUniqueId());
+        }
         
-        if (dealRepository.existsByDealUniqueId(dealRequest.getDealUniqueId())) {
-            throw new DuplicateDealException(dealRequest.getDealUniqueId());
+        logger.info("Submitting new deal with ID: {}", dealRequest.dealUniqueId());
+        
+        try {
+            if (submitBatcher != null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+                try {
+                    return submitBatcher.submit(shardOf(dealRequest.dealUniqueId()), dealRequest);
+                } catch (MicroBatcher.NotHandledException e) {
+                    logger.warn("Saving deal {} on its own: {}", dealRequest.dealUniqueId(), e.getMessage());
+                } catch (MicroBatcher.OutcomeUnknownException e) {
+                    throw new DealOutcomeUnknownException(dealRequest.dealUniqueId(), e);
+                }
+            }
+            
+            // The shard must be bound before the first statement acquires the connection
+            return dealShardRouter.onShardOf(dealRequest.dealUniqueId(),
+                    () -> transactionTemplate.execute(status -> saveNewDeal(dealRequest)));
+        } catch (DuplicateDealException e) {
+            duplicateGuard.recordDuplicate(dealRequest.dealUniqueId());
+            throw e;
+        }
+    }
+    
+    private DealResponseDTO saveNewDeal(DealRequestDTO dealRequest) {
+        DealSubmitStageEvent dedupe = stage(DealSubmitStageEvent.DEDUPE, dealRequest);
+        boolean duplicate = dealRepository.existsByDealUniqueId(dealRequest.dealUniqueId())
+                || dealArchive.contains(dealRequest.dealUniqueId());
+        dedupe.commit();
+        if (duplicate) {
+            throw new DuplicateDealException(dealRequest.dealUniqueId());
         }
         
-        validateDeal(dealRequest);
+        DealSubmitStageEvent validate = stage(DealSubmitStageEvent.VALIDATE, dealRequest);
+        try {
+            validateDeal(dealRequest);
+        } finally {
+            validate.commit();
+        }
         
-        Deal deal = convertToEntity(dealRequest);
-        Deal savedDeal = dealRepository.save(deal);
+        BigDecimal[] usdNotional = {usdNotional(dealRequest)};
+        LocalDateTime createdAt = LocalDateTime.now();
+        DealSubmitStageEvent persist = stage(DealSubmitStageEvent.PERSIST, dealRequest);
+        long id = dealRepository.insertDeals(List.of(dealRequest), usdNotional, createdAt)[0];
+        persist.commit();
+        DealResponseDTO response = toResponse(id, dealRequest, usdNotional[0], createdAt);
+        replicaLagTracker.recordWrite(response.dealUniqueId());
         
         logger.info("Successfully saved deal with ID: {} and database ID: {}", 
-                    savedDeal.getDealUniqueId(), savedDeal.getId());
+                    response.dealUniqueId(), response.id());
+        
+        eventPublisher.publishEvent(new DealSubmittedEvent(response));
+        return response;
+    }
+    
+    /**
+     * Saves a batch of submissions in one transaction on their shard and completes
+     * each with its deal or the reason it was rejected. If the transaction fails,
+     * e.g. because one of the deals was submitted through another instance
+     * meanwhile, the submissions are saved one by one instead.
+     */
+    private void saveNewDeals(String shard, List<MicroBatcher.Submission<DealRequestDTO, DealResponseDTO>> batch) {
+        Map<MicroBatcher.Submission<DealRequestDTO, DealResponseDTO>, Object> outcomes;
+        try {
+            outcomes = onShard(shard, () -> transactionTemplate.execute(status -> saveNewDealsTogether(batch)));
+        } catch (RuntimeException e) {
+            logger.warn("Saving a batch of {} deal(s) failed, saving them one by one: {}", batch.size(), e.toString());
+            for (MicroBatcher.Submission<DealRequestDTO, DealResponseDTO> submission : batch) {
+                try {
+                    submission.complete(onShard(shard,
+                            () -> transactionTemplate.execute(status -> saveNewDeal(submission.item()))));
+                } catch (RuntimeException failure) {
+                    submission.fail(failure);
+                }
+            }
+            return;
+        }
+        
+        // Completed only once committed
+        outcomes.forEach((submission, outcome) -> {
+            if (outcome instanceof DealResponseDTO deal) {
+                submission.complete(deal);
+            } else {
+                submission.fail((RuntimeException) outcome);
+            }
+        });
+    }
+    
+    private Map<MicroBatcher.Submission<DealRequestDTO, DealResponseDTO>, Object> saveNewDealsTogether(
+            List<MicroBatcher.Submission<DealRequestDTO, DealResponseDTO>> batch) {
+        List<String> ids = batch.stream().map(submission -> submission.item().dealUniqueId()).toList();
+        DealSubmitStageEvent dedupe = DealSubmitStageEvent.start(DealSubmitStageEvent.DEDUPE, batch.size());
+        Set<String> taken = new HashSet<>(dealRepository.findExistingDealUniqueIds(ids));
+        taken.addAll(dealArchive.findArchived(ids));
+        dedupe.commit();
+        
+        DealSubmitStageEvent validate = DealSubmitStageEvent.start(DealSubmitStageEvent.VALIDATE, batch.size());
+        Map<MicroBatcher.Submission<DealRequestDTO, DealResponseDTO>, Object> outcomes = new LinkedHashMap<>();
+        List<MicroBatcher.Submission<DealRequestDTO, DealResponseDTO>> accepted = new ArrayList<>();
+        List<DealRequestDTO> deals = new ArrayList<>();
+        for (MicroBatcher.Submission<DealRequestDTO, DealResponseDTO> submission : batch) {
+            DealRequestDTO dealRequest = submission.item();
+            // Checked in the same order as a single submission
+            if (taken.contains(dealRequest.dealUniqueId())) {
+                outcomes.put(submission, new DuplicateDealException(dealRequest.dealUniqueId()));
+                continue;
+            }
+            try {
+                validateDeal(dealRequest);
+            } catch (DealValidationException e) {
+                outcomes.put(submission, e);
+                continue;
+            }
+            taken.add(dealRequest.dealUniqueId());
+            accepted.add(submission);
+            deals.add(dealRequest);
+        }
+        validate.commit();
+        
+        BigDecimal[] usdNotionals = new BigDecimal[deals.size()];
+        for (int i = 0; i < usdNotionals.length; i++) {
+            usdNotionals[i] = usdNotional(deals.get(i));
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        DealSubmitStageEvent persist = DealSubmitStageEvent.start(DealSubmitStageEvent.PERSIST, deals.size());
+        long[] dealIds = dealRepository.insertDeals(deals, usdNotionals, createdAt);
+        persist.commit();
+        for (int i = 0; i < deals.size(); i++) {
+            DealResponseDTO response = toResponse(dealIds[i], deals.get(i), usdNotionals[i], createdAt);
+            replicaLagTracker.recordWrite(response.dealUniqueId());
+            eventPublisher.publishEvent(new DealSubmittedEvent(response));
+            outcomes.put(accepted.get(i), response);
+        }
+        logger.info("Saved {} of {} batched deal(s)", deals.size(), batch.size());
+        return outcomes;
+    }
+    
+    private static DealSubmitStageEvent stage(String stage, DealRequestDTO dealRequest) {
+        return DealSubmitStageEvent.start(stage, dealRequest.dealUniqueId(),
+                dealRequest.fromCurrency(), dealRequest.toCurrency());
+    }
+    
+    private String shardOf(String dealUniqueId) {
+        return dealShardRouter.isSharded() ? dealShardRouter.getRing().shardFor(dealUniqueId) : DealOutbox.DEFAULT_SOURCE;
+    }
+    
+    private <T> T onShard(String shard, Supplier<T> work) {
+        return dealShardRouter.isSharded() ? ShardRoutingContext.onShard(shard, work) : work.get();
+    }
+    
+    // Each repository call opens its own transaction, so a retry on the primary gets its own connection
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public DealResponseDTO getDealByUniqueId(String dealUniqueId) {
+        // A deal written moments ago may not have reached the replicas yet
+        Deal deal = dealShardRouter.onShardOf(dealUniqueId, () -> replicaLagTracker.isRecentlyWritten(dealUniqueId)
+                ? ReplicaRoutingContext.onPrimary(() -> findDeal(dealUniqueId))
+                : findDeal(dealUniqueId)
+                        // Deals written through other instances are not tracked, so a replica miss is checked on the primary
+                        .or(() -> replicaLagTracker.isEnabled()
+                                ? ReplicaRoutingContext.onPrimary(() -> findDeal(dealUniqueId))
+                                : Optional.empty()))
+                .orElseThrow(() -> new DealNotFoundException(dealUniqueId));
+        
+        return convertToResponseDTO(deal);
+    }
+    
+    // Cache hits open no transaction; each repository call opens its own otherwise.
+    // The table is read before the archive, so a deal being archived is found in one or the other.
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<DealResponseDTO> getDealsByTimestampRange(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime.isAfter(endTime)) {
+            throw new DealValidationException("Start time must not be after end time");
+        }
         
-        return convertToResponseDTO(savedDeal);
+        return dealQueryCache.findByTimestampRange(startTime, endTime, (from, to) -> dealShardRouter.scatterGather(
+                        () -> withArchived(dealRepository.findDealsByTimestampRange(from, to),
+                                dealArchive.findDealsByTimestampRange(from, to)),
+                        NEWEST_DEAL_TIMESTAMP_FIRST, Integer.MAX_VALUE).stream()
+                .map(this::convertToResponseDTO)
+                .toList());
+    }
+    
+    // Archived deals are only found by unique ID and timestamp range
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<DealResponseDTO> getDealsByCurrencyPair(String fromCurrency, String toCurrency) {
+        validateCurrency(fromCurrency);
+        validateCurrency(toCurrency);
+        
+        String from = fromCurrency.toUpperCase();
+        String to = toCurrency.toUpperCase();
+        return dealQueryCache.findByCurrencyPair(from, to, (since, before) -> dealShardRouter.scatterGather(
+                        () -> findDealsByCurrencyPair(from, to, since, before),
+                        NEWEST_DEAL_TIMESTAMP_FIRST, Integer.MAX_VALUE).stream()
+                .map(this::convertToResponseDTO)
+                .toList());
+    }
+    
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<DealResponseDTO> getRecentDeals(int limit) {
+        if (limit < 1 || limit > MAX_RECENT_DEALS) {
+            throw new DealValidationException("Limit must be between 1 and " + MAX_RECENT_DEALS);
+        }
+        
+        // Served from memory without opening a transaction; the repository opens its own otherwise
+        if (recentDealsBuffer.canServe(limit)) {
+            return recentDealsBuffer.latest(limit);
+        }
+        
+        return dealShardRouter.scatterGather(
+                        () -> dealRepository.findRecentDeals(limit),
+                        NEWEST_CREATED_FIRST, limit).stream()
+                .map(this::convertToResponseDTO)
+                .toList();
+    }
+    
+    private Optional<Deal> findDeal(String dealUniqueId) {
+        return dealRepository.findByDealUniqueId(dealUniqueId)
+                .or(() -> dealArchive.findDeal(dealUniqueId));
+    }
+    
+    private List<Deal> findDealsByCurrencyPair(String from, String to,
+                                               @Nullable LocalDateTime since, @Nullable LocalDateTime before) {
+        if (since != null) {
+            return dealRepository.findDealsByCurrencyPairSince(from, to, since);
+        }
+        if (before != null) {
+            return dealRepository.findDealsByCurrencyPairBefore(from, to, before);
+        }
+        return dealRepository.findDealsByCurrencyPair(from, to);
+    }
+    
+    /**
+     * Merges hot and archived deals, newest first. A deal still in the table while its
+     * archiving is being finished is taken from the table.
+     */
+    private static List<Deal> withArchived(List<Deal> hot, List<Deal> archived) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Map<String, Deal> deals = new LinkedHashMap<>();
+        hot.forEach(deal -> deals.put(deal.getDealUniqueId(), deal));
+        archived.forEach(deal -> deals.putIfAbsent(deal.getDealUniqueId(), deal));
+        return deals.values().stream().sorted(NEWEST_DEAL_TIMESTAMP_FIRST).toList();
     }
     
     private void validateDeal(DealRequestDTO dealRequest) {
-        validateCurrency(dealRequest.getFromCurrency());
-        validateCurrency(dealRequest.getToCurrency());
+        validateCurrency(dealRequest.fromCurrency());
+        validateCurrency(dealRequest.toCurrency());
         
-        if (dealRequest.getFromCurrency().equalsIgnoreCase(dealRequest.getToCurrency())) {
+        if (dealRequest.fromCurrency().equalsIgnoreCase(dealRequest.toCurrency())) {
             throw new DealValidationException("From currency and to currency cannot be the same");
         }
         
-        if (dealRequest.getDealAmount().signum() <= 0) {
+        if (dealRequest.dealAmount().signum() <= 0) {
             throw new DealValidationException("Deal amount must be positive");
         }
+        
+        if (!dealStorageLayout.canStoreAmount(dealRequest.dealAmount())) {
+            throw new DealValidationException("Deal amount exceeds the largest storable amount");
+        }
+        
+        for (String currency : List.of(dealRequest.fromCurrency(), dealRequest.toCurrency())) {
+            if (!dealStorageLayout.canStoreCurrency(currency.toUpperCase())) {
+                throw new DealValidationException("Currency code cannot be stored: " + currency);
+            }
+        }
     }
     
     private void validateCurrency(String currencyCode) {
@@ -78,13 +400,25 @@ public class DealServiceImpl implements DealService {
         }
     }
     
-    private Deal convertToEntity(DealRequestDTO dto) {
-        return new Deal(
-                dto.getDealUniqueId(),
-                dto.getFromCurrency(),
-                dto.getToCurrency(),
-                dto.getDealTimestamp(),
-                dto.getDealAmount()
+    private BigDecimal usdNotional(DealRequestDTO dto) {
+        return fxRateTable.usdNotional(dto.fromCurrency().toUpperCase(), dto.dealAmount());
+    }
+    
+    /**
+     * The deal a validated request was inserted as. No entity is built for it;
+     * {@code toUpperCase} returns codes that are upper case already as they are.
+     */
+    private static DealResponseDTO toResponse(long id, DealRequestDTO dto, BigDecimal usdNotional,
+                                              LocalDateTime createdAt) {
+        return new DealResponseDTO(
+                id,
+                dto.dealUniqueId(),
+                dto.fromCurrency().toUpperCase(),
+                dto.toCurrency().toUpperCase(),
+                dto.dealTimestamp(),
+                dto.dealAmount(),
+                usdNotional,
+                createdAt
         );
     }
     
@@ -96,7 +430,15 @@ public class DealServiceImpl implements DealService {
                 deal.getToCurrency(),
                 deal.getDealTimestamp(),
                 deal.getDealAmount(),
+                deal.getUsdNotional(),
                 deal.getCreatedAt()
         );
     }
-} 
\ No newline at end of file
+    
+    @Override
+    public void destroy() {
+        if (submitBatcher != null) {
+            submitBatcher.close();
+        }
+    }
+}
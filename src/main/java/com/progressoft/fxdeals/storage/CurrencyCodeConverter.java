@@ -0,0 +1,68 @@
+package com.progressoft.fxdeals.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores a currency as its ISO 4217 numeric code in a {@code SMALLINT}. The few
+ * withdrawn currencies sharing a numeric code with another one cannot be stored.
+ */
+@Converter
+public class CurrencyCodeConverter implements AttributeConverter<String, Short> {
+
+    private static final Map<String, Short> NUMERIC_CODES = new HashMap<>();
+    private static final Map<Short, String> CURRENCIES = new HashMap<>();
+
+    static {
+        Set<Integer> ambiguous = new HashSet<>();
+        Map<Integer, String> byNumericCode = new HashMap<>();
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            int numericCode = currency.getNumericCode();
+            if (numericCode <= 0 || byNumericCode.putIfAbsent(numericCode, currency.getCurrencyCode()) != null) {
+                ambiguous.add(numericCode);
+            }
+        }
+        byNumericCode.forEach((numericCode, currency) -> {
+            if (!ambiguous.contains(numericCode)) {
+                NUMERIC_CODES.put(currency, numericCode.shortValue());
+                CURRENCIES.put(numericCode.shortValue(), currency);
+            }
+        });
+    }
+
+    public static boolean canConvert(String currency) {
+        return currency != null && NUMERIC_CODES.containsKey(currency);
+    }
+
+    public static short toNumericCode(String currency) {
+        Short numericCode = NUMERIC_CODES.get(currency);
+        if (numericCode == null) {
+            throw new IllegalArgumentException("Currency " + currency + " has no unique ISO numeric code");
+        }
+        return numericCode;
+    }
+
+    public static String fromNumericCode(int numericCode) {
+        String currency = CURRENCIES.get((short) numericCode);
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown ISO numeric currency code " + numericCode);
+        }
+        return currency;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String currency) {
+        return currency != null ? toNumericCode(currency) : null;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short numericCode) {
+        return numericCode != null ? fromNumericCode(numericCode) : null;
+    }
+}
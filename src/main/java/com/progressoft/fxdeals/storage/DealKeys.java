@@ -0,0 +1,28 @@
+package com.progressoft.fxdeals.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The 64-bit key the compact layout indexes deals by: the first eight bytes of the
+ * SHA-256 digest of the UTF-8 unique ID, read as a big-endian signed long. Being a
+ * standard digest, it can also be computed in SQL, e.g. to fill the column when
+ * migrating existing rows.
+ */
+public final class DealKeys {
+
+    private DealKeys() {
+    }
+
+    public static long of(String dealUniqueId) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return ByteBuffer.wrap(sha256.digest(dealUniqueId.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+}
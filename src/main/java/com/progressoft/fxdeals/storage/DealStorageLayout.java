@@ -0,0 +1,106 @@
+package com.progressoft.fxdeals.storage;
+
+import com.progressoft.fxdeals.model.entity.Deal;
+import jakarta.persistence.metamodel.Metamodel;
+
+import java.math.BigDecimal;
+
+/**
+ * How deal rows are laid out in the {@code deals} table, for code that reads the
+ * table with plain SQL. Both layouts use the same column names.
+ *
+ * <p>The standard layout is the one given by the annotations on {@link Deal}. The
+ * compact layout is mapped by {@value #COMPACT_MAPPING}, enabled with the
+ * {@code compact} profile: currencies are ISO numeric codes, the amount is a scaled
+ * {@code BIGINT}, and the unique index is on a 64-bit {@link DealKeys key} of the
+ * unique ID rather than on the ID itself, which is kept unindexed for verification.
+ */
+public class DealStorageLayout {
+
+    public static final String COMPACT_MAPPING = "META-INF/compact-deal-orm.xml";
+
+    public static final DealStorageLayout STANDARD = new DealStorageLayout(false);
+    public static final DealStorageLayout COMPACT = new DealStorageLayout(true);
+
+    private final boolean compact;
+
+    private DealStorageLayout(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * The layout of the mapping in use; only the compact mapping persists the deal key.
+     */
+    public static DealStorageLayout of(Metamodel metamodel) {
+        boolean mapsKey = metamodel.entity(Deal.class).getAttributes().stream()
+                .anyMatch(attribute -> attribute.getName().equals(Deal.DEAL_KEY_ATTRIBUTE));
+        return mapsKey ? COMPACT : STANDARD;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public String getName() {
+        return compact ? "compact" : "standard";
+    }
+
+    /**
+     * The value to bind for {@code currency} in SQL against a currency column.
+     */
+    public Object currencyParameter(String currency) {
+        return compact ? CurrencyCodeConverter.toNumericCode(currency) : currency;
+    }
+
+    /**
+     * The value to bind for {@code amount} in SQL against the {@code deal_amount} column.
+     */
+    public Object amountParameter(BigDecimal amount) {
+        return compact ? ScaledAmountConverter.toUnscaled(amount) : amount;
+    }
+
+    /**
+     * The currency held in a currency column value read with plain SQL.
+     */
+    public String currency(Object columnValue) {
+        if (columnValue == null || !compact) {
+            return (String) columnValue;
+        }
+        return CurrencyCodeConverter.fromNumericCode(((Number) columnValue).intValue());
+    }
+
+    /**
+     * The amount held in a {@code deal_amount} value read with plain SQL.
+     */
+    public BigDecimal amount(Object columnValue) {
+        if (columnValue == null || !compact) {
+            return (BigDecimal) columnValue;
+        }
+        return ScaledAmountConverter.fromUnscaled(((Number) columnValue).longValue());
+    }
+
+    /**
+     * The total held in a {@code SUM(deal_amount)} value read with plain SQL, which
+     * databases return as various number types.
+     */
+    public BigDecimal amountTotal(Object columnValue) {
+        if (columnValue == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal total = columnValue instanceof BigDecimal decimal ? decimal : new BigDecimal(columnValue.toString());
+        return compact ? total.movePointLeft(ScaledAmountConverter.SCALE) : total;
+    }
+
+    public boolean canStoreCurrency(String currency) {
+        return !compact || CurrencyCodeConverter.canConvert(currency);
+    }
+
+    public boolean canStoreAmount(BigDecimal amount) {
+        return !compact || ScaledAmountConverter.canConvert(amount);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,116 @@
+package com.progressoft.fxdeals.storage;
+
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ShardRoutingContext;
+import com.progressoft.fxdeals.feed.DealOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Reads the on-disk size of the {@code deals} table and its indexes from the
+ * database catalog of every shard, so the two storage layouts can be compared on
+ * the same data. Sizes are known on PostgreSQL and MySQL; row counts are the
+ * catalog's estimates there and exact elsewhere.
+ */
+public class DealTableStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealTableStatistics.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DealShardRouter dealShardRouter;
+
+    public DealTableStatistics(DataSource dataSource, DealShardRouter dealShardRouter) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.dealShardRouter = dealShardRouter;
+    }
+
+    public List<TableSize> measure() {
+        List<String> shards = dealShardRouter.isSharded() ? dealShardRouter.getShards() : Collections.singletonList(null);
+        List<TableSize> sizes = new ArrayList<>();
+        for (String shard : shards) {
+            sizes.add(onShard(shard, () -> measure(shard != null ? shard : DealOutbox.DEFAULT_SOURCE)));
+        }
+        return sizes;
+    }
+
+    private TableSize measure(String partition) {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return switch (database) {
+            case "PostgreSQL" -> postgresSize(partition, database);
+            case "MySQL" -> mysqlSize(partition, database);
+            default -> TableSize.of(partition, database,
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM deals", Long.class), null, null, Map.of());
+        };
+    }
+
+    private TableSize postgresSize(String partition, String database) {
+        Map<String, Object> table = jdbcTemplate.queryForMap("SELECT c.reltuples::bigint AS row_estimate, "
+                + "pg_table_size(c.oid) AS table_bytes, pg_indexes_size(c.oid) AS index_bytes "
+                + "FROM pg_class c WHERE c.oid = to_regclass('deals')");
+        Map<String, Long> indexes = new TreeMap<>();
+        jdbcTemplate.query("SELECT indexrelname, pg_relation_size(indexrelid) AS bytes "
+                        + "FROM pg_stat_user_indexes WHERE relid = to_regclass('deals')",
+                rs -> {
+                    indexes.put(rs.getString("indexrelname"), rs.getLong("bytes"));
+                });
+        return TableSize.of(partition, database, number(table.get("row_estimate")),
+                number(table.get("table_bytes")), number(table.get("index_bytes")), indexes);
+    }
+
+    private TableSize mysqlSize(String partition, String database) {
+        Map<String, Object> table = jdbcTemplate.queryForMap("SELECT table_rows, data_length, index_length "
+                + "FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = 'deals'");
+        Map<String, Long> indexes = new TreeMap<>();
+        try {
+            jdbcTemplate.query("SELECT index_name, stat_value * @@innodb_page_size AS bytes FROM mysql.innodb_index_stats "
+                            + "WHERE database_name = DATABASE() AND table_name = 'deals' AND stat_name = 'size'",
+                    rs -> {
+                        indexes.put(rs.getString("index_name"), rs.getLong("bytes"));
+                    });
+        } catch (DataAccessException e) {
+            // Needs SELECT on the mysql schema; the totals are still reported
+            logger.debug("Per-index sizes of deals are not readable", e);
+        }
+        return TableSize.of(partition, database, number(table.get("table_rows")),
+                number(table.get("data_length")), number(table.get("index_length")), indexes);
+    }
+
+    private static Long number(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static <T> T onShard(@Nullable String shard, Supplier<T> work) {
+        return shard == null ? work.get() : ShardRoutingContext.onShard(shard, work);
+    }
+
+    /**
+     * Size of the deals table of one shard. Byte counts are {@code null} where the
+     * database does not report them.
+     */
+    public record TableSize(String shard, String database, Long rows, Long tableBytes, Long indexBytes,
+                            Map<String, Long> indexBytesByName, Double tableBytesPerRow, Double indexBytesPerRow) {
+
+        static TableSize of(String shard, String database, Long rows, Long tableBytes, Long indexBytes,
+                            Map<String, Long> indexBytesByName) {
+            return new TableSize(shard, database, rows, tableBytes, indexBytes, indexBytesByName,
+                    perRow(tableBytes, rows), perRow(indexBytes, rows));
+        }
+
+        private static Double perRow(Long bytes, Long rows) {
+            return bytes != null && rows != null && rows > 0 ? (double) bytes / rows : null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.progressoft.fxdeals.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Stores an amount with up to four decimal places as a {@code BIGINT} count of
+ * ten-thousandths. Amounts from 922,337,203,685,477.5808 upwards do not fit, although
+ * the deal schema allows fifteen integer digits.
+ */
+@Converter
+public class ScaledAmountConverter implements AttributeConverter<BigDecimal, Long> {
+
+    public static final int SCALE = 4;
+
+    public static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(Long.MAX_VALUE, SCALE);
+
+    public static boolean canConvert(BigDecimal amount) {
+        return amount != null && amount.stripTrailingZeros().scale() <= SCALE
+                && amount.abs().compareTo(MAX_AMOUNT) <= 0;
+    }
+
+    public static long toUnscaled(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " cannot be stored with " + SCALE
+                    + " decimal places in 64 bits", e);
+        }
+    }
+
+    public static BigDecimal fromUnscaled(long unscaled) {
+        return BigDecimal.valueOf(unscaled, SCALE);
+    }
+
+    @Override
+    public Long convertToDatabaseColumn(BigDecimal amount) {
+        return amount != null ? toUnscaled(amount) : null;
+    }
+
+    @Override
+    public BigDecimal convertToEntityAttribute(Long unscaled) {
+        return unscaled != null ? fromUnscaled(unscaled) : null;
+    }
+}
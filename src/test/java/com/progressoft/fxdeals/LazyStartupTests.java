@@ -0,0 +1,48 @@
+package com.progressoft.fxdeals;
+
+import com.progressoft.fxdeals.cache.RecentDealsBuffer;
+import com.progressoft.fxdeals.feed.DealFeed;
+import com.progressoft.fxdeals.feed.DealOutbox;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.main.lazy-initialization=true",
+        "fxdeals.feed.relay-enabled=true",
+        "springdoc.api-docs.enabled=false",
+        "springdoc.swagger-ui.enabled=false"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class LazyStartupTests {
+
+	@Autowired
+	private ConfigurableListableBeanFactory beanFactory;
+
+	@Autowired
+	private RecentDealsBuffer recentDealsBuffer;
+
+	@Autowired
+	private DealFeed dealFeed;
+
+	@Test
+	void shouldCreateDealSubmissionPathEagerly() {
+		// Then - the submission path exists before the first request, the rest waits for first use
+		assertThat(beanFactory.containsSingleton("dealController")).isTrue();
+		assertThat(beanFactory.containsSingleton("dealServiceImpl")).isTrue();
+		assertThat(beanFactory.containsSingleton("fxDealsOpenAPI")).isFalse();
+	}
+
+	@Test
+	void shouldStillStartDealPipelineWithLazyInitialization() {
+		// Then
+		assertThat(recentDealsBuffer.canServe(10)).isTrue();
+		assertThat(dealFeed.getPositions()).containsKey(DealOutbox.DEFAULT_SOURCE);
+	}
+}
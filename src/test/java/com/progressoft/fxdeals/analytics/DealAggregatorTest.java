@@ -0,0 +1,250 @@
+package com.progressoft.fxdeals.analytics;
+
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.config.AnalyticsProperties;
+import com.progressoft.fxdeals.config.ShardingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.exception.DealValidationException;
+import com.progressoft.fxdeals.model.dto.AggregateRequestDTO;
+import com.progressoft.fxdeals.model.dto.AggregateResponseDTO;
+import com.progressoft.fxdeals.model.dto.AggregateWindowDTO;
+import com.progressoft.fxdeals.model.dto.PairTotalsDTO;
+import com.progressoft.fxdeals.model.dto.WindowTotalsDTO;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.ArchiveSegmentRepository;
+import com.progressoft.fxdeals.repository.ArchivedDealKeyRepository;
+import com.progressoft.fxdeals.repository.DealRepository;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DealAggregatorTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private ArchiveSegmentRepository segmentRepository;
+
+    @Autowired
+    private ArchivedDealKeyRepository keyRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path archiveDirectory;
+
+    private final AnalyticsProperties properties = new AnalyticsProperties();
+    private DealAggregator dealAggregator;
+
+    @BeforeEach
+    void setUp() {
+        DealArchive dealArchive = new DealArchive(segmentRepository, keyRepository, archiveDirectory, 6);
+        dealAggregator = new DealAggregator(dataSource, transactionManager, new DealShardRouter(new ShardingProperties()),
+                dealArchive, DealStorageLayout.STANDARD, properties);
+        dealRepository.saveAll(List.of(
+                deal("D-1", "USD", "EUR", DAY.plusMinutes(10), "100.00"),
+                deal("D-2", "USD", "EUR", DAY.plusMinutes(70), "250.50"),
+                deal("D-3", "GBP", "USD", DAY.plusMinutes(80), "75.25"),
+                deal("D-4", "USD", "EUR", DAY.plusHours(5), "1000.00")));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        dealRepository.deleteAll();
+        dealAggregator.destroy();
+    }
+
+    @Test
+    void shouldTotalFollowingWindowsWithOneGroupedQuery() {
+        // Given - three hourly windows, one for a single pair, the others for every pair
+        AggregateRequestDTO request = new AggregateRequestDTO(List.of(
+                window(null, null, DAY, DAY.plusHours(1)),
+                window(null, null, DAY.plusHours(1), DAY.plusHours(2)),
+                window("usd", "eur", DAY, DAY.plusHours(2))), null);
+
+        // When
+        AggregateResponseDTO response = dealAggregator.aggregate(request);
+
+        // Then
+        assertThat(response.getStrategy()).isEqualTo("grouped");
+        assertThat(response.isComplete()).isTrue();
+        assertThat(response.getWindows()).extracting(WindowTotalsDTO::getPairs).containsExactly(
+                List.of(totals("USD", "EUR", 1, "100.00")),
+                List.of(totals("GBP", "USD", 1, "75.25"), totals("USD", "EUR", 1, "250.50")),
+                List.of(totals("USD", "EUR", 2, "350.50")));
+    }
+
+    @Test
+    void shouldQuerySpreadWindowsSeparatelyWithSameTotals() {
+        // Given - two short windows hours apart
+        AggregateRequestDTO request = new AggregateRequestDTO(List.of(
+                window("USD", "EUR", DAY, DAY.plusMinutes(30)),
+                window(null, null, DAY.plusHours(5), DAY.plusHours(6))), null);
+
+        // When
+        AggregateResponseDTO response = dealAggregator.aggregate(request);
+
+        // Then
+        assertThat(response.getStrategy()).isEqualTo("parallel");
+        assertThat(response.getWindows()).extracting(WindowTotalsDTO::getPairs).containsExactly(
+                List.of(totals("USD", "EUR", 1, "100.00")),
+                List.of(totals("USD", "EUR", 1, "1000.00")));
+    }
+
+    @Test
+    void shouldReturnIncompleteWindowsWhenTimeBudgetIsSpent() {
+        // Given - a single thread, kept busy past the budget by the first window
+        properties.setParallelism(1);
+        properties.setStrategy(AnalyticsProperties.Strategy.PARALLEL);
+        dealAggregator.destroy();
+        dealAggregator = new DealAggregator(dataSource, transactionManager, new DealShardRouter(new ShardingProperties()),
+                new SlowArchive(), DealStorageLayout.STANDARD, properties);
+        AggregateRequestDTO request = new AggregateRequestDTO(List.of(
+                window(null, null, DAY, DAY.plusHours(1)),
+                window(null, null, DAY.plusHours(5), DAY.plusHours(6))), 100L);
+
+        // When
+        AggregateResponseDTO response = dealAggregator.aggregate(request);
+
+        // Then
+        assertThat(response.isComplete()).isFalse();
+        assertThat(response.getWindows()).allSatisfy(window -> {
+            assertThat(window.isComplete()).isFalse();
+            assertThat(window.getPairs()).isNull();
+        });
+        assertThat(response.getElapsedMillis()).isLessThan(1_000);
+    }
+
+    @Test
+    void shouldCountDealsOnceWhileTheirSegmentIsWrittenButHotRowsAreNotDeleted() {
+        // Given - D-1 and D-2 archived but not deleted yet, D-0 archived and deleted
+        dealAggregator.destroy();
+        dealAggregator = new DealAggregator(dataSource, transactionManager, new DealShardRouter(new ShardingProperties()),
+                new FixedArchive(List.of(
+                        deal("D-0", "USD", "EUR", DAY.plusMinutes(5), "10.00"),
+                        deal("D-1", "USD", "EUR", DAY.plusMinutes(10), "100.00"),
+                        deal("D-2", "USD", "EUR", DAY.plusMinutes(70), "250.50"))),
+                DealStorageLayout.STANDARD, properties);
+        AggregateRequestDTO request = new AggregateRequestDTO(List.of(
+                window("USD", "EUR", DAY, DAY.plusHours(2))), null);
+
+        // When
+        AggregateResponseDTO response = dealAggregator.aggregate(request);
+
+        // Then
+        assertThat(response.getWindows()).extracting(WindowTotalsDTO::getPairs).containsExactly(
+                List.of(totals("USD", "EUR", 3, "360.50")));
+    }
+
+    @Test
+    void shouldGroupWindowsWhenSeparateQueriesWouldExceedTheCap() {
+        // Given
+        properties.setStrategy(AnalyticsProperties.Strategy.PARALLEL);
+        properties.setMaxParallelQueries(1);
+        AggregateRequestDTO request = new AggregateRequestDTO(List.of(
+                window(null, null, DAY, DAY.plusMinutes(30)),
+                window(null, null, DAY.plusHours(5), DAY.plusHours(6))), null);
+
+        // When
+        AggregateResponseDTO response = dealAggregator.aggregate(request);
+
+        // Then
+        assertThat(response.getStrategy()).isEqualTo("grouped");
+        assertThat(response.getWindows()).extracting(WindowTotalsDTO::getPairs).containsExactly(
+                List.of(totals("USD", "EUR", 1, "100.00")),
+                List.of(totals("USD", "EUR", 1, "1000.00")));
+    }
+
+    @Test
+    void shouldRejectWindowWithHalfAPair() {
+        // Given
+        AggregateRequestDTO request = new AggregateRequestDTO(List.of(window("USD", null, DAY, DAY.plusHours(1))), null);
+
+        // When & Then
+        assertThatThrownBy(() -> dealAggregator.aggregate(request))
+                .isInstanceOf(DealValidationException.class)
+                .hasMessageContaining("both currencies");
+    }
+
+    private static AggregateWindowDTO window(String from, String to, LocalDateTime start, LocalDateTime end) {
+        return new AggregateWindowDTO(from, to, start, end);
+    }
+
+    private static PairTotalsDTO totals(String from, String to, long count, String amount) {
+        BigDecimal total = new BigDecimal(amount);
+        return new PairTotalsDTO(from, to, count, total.setScale(4), total.setScale(4));
+    }
+
+    private static Deal deal(String id, String from, String to, LocalDateTime timestamp, String amount) {
+        Deal deal = new Deal(id, from, to, timestamp, new BigDecimal(amount));
+        deal.setUsdNotional(new BigDecimal(amount).setScale(4));
+        return deal;
+    }
+
+    /**
+     * An archive holding {@code deals}.
+     */
+    private class FixedArchive extends DealArchive {
+
+        private final List<Deal> deals;
+
+        FixedArchive(List<Deal> deals) {
+            super(segmentRepository, keyRepository, archiveDirectory, 6);
+            this.deals = deals;
+        }
+
+        @Override
+        public List<Deal> findDealsByTimestampRange(LocalDateTime startTime, LocalDateTime endTime) {
+            return deals.stream()
+                    .filter(deal -> !deal.getDealTimestamp().isBefore(startTime) && !deal.getDealTimestamp().isAfter(endTime))
+                    .toList();
+        }
+    }
+
+    /**
+     * An archive that takes two seconds to search.
+     */
+    private class SlowArchive extends DealArchive {
+
+        SlowArchive() {
+            super(segmentRepository, keyRepository, archiveDirectory, 6);
+        }
+
+        @Override
+        public List<Deal> findDealsByTimestampRange(LocalDateTime startTime, LocalDateTime endTime) {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.progressoft.fxdeals.archive;
+
+import com.progressoft.fxdeals.config.ArchiveProperties;
+import com.progressoft.fxdeals.config.ShardingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.ArchiveSegmentRepository;
+import com.progressoft.fxdeals.repository.ArchivedDealKeyRepository;
+import com.progressoft.fxdeals.repository.DealRepository;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DealArchiverTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private ArchiveSegmentRepository segmentRepository;
+
+    @Autowired
+    private ArchivedDealKeyRepository keyRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path archiveDirectory;
+
+    private DealArchive dealArchive;
+    private DealArchiver dealArchiver;
+
+    @BeforeEach
+    void setUp() {
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setDirectory(archiveDirectory);
+        properties.setSegmentRows(10);
+        properties.setBatchSize(4);
+        dealArchive = new DealArchive(segmentRepository, keyRepository, archiveDirectory, properties.getCompressionLevel());
+        dealArchiver = new DealArchiver(dataSource, transactionManager, new DealShardRouter(new ShardingProperties()),
+                dealArchive, segmentRepository, DealStorageLayout.STANDARD, event -> { }, properties);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        dealRepository.deleteAll();
+        keyRepository.deleteAll();
+        segmentRepository.deleteAll();
+    }
+
+    @Test
+    void shouldMoveOldDealsIntoSegmentsAndKeepThemQueryable() throws IOException {
+        // Given - 25 deals before the cutoff and 3 after it
+        for (int i = 0; i < 28; i++) {
+            Deal deal = new Deal("ARCHIVE-" + i, "EUR", "USD", CUTOFF.minusDays(25).plusDays(i).plusMinutes(i),
+                    new BigDecimal("100.5").add(BigDecimal.valueOf(i)));
+            deal.setUsdNotional(i % 2 == 0 ? new BigDecimal("108.9621") : null);
+            dealRepository.save(deal);
+        }
+
+        // When
+        DealArchiver.ArchiveReport report = dealArchiver.archive(CUTOFF);
+
+        // Then
+        assertThat(report.archived()).isEqualTo(25);
+        assertThat(report.segments()).isEqualTo(3);
+        assertThat(report.archivedPerShard()).containsEntry("deals", 25L);
+        assertThat(dealRepository.findAll()).extracting(Deal::getDealUniqueId)
+                .containsExactlyInAnyOrder("ARCHIVE-25", "ARCHIVE-26", "ARCHIVE-27");
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            assertThat(files).hasSize(3).allMatch(file -> file.toString().endsWith(DealArchive.FILE_SUFFIX));
+        }
+
+        List<Deal> archived = dealArchive.findDealsByTimestampRange(CUTOFF.minusDays(10), CUTOFF);
+        assertThat(archived).extracting(Deal::getDealUniqueId)
+                .containsExactly("ARCHIVE-24", "ARCHIVE-23", "ARCHIVE-22", "ARCHIVE-21", "ARCHIVE-20",
+                        "ARCHIVE-19", "ARCHIVE-18", "ARCHIVE-17", "ARCHIVE-16", "ARCHIVE-15");
+        assertThat(dealArchive.contains("ARCHIVE-7")).isTrue();
+        assertThat(dealArchive.contains("ARCHIVE-25")).isFalse();
+        assertThat(dealArchive.findDeal("ARCHIVE-8")).hasValueSatisfying(deal -> {
+            assertThat(deal.getDealAmount()).isEqualByComparingTo("108.5");
+            assertThat(deal.getUsdNotional()).isEqualByComparingTo("108.9621");
+            assertThat(deal.getDealTimestamp()).isEqualTo(CUTOFF.minusDays(17).plusMinutes(8));
+        });
+    }
+
+    @Test
+    void shouldOnlyDeleteHotRowsAlreadyArchivedByAnInterruptedRun() {
+        // Given - a deal archived earlier whose hot row was never deleted
+        dealRepository.save(new Deal("ARCHIVE-LEFTOVER", "GBP", "USD", CUTOFF.minusDays(3), new BigDecimal("10")));
+        dealArchiver.archive(CUTOFF);
+        dealRepository.save(new Deal("ARCHIVE-LEFTOVER", "GBP", "USD", CUTOFF.minusDays(3), new BigDecimal("10")));
+
+        // When
+        DealArchiver.ArchiveReport report = dealArchiver.archive(CUTOFF);
+
+        // Then
+        assertThat(report.archived()).isZero();
+        assertThat(report.segments()).isZero();
+        assertThat(dealRepository.count()).isZero();
+        assertThat(segmentRepository.count()).isEqualTo(1);
+        assertThat(dealArchiver.status().lastReport()).isEqualTo(report);
+    }
+}
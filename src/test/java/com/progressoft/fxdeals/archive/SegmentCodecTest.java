@@ -0,0 +1,73 @@
+package com.progressoft.fxdeals.archive;
+
+import com.progressoft.fxdeals.model.entity.Deal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentCodecTest {
+
+    @Test
+    void shouldRoundTripEveryColumn() throws IOException {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2023, 3, 14, 9, 26, 53, 589_793_000);
+        List<Deal> deals = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Deal deal = new Deal("DEAL-" + i, i % 3 == 0 ? "EUR" : "JPY", i % 2 == 0 ? "USD" : "GBP",
+                    base.plusSeconds(i * 37L), new BigDecimal("1000.25").add(BigDecimal.valueOf(i)));
+            deal.setId(10_000L + i * 3L);
+            deal.setUsdNotional(i % 5 == 0 ? null : new BigDecimal("1084.2271"));
+            deal.setCreatedAt(deal.getDealTimestamp().plusNanos(i * 1_000L).minusHours(i % 2));
+            deals.add(deal);
+        }
+        Deal largest = deals.get(499);
+        largest.setDealAmount(new BigDecimal("999999999999999.9999"));
+        largest.setUsdNotional(new BigDecimal("-1.5"));
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentCodec.write(deals, out, Deflater.DEFAULT_COMPRESSION);
+        List<Deal> read = SegmentCodec.read(new ByteArrayInputStream(out.toByteArray()));
+
+        // Then
+        assertThat(read).hasSize(500);
+        for (int i = 0; i < 500; i++) {
+            Deal expected = deals.get(i);
+            Deal actual = read.get(i);
+            assertThat(actual.getId()).isEqualTo(expected.getId());
+            assertThat(actual.getDealUniqueId()).isEqualTo(expected.getDealUniqueId());
+            assertThat(actual.getFromCurrency()).isEqualTo(expected.getFromCurrency());
+            assertThat(actual.getToCurrency()).isEqualTo(expected.getToCurrency());
+            assertThat(actual.getDealTimestamp()).isEqualTo(expected.getDealTimestamp());
+            assertThat(actual.getCreatedAt()).isEqualTo(expected.getCreatedAt());
+            assertThat(actual.getDealAmount()).isEqualByComparingTo(expected.getDealAmount());
+            if (expected.getUsdNotional() == null) {
+                assertThat(actual.getUsdNotional()).isNull();
+            } else {
+                assertThat(actual.getUsdNotional()).isEqualByComparingTo(expected.getUsdNotional());
+            }
+        }
+        assertThat(out.size()).isLessThan(500 * 20);
+    }
+
+    @Test
+    void shouldRejectFilesThatAreNotSegments() {
+        // Given
+        byte[] notASegment = "deal_unique_id,from_currency\n".getBytes();
+
+        // When & Then
+        assertThatThrownBy(() -> SegmentCodec.read(new ByteArrayInputStream(notASegment)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an archive segment");
+    }
+}
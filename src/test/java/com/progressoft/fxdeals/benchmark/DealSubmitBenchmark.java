@@ -0,0 +1,135 @@
+package com.progressoft.fxdeals.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progressoft.fxdeals.FxdealsApplication;
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.exception.DuplicateDealException;
+import com.progressoft.fxdeals.fx.FxRateTable;
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.model.entity.DealOutboxEntry;
+import com.progressoft.fxdeals.repository.DealOutboxRepository;
+import com.progressoft.fxdeals.repository.DealRepository;
+import com.progressoft.fxdeals.service.DealService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submitting one deal, from its JSON body to the response, two ways side by side.
+ * {@link #submitDeal} goes through {@link DealService#submitDeal} as the controller
+ * does: the duplicate checks, the JDBC insert bound from the request record, and the
+ * feed outbox, in one transaction. {@link #persistEntities} is the path it replaced:
+ * the same checks, then a {@link Deal} and a {@link DealOutboxEntry} persisted through
+ * their JPA repositories and the response copied from the saved entity. Run with
+ * {@code -prof gc}, whose {@code gc.alloc.rate.norm} is the bytes allocated per deal;
+ * see Performance in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 15, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DealSubmitBenchmark {
+
+    private static final byte[] BODY = """
+            {"dealUniqueId":"BENCH","fromCurrency":"EUR","toCurrency":"USD",\
+            "dealTimestamp":"2024-01-15T10:30:00","dealAmount":1000.50}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private DealService dealService;
+    private DealArchive dealArchive;
+    private FxRateTable fxRateTable;
+    private TransactionTemplate transactionTemplate;
+    private DealRepository dealRepository;
+    private DealOutboxRepository outboxRepository;
+    private long sequence;
+
+    @Setup
+    public void startApplication() {
+        context = new SpringApplicationBuilder(FxdealsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                // Arguments, as default properties would not override the test profile
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.progressoft.fxdeals=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN");
+        objectMapper = context.getBean(ObjectMapper.class);
+        dealService = context.getBean(DealService.class);
+        dealArchive = context.getBean(DealArchive.class);
+        fxRateTable = context.getBean(FxRateTable.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        dealRepository = context.getBean(DealRepository.class);
+        outboxRepository = context.getBean(DealOutboxRepository.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteDeals() {
+        dealRepository.deleteAllInBatch();
+        outboxRepository.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public DealResponseDTO submitDeal() throws IOException {
+        return dealService.submitDeal(nextRequest());
+    }
+
+    @Benchmark
+    public DealResponseDTO persistEntities() throws IOException {
+        DealRequestDTO request = nextRequest();
+        return transactionTemplate.execute(status -> {
+            if (dealRepository.existsByDealUniqueId(request.dealUniqueId())
+                    || dealArchive.contains(request.dealUniqueId())) {
+                throw new DuplicateDealException(request.dealUniqueId());
+            }
+            Deal deal = new Deal(request.dealUniqueId(), request.fromCurrency(), request.toCurrency(),
+                    request.dealTimestamp(), request.dealAmount());
+            deal.setUsdNotional(fxRateTable.usdNotional(deal.getFromCurrency(), deal.getDealAmount()));
+            Deal saved = dealRepository.save(deal);
+            DealResponseDTO response = new DealResponseDTO(saved.getId(), saved.getDealUniqueId(),
+                    saved.getFromCurrency(), saved.getToCurrency(), saved.getDealTimestamp(),
+                    saved.getDealAmount(), saved.getUsdNotional(), saved.getCreatedAt());
+            try {
+                outboxRepository.save(new DealOutboxEntry(response.dealUniqueId(),
+                        objectMapper.writeValueAsString(response)));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return response;
+        });
+    }
+
+    private DealRequestDTO nextRequest() throws IOException {
+        DealRequestDTO parsed = objectMapper.readValue(BODY, DealRequestDTO.class);
+        return new DealRequestDTO("BENCH-" + sequence++, parsed.fromCurrency(), parsed.toCurrency(),
+                parsed.dealTimestamp(), parsed.dealAmount());
+    }
+}
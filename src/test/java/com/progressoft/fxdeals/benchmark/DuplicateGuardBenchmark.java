@@ -0,0 +1,60 @@
+package com.progressoft.fxdeals.benchmark;
+
+import com.progressoft.fxdeals.config.DuplicateGuardProperties;
+import com.progressoft.fxdeals.ingest.DuplicateGuard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the duplicate guard costs a submission of a new deal, the usual case, when
+ * submitted from several threads at once: the negative cache lookup and the top
+ * deal ID and client counts. One in a hundred submissions is a duplicate, which
+ * the database would reject.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class DuplicateGuardBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private DuplicateGuard duplicateGuard;
+
+    @Setup
+    public void createGuard() {
+        DuplicateGuardProperties properties = new DuplicateGuardProperties();
+        properties.setEnabled(enabled);
+        duplicateGuard = new DuplicateGuard(properties);
+    }
+
+    @Benchmark
+    public boolean submitNewDeal() {
+        long next = sequence.incrementAndGet();
+        String dealUniqueId = "DEAL-" + next;
+        boolean known = duplicateGuard.isKnownDuplicate(dealUniqueId);
+        if (next % 100 == 0) {
+            duplicateGuard.recordDuplicate(dealUniqueId);
+        }
+        duplicateGuard.recordClient("client-" + (next & 7), false);
+        return known;
+    }
+}
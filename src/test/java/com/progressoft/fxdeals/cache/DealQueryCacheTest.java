@@ -0,0 +1,213 @@
+package com.progressoft.fxdeals.cache;
+
+import com.progressoft.fxdeals.config.QueryCacheProperties;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DealQueryCacheTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 1, 15, 10, 0);
+
+    private final List<DealResponseDTO> stored = new ArrayList<>();
+    private final List<String> loads = new ArrayList<>();
+    private final List<String> pairLoads = new ArrayList<>();
+
+    @Test
+    void shouldServeRepeatedTimestampRangesFromCachedBuckets() {
+        // Given
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofHours(1), DataSize.ofMegabytes(1)));
+        store("D-1", HOUR.plusMinutes(10));
+        store("D-2", HOUR.plusMinutes(50));
+        store("D-3", HOUR.plusMinutes(80));
+        store("D-4", HOUR.plusMinutes(150));
+
+        // When
+        List<DealResponseDTO> first = cache.findByTimestampRange(HOUR, HOUR.plusMinutes(119), this::load);
+        List<DealResponseDTO> again = cache.findByTimestampRange(HOUR, HOUR.plusMinutes(119), this::load);
+        List<DealResponseDTO> narrower = cache.findByTimestampRange(HOUR.plusMinutes(30), HOUR.plusMinutes(90), this::load);
+
+        // Then - both buckets were loaded with one query and the later ranges came from the cache
+        assertThat(ids(first)).containsExactly("D-3", "D-2", "D-1");
+        assertThat(ids(again)).containsExactly("D-3", "D-2", "D-1");
+        assertThat(ids(narrower)).containsExactly("D-3", "D-2");
+        assertThat(loads).containsExactly(HOUR + ".." + HOUR.plusHours(2));
+        assertThat(cache.stats().hits()).isEqualTo(4);
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReloadOnlyTheBucketOfASubmittedDeal() {
+        // Given
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofHours(1), DataSize.ofMegabytes(1)));
+        store("D-1", HOUR.plusMinutes(10));
+        store("D-2", HOUR.plusMinutes(80));
+        cache.findByTimestampRange(HOUR, HOUR.plusMinutes(119), this::load);
+
+        // When
+        DealResponseDTO late = store("D-3", HOUR.plusMinutes(100));
+        cache.invalidate(late);
+        List<DealResponseDTO> result = cache.findByTimestampRange(HOUR, HOUR.plusMinutes(119), this::load);
+
+        // Then
+        assertThat(ids(result)).containsExactly("D-3", "D-2", "D-1");
+        assertThat(loads).containsExactly(HOUR + ".." + HOUR.plusHours(2), HOUR.plusHours(1) + ".." + HOUR.plusHours(2));
+    }
+
+    @Test
+    void shouldNotCacheAResultLoadedWhileADealWasSubmitted() {
+        // Given - a deal commits while the first query is reading
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofHours(1), DataSize.ofMegabytes(1)));
+        store("D-1", HOUR.plusMinutes(10));
+        BiFunction<LocalDateTime, LocalDateTime, List<DealResponseDTO>> racingLoader = (from, to) -> {
+            List<DealResponseDTO> result = load(from, to);
+            if (loads.size() == 1) {
+                cache.invalidate(store("D-2", HOUR.plusMinutes(20)));
+            }
+            return result;
+        };
+
+        // When
+        List<DealResponseDTO> first = cache.findByTimestampRange(HOUR, HOUR.plusMinutes(59), racingLoader);
+        List<DealResponseDTO> second = cache.findByTimestampRange(HOUR, HOUR.plusMinutes(59), racingLoader);
+
+        // Then
+        assertThat(ids(first)).containsExactly("D-1");
+        assertThat(ids(second)).containsExactly("D-2", "D-1");
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBucketsBeyondMaxSize() {
+        // Given - each bucket holds one deal, about 450 bytes
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofHours(1), DataSize.ofBytes(4_000)));
+        for (int i = 0; i < 9; i++) {
+            store("D-" + i, HOUR.plusHours(i).plusMinutes(5));
+        }
+
+        // When
+        for (int i = 0; i < 9; i++) {
+            cache.findByTimestampRange(HOUR.plusHours(i), HOUR.plusHours(i).plusMinutes(59), this::load);
+        }
+        cache.findByTimestampRange(HOUR.plusHours(8), HOUR.plusHours(8).plusMinutes(59), this::load);
+        cache.findByTimestampRange(HOUR, HOUR.plusMinutes(59), this::load);
+
+        // Then - the oldest bucket was evicted and loaded again, the newest stayed
+        assertThat(loads).hasSize(10);
+        assertThat(cache.stats().evictions()).isGreaterThanOrEqualTo(1);
+        assertThat(cache.stats().estimatedBytes()).isLessThanOrEqualTo(4_000);
+    }
+
+    @Test
+    void shouldInvalidateOnlyTheCurrentPartOfACurrencyPair() {
+        // Given
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofDays(1), DataSize.ofMegabytes(1)));
+        LocalDateTime now = LocalDateTime.now();
+        store("D-1", now.minusDays(3));
+        store("D-2", now);
+        cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+
+        // When
+        cache.invalidate(deal("OTHER", "GBP", "USD", now));
+        cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+        cache.invalidate(store("D-3", now));
+        List<DealResponseDTO> result = cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+
+        // Then
+        assertThat(ids(result)).containsExactlyInAnyOrder("D-3", "D-2", "D-1");
+        assertThat(ids(result).get(2)).isEqualTo("D-1");
+        assertThat(pairLoads).containsExactly("since", "before", "since");
+    }
+
+    @Test
+    void shouldCachePairHistoryLargerThanAnEntryShareBucketByBucket() {
+        // Given - the history takes more than an eighth of the cache, each of its buckets less
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofDays(1), DataSize.ofBytes(4_000)));
+        LocalDateTime now = LocalDateTime.now();
+        store("D-1", now.minusDays(3));
+        store("D-2", now.minusDays(2));
+        store("D-3", now.minusDays(1));
+        cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+
+        // When
+        List<DealResponseDTO> cached = cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+        cache.invalidate(store("D-4", now.minusDays(2).plusSeconds(1)));
+        List<DealResponseDTO> afterLateDeal = cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+
+        // Then - a late deal in a closed bucket only reloads that bucket
+        assertThat(ids(cached)).containsExactly("D-3", "D-2", "D-1");
+        assertThat(ids(afterLateDeal)).containsExactly("D-3", "D-4", "D-2", "D-1");
+        assertThat(pairLoads).containsExactly("since", "before", "bucket");
+    }
+
+    @Test
+    void shouldReadOnlyTheBucketThatClosedWhenTheCurrentBucketRollsOver() throws InterruptedException {
+        // Given - one second buckets, queried right after one opens
+        DealQueryCache cache = new DealQueryCache(properties(Duration.ofSeconds(1), DataSize.ofMegabytes(1)));
+        store("D-1", LocalDateTime.now().minusDays(1));
+        awaitNextSecond();
+        store("D-2", LocalDateTime.now());
+        cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+
+        // When
+        awaitNextSecond();
+        List<DealResponseDTO> result = cache.findByCurrencyPair("USD", "EUR", this::loadPair);
+
+        // Then
+        assertThat(ids(result)).containsExactly("D-2", "D-1");
+        assertThat(pairLoads).containsExactly("since", "before", "since", "bucket");
+    }
+
+    private List<DealResponseDTO> load(LocalDateTime from, LocalDateTime to) {
+        loads.add(from + ".." + to);
+        return stored.stream()
+                .filter(deal -> !deal.dealTimestamp().isBefore(from) && !deal.dealTimestamp().isAfter(to))
+                .sorted(Comparator.comparing(DealResponseDTO::dealTimestamp).reversed())
+                .toList();
+    }
+
+    private List<DealResponseDTO> loadPair(LocalDateTime since, LocalDateTime before) {
+        pairLoads.add(since == null ? "before" : before == null ? "since" : "bucket");
+        return stored.stream()
+                .filter(deal -> since == null || !deal.dealTimestamp().isBefore(since))
+                .filter(deal -> before == null || deal.dealTimestamp().isBefore(before))
+                .sorted(Comparator.comparing(DealResponseDTO::dealTimestamp).reversed())
+                .toList();
+    }
+
+    private static void awaitNextSecond() throws InterruptedException {
+        Thread.sleep(1_000 - LocalDateTime.now().getNano() / 1_000_000 + 50);
+    }
+
+    private DealResponseDTO store(String id, LocalDateTime timestamp) {
+        DealResponseDTO deal = deal(id, "USD", "EUR", timestamp);
+        stored.add(deal);
+        return deal;
+    }
+
+    private static DealResponseDTO deal(String id, String from, String to, LocalDateTime timestamp) {
+        return new DealResponseDTO(1L, id, from, to, timestamp, new BigDecimal("100.00"), null, timestamp);
+    }
+
+    private static List<String> ids(List<DealResponseDTO> deals) {
+        return deals.stream().map(DealResponseDTO::dealUniqueId).toList();
+    }
+
+    private static QueryCacheProperties properties(Duration bucket, DataSize maxSize) {
+        QueryCacheProperties properties = new QueryCacheProperties();
+        properties.setBucket(bucket);
+        properties.setMaxSize(maxSize);
+        properties.setSettleDelay(Duration.ZERO);
+        return properties;
+    }
+}
@@ -0,0 +1,138 @@
+package com.progressoft.fxdeals.cache;
+
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import com.progressoft.fxdeals.service.DealService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecentDealsBufferTest {
+
+    @Mock
+    private ObjectProvider<DealService> dealServiceProvider;
+
+    @Mock
+    private DealService dealService;
+
+    private RecentDealsBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new RecentDealsBuffer(5, dealServiceProvider);
+    }
+
+    @Test
+    void shouldReturnNewestFirst() {
+        // Given
+        buffer.add(deal("DEAL-001"));
+        buffer.add(deal("DEAL-002"));
+        buffer.add(deal("DEAL-003"));
+
+        // When
+        List<DealResponseDTO> latest = buffer.latest(2);
+
+        // Then
+        assertThat(latest).extracting(DealResponseDTO::dealUniqueId).containsExactly("DEAL-003", "DEAL-002");
+    }
+
+    @Test
+    void shouldKeepOnlyLastDealsUpToCapacity() {
+        // Given
+        for (int i = 1; i <= 12; i++) {
+            buffer.add(deal("DEAL-" + i));
+        }
+
+        // When
+        List<DealResponseDTO> latest = buffer.latest(10);
+
+        // Then
+        assertThat(latest).extracting(DealResponseDTO::dealUniqueId)
+                .containsExactly("DEAL-12", "DEAL-11", "DEAL-10", "DEAL-9", "DEAL-8");
+    }
+
+    @Test
+    void shouldPrimeFromServiceOldestLast() {
+        // Given
+        when(dealServiceProvider.getObject()).thenReturn(dealService);
+        when(dealService.getRecentDeals(5)).thenReturn(List.of(deal("DEAL-002"), deal("DEAL-001")));
+
+        // When
+        buffer.afterSingletonsInstantiated();
+        buffer.add(deal("DEAL-003"));
+
+        // Then
+        assertThat(buffer.canServe(5)).isTrue();
+        assertThat(buffer.canServe(6)).isFalse();
+        assertThat(buffer.latest(5)).extracting(DealResponseDTO::dealUniqueId)
+                .containsExactly("DEAL-003", "DEAL-002", "DEAL-001");
+    }
+
+    @Test
+    void shouldNotServeWhenPrimingFails() {
+        // Given
+        when(dealServiceProvider.getObject()).thenReturn(dealService);
+        when(dealService.getRecentDeals(5)).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When
+        buffer.afterSingletonsInstantiated();
+
+        // Then
+        assertThat(buffer.canServe(1)).isFalse();
+    }
+
+    @Test
+    void shouldAcceptConcurrentWriters() throws Exception {
+        // Given
+        RecentDealsBuffer large = new RecentDealsBuffer(1000, dealServiceProvider);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        for (int w = 0; w < 8; w++) {
+            int writer = w;
+            writers.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 500; i++) {
+                    large.add(deal("W" + writer + "-" + i));
+                }
+            });
+        }
+        start.countDown();
+        writers.shutdown();
+        assertThat(writers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // Then - exactly the last 1000 of 4000 deals, each once
+        List<DealResponseDTO> latest = large.latest(1000);
+        Set<String> ids = new HashSet<>(latest.stream().map(DealResponseDTO::dealUniqueId).toList());
+        assertThat(latest).hasSize(1000);
+        assertThat(ids).hasSize(1000);
+    }
+
+    private static DealResponseDTO deal(String dealUniqueId) {
+        return new DealResponseDTO(1L, dealUniqueId, "USD", "EUR",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("1000.50"),
+                new BigDecimal("1000.5000"), LocalDateTime.now());
+    }
+}
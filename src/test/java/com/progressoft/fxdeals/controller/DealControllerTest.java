@@ -1,8 +1,18 @@
 package com.progressoft.fxdeals.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progressoft.fxdeals.analytics.DealAggregator;
+import com.progressoft.fxdeals.exception.DealNotFoundException;
+import com.progressoft.fxdeals.exception.DealOutcomeUnknownException;
+import com.progressoft.fxdeals.feed.DealStreamService;
+import com.progressoft.fxdeals.ingest.MicroBatcher;
+import com.progressoft.fxdeals.model.dto.AggregateRequestDTO;
+import com.progressoft.fxdeals.model.dto.AggregateResponseDTO;
+import com.progressoft.fxdeals.model.dto.AggregateWindowDTO;
 import com.progressoft.fxdeals.model.dto.DealRequestDTO;
 import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import com.progressoft.fxdeals.model.dto.PairTotalsDTO;
+import com.progressoft.fxdeals.model.dto.WindowTotalsDTO;
 import com.progressoft.fxdeals.service.DealService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,11 +21,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -30,6 +44,12 @@ class DealControllerTest {
     @MockBean
     private DealService dealService;
 
+    @MockBean
+    private DealStreamService dealStreamService;
+
+    @MockBean
+    private DealAggregator dealAggregator;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -53,6 +73,7 @@ class DealControllerTest {
                 "EUR",
                 LocalDateTime.of(2024, 1, 15, 10, 30, 0),
                 new BigDecimal("1000.50"),
+                new BigDecimal("1000.5000"),
                 LocalDateTime.now()
         );
     }
@@ -76,7 +97,7 @@ class DealControllerTest {
     @Test
     void shouldReturnBadRequestForInvalidDealData() throws Exception {
         // Given
-        DealRequestDTO invalidRequest = new DealRequestDTO();
+        DealRequestDTO invalidRequest = new DealRequestDTO(null, null, null, null, null);
 
         // When & Then
         mockMvc.perform(post("/api/v1/deals")
@@ -85,6 +106,21 @@ class DealControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldReturnServiceUnavailableWhenOutcomeOfDealIsUnknown() throws Exception {
+        // Given
+        when(dealService.submitDeal(any(DealRequestDTO.class))).thenThrow(new DealOutcomeUnknownException("DEAL-001",
+                new MicroBatcher.OutcomeUnknownException("deal-submit did not finish the batch")));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/deals")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validDealRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("OUTCOME_UNKNOWN"))
+                .andExpect(jsonPath("$.message").value(containsString("may have been stored")));
+    }
+
     @Test
     void shouldReturnHealthCheckSuccessfully() throws Exception {
         // When & Then
@@ -93,4 +129,124 @@ class DealControllerTest {
                 .andExpect(jsonPath("$.status").value("UP"))
                 .andExpect(jsonPath("$.service").value("FX Deals API"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void shouldGetDealByUniqueId() throws Exception {
+        // Given
+        when(dealService.getDealByUniqueId("DEAL-001")).thenReturn(dealResponse);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/DEAL-001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dealUniqueId").value("DEAL-001"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownDeal() throws Exception {
+        // Given
+        when(dealService.getDealByUniqueId("NON-EXISTENT")).thenThrow(new DealNotFoundException("NON-EXISTENT"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/NON-EXISTENT"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("DEAL_NOT_FOUND"));
+    }
+
+    @Test
+    void shouldGetDealsByTimestampRange() throws Exception {
+        // Given
+        when(dealService.getDealsByTimestampRange(
+                eq(LocalDateTime.of(2024, 1, 15, 0, 0)), eq(LocalDateTime.of(2024, 1, 16, 0, 0))))
+                .thenReturn(List.of(dealResponse));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/time-range")
+                .param("start", "2024-01-15T00:00:00")
+                .param("end", "2024-01-16T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].dealUniqueId").value("DEAL-001"));
+    }
+
+    @Test
+    void shouldReturnBadRequestForMalformedTimestamp() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/time-range")
+                .param("start", "yesterday")
+                .param("end", "2024-01-16T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetDealsByCurrencyPair() throws Exception {
+        // Given
+        when(dealService.getDealsByCurrencyPair("USD", "EUR")).thenReturn(List.of(dealResponse));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/currency-pair")
+                .param("from", "USD")
+                .param("to", "EUR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].fromCurrency").value("USD"));
+    }
+
+    @Test
+    void shouldAggregateDealsOverWindows() throws Exception {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 0, 0);
+        AggregateRequestDTO request = new AggregateRequestDTO(
+                List.of(new AggregateWindowDTO("USD", "EUR", start, start.plusHours(1))), null);
+        when(dealAggregator.aggregate(request)).thenReturn(new AggregateResponseDTO("grouped", true, 3, List.of(
+                new WindowTotalsDTO("USD", "EUR", start, start.plusHours(1), true, List.of(
+                        new PairTotalsDTO("USD", "EUR", 2, new BigDecimal("1500.50"), new BigDecimal("1500.5000")))))));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/deals/aggregates")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.complete").value(true))
+                .andExpect(jsonPath("$.windows[0].pairs[0].dealCount").value(2));
+    }
+
+    @Test
+    void shouldReturnBadRequestForAggregateWithoutWindows() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/api/v1/deals/aggregates")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"windows\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetRecentDeals() throws Exception {
+        // Given
+        when(dealService.getRecentDeals(5)).thenReturn(List.of(dealResponse));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/recent").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void shouldOpenRecentDealsStream() throws Exception {
+        // Given
+        when(dealStreamService.subscribe(10, null)).thenReturn(new SseEmitter());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/recent/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void shouldResumeRecentDealsStreamFromLastEventId() throws Exception {
+        // Given
+        when(dealStreamService.subscribe(10, "42")).thenReturn(new SseEmitter());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/deals/recent/stream")
+                        .header("Last-Event-ID", "42")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
+}
@@ -0,0 +1,74 @@
+package com.progressoft.fxdeals.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 30_000;
+
+    @Test
+    void shouldAssignSameShardAcrossRingInstances() {
+        // Given
+        ConsistentHashRing first = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 256);
+        ConsistentHashRing second = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 256);
+
+        // When & Then
+        for (int i = 0; i < 1000; i++) {
+            String key = "DEAL-" + i;
+            assertThat(first.shardFor(key)).isEqualTo(second.shardFor(key));
+        }
+    }
+
+    @Test
+    void shouldSpreadKeysEvenly() {
+        // Given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 256);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // When
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.shardFor("DEAL-" + i), 1, Integer::sum);
+        }
+
+        // Then - each shard within 20% of a fair share
+        assertThat(counts).hasSize(3);
+        assertThat(counts.values()).allSatisfy(count ->
+                assertThat(count).isBetween(KEYS / 3 * 8 / 10, KEYS / 3 * 12 / 10));
+    }
+
+    @Test
+    void shouldOnlyMoveKeysToAddedShard() {
+        // Given
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 256);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c", "shard-d"), 256);
+        int moved = 0;
+
+        // When
+        for (int i = 0; i < KEYS; i++) {
+            String key = "DEAL-" + i;
+            String oldShard = before.shardFor(key);
+            String newShard = after.shardFor(key);
+            if (!oldShard.equals(newShard)) {
+                assertThat(newShard).isEqualTo("shard-d");
+                moved++;
+            }
+        }
+
+        // Then - roughly a quarter of the keys move
+        assertThat(moved).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10);
+    }
+
+    @Test
+    void shouldRejectEmptyShardList() {
+        // When & Then
+        assertThatThrownBy(() -> new ConsistentHashRing(List.of(), 256))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
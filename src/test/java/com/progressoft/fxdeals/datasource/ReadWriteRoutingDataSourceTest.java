@@ -0,0 +1,100 @@
+package com.progressoft.fxdeals.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica1;
+    private EmbeddedDatabase replica2;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica1 = database("replica-1");
+        replica2 = database("replica-2");
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, List.of(replica1, replica2)));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.shutdown();
+        replica1.shutdown();
+        replica2.shutdown();
+    }
+
+    @Test
+    void shouldRouteReadWriteTransactionsToPrimary() {
+        // When
+        String instance = readWriteTransaction.execute(status -> currentInstance());
+
+        // Then
+        assertThat(instance).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsAcrossReplicas() {
+        // When
+        String first = readOnlyTransaction.execute(status -> currentInstance());
+        String second = readOnlyTransaction.execute(status -> currentInstance());
+
+        // Then
+        assertThat(List.of(first, second)).containsExactlyInAnyOrder("replica-1", "replica-2");
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionToPrimaryWhenForced() {
+        // When
+        String instance = readOnlyTransaction.execute(status ->
+                ReplicaRoutingContext.onPrimary(this::currentInstance));
+
+        // Then
+        assertThat(instance).isEqualTo("primary");
+        assertThat(ReplicaRoutingContext.isPrimaryForced()).isFalse();
+    }
+
+    @Test
+    void shouldRouteNonTransactionalAccessToPrimary() {
+        // When & Then
+        assertThat(currentInstance()).isEqualTo("primary");
+    }
+
+    private String currentInstance() {
+        return jdbcTemplate.queryForObject("SELECT name FROM instance", String.class);
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate template = new JdbcTemplate(database);
+        template.execute("CREATE TABLE instance (name VARCHAR(20))");
+        template.update("INSERT INTO instance (name) VALUES (?)", name);
+        return database;
+    }
+}
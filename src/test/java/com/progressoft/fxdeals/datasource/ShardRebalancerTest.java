@@ -0,0 +1,149 @@
+package com.progressoft.fxdeals.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRebalancerTest {
+
+    private static final int DEALS = 200;
+
+    private final Map<String, DataSource> shards = new LinkedHashMap<>();
+    private ConsistentHashRing ring;
+
+    @BeforeEach
+    void setUp() {
+        for (String name : List.of("shard-a", "shard-b", "shard-c")) {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true)
+                    .build();
+            new JdbcTemplate(database).execute("""
+                    CREATE TABLE deals (
+                        id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        deal_unique_id VARCHAR(100) NOT NULL UNIQUE,
+                        from_currency VARCHAR(3) NOT NULL,
+                        to_currency VARCHAR(3) NOT NULL,
+                        deal_timestamp TIMESTAMP NOT NULL,
+                        deal_amount DECIMAL(19, 4) NOT NULL,
+                        created_at TIMESTAMP NOT NULL)""");
+            new JdbcTemplate(database).execute(
+                    "CREATE TABLE deal_archive_keys (deal_unique_id VARCHAR(100) PRIMARY KEY, segment_id BIGINT NOT NULL)");
+            shards.put(name, database);
+        }
+        ring = new ConsistentHashRing(shards.keySet(), 256);
+
+        // All deals start on shard-a, as if shard-b and shard-c had just been added
+        JdbcTemplate shardA = new JdbcTemplate(shards.get("shard-a"));
+        for (int i = 0; i < DEALS; i++) {
+            shardA.update("INSERT INTO deals (deal_unique_id, from_currency, to_currency, deal_timestamp, deal_amount, created_at) "
+                            + "VALUES (?, 'USD', 'EUR', ?, ?, ?)",
+                    "DEAL-" + i, Timestamp.valueOf(LocalDateTime.of(2024, 1, 15, 10, 30)),
+                    new BigDecimal("1000.50"), Timestamp.valueOf(LocalDateTime.now()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.values().forEach(dataSource -> ((EmbeddedDatabase) dataSource).shutdown());
+    }
+
+    @Test
+    void shouldReportMisplacedDealsWithoutMovingOnDryRun() {
+        // When
+        ShardRebalancer.RebalanceReport report = new ShardRebalancer(shards, ring, event -> { }, 50).rebalance(true);
+
+        // Then
+        assertThat(report.scanned()).isEqualTo(DEALS);
+        assertThat(report.moved()).isEqualTo(DEALS - ownedBy("shard-a"));
+        assertThat(count("shard-a")).isEqualTo(DEALS);
+    }
+
+    @Test
+    void shouldMoveEveryDealToItsOwner() {
+        // When
+        ShardRebalancer.RebalanceReport report = new ShardRebalancer(shards, ring, event -> { }, 50).rebalance(false);
+
+        // Then
+        assertThat(report.moved()).isEqualTo(DEALS - ownedBy("shard-a"));
+        for (String shard : shards.keySet()) {
+            assertThat(count(shard)).isEqualTo(ownedBy(shard));
+            List<String> ids = new JdbcTemplate(shards.get(shard)).queryForList("SELECT deal_unique_id FROM deals", String.class);
+            assertThat(ids).allSatisfy(id -> assertThat(ring.shardFor(id)).isEqualTo(shard));
+        }
+        BigDecimal amount = new JdbcTemplate(shards.get("shard-b"))
+                .queryForObject("SELECT MIN(deal_amount) FROM deals", BigDecimal.class);
+        assertThat(amount).isEqualByComparingTo("1000.50");
+    }
+
+    @Test
+    void shouldCompleteInterruptedMove() {
+        // Given - a previous run copied DEAL-x to its owner but did not delete it from shard-a
+        String misplaced = firstOwnedByOtherShard();
+        String owner = ring.shardFor(misplaced);
+        new JdbcTemplate(shards.get(owner)).update(
+                "INSERT INTO deals (deal_unique_id, from_currency, to_currency, deal_timestamp, deal_amount, created_at) "
+                        + "VALUES (?, 'USD', 'EUR', CURRENT_TIMESTAMP, 1000.50, CURRENT_TIMESTAMP)", misplaced);
+
+        // When
+        new ShardRebalancer(shards, ring, event -> { }, 50).rebalance(false);
+        ShardRebalancer.RebalanceReport secondRun = new ShardRebalancer(shards, ring, event -> { }, 50).rebalance(false);
+
+        // Then
+        assertThat(secondRun.moved()).isZero();
+        assertThat(shards.keySet().stream().mapToLong(this::count).sum()).isEqualTo(DEALS);
+    }
+
+    @Test
+    void shouldRefuseToMoveDealsWhileShardsHoldArchivedDeals() {
+        // Given
+        new JdbcTemplate(shards.get("shard-a")).update(
+                "INSERT INTO deal_archive_keys (deal_unique_id, segment_id) VALUES ('ARCHIVED-1', 1)");
+        ShardRebalancer rebalancer = new ShardRebalancer(shards, ring, event -> { }, 50);
+
+        // When & Then
+        assertThatThrownBy(() -> rebalancer.rebalance(false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shard-a");
+        assertThat(count("shard-a")).isEqualTo(DEALS);
+        assertThat(rebalancer.rebalance(true).moved()).isEqualTo(DEALS - ownedBy("shard-a"));
+    }
+
+    private long ownedBy(String shard) {
+        long owned = 0;
+        for (int i = 0; i < DEALS; i++) {
+            if (ring.shardFor("DEAL-" + i).equals(shard)) {
+                owned++;
+            }
+        }
+        return owned;
+    }
+
+    private String firstOwnedByOtherShard() {
+        for (int i = 0; i < DEALS; i++) {
+            if (!ring.shardFor("DEAL-" + i).equals("shard-a")) {
+                return "DEAL-" + i;
+            }
+        }
+        throw new IllegalStateException("All deals belong to shard-a");
+    }
+
+    private long count(String shard) {
+        return new JdbcTemplate(shards.get(shard)).queryForObject("SELECT COUNT(*) FROM deals", Long.class);
+    }
+}
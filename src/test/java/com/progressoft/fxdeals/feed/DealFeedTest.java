@@ -0,0 +1,291 @@
+package com.progressoft.fxdeals.feed;
+
+import com.progressoft.fxdeals.config.FeedProperties;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DealFeedTest {
+
+    private static final String SOURCE = DealOutbox.DEFAULT_SOURCE;
+
+    @Mock
+    private DealOutbox outbox;
+
+    @Mock
+    private ObjectProvider<DealFeedSink> sinks;
+
+    private final BlockingQueue<FeedEntry> received = new LinkedBlockingQueue<>();
+
+    private final FeedProperties properties = new FeedProperties();
+
+    private DealFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        properties.setSubscriberQueueCapacity(2);
+        feed = new DealFeed(outbox, properties, sinks);
+        lenient().when(outbox.sources()).thenReturn(List.of(SOURCE));
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.destroy();
+    }
+
+    @Test
+    void shouldDeliverRelayedEntriesToSubscribers() throws Exception {
+        // Given
+        startAt(0);
+        feed.subscribe("test", new FeedCursor(), received::addAll);
+        when(outbox.readAfter(eq(SOURCE), eq(0L), any(), anyInt())).thenReturn(entries(1, 2));
+
+        // When
+        feed.relay();
+
+        // Then
+        assertThat(take(2)).extracting(FeedEntry::sequence).containsExactly(1L, 2L);
+        assertThat(feed.getPositions()).containsEntry(SOURCE, 2L);
+    }
+
+    @Test
+    void shouldHoldBackEntriesBehindSequenceNotYetCommitted() throws Exception {
+        // Given - sequence 2 is still in flight when 3 is read
+        startAt(0);
+        feed.subscribe("test", new FeedCursor(), received::addAll);
+        when(outbox.readAfter(eq(SOURCE), eq(0L), any(), anyInt())).thenReturn(List.of(entry(1), entry(3)));
+        when(outbox.readAfter(eq(SOURCE), eq(1L), any(), anyInt()))
+                .thenReturn(List.of(entry(3)))
+                .thenReturn(entries(2, 3));
+
+        // When
+        feed.relay();
+        List<FeedEntry> beforeCommit = take(1);
+        feed.relay();
+        Long heldAt = feed.getPositions().get(SOURCE);
+        feed.relay();
+
+        // Then
+        assertThat(beforeCommit).extracting(FeedEntry::sequence).containsExactly(1L);
+        assertThat(heldAt).isEqualTo(1L);
+        assertThat(take(2)).extracting(FeedEntry::sequence).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void shouldSkipGapOpenLongerThanGapTimeout() throws Exception {
+        // Given - sequence 2 was rolled back
+        properties.setGapTimeout(Duration.ZERO);
+        startAt(0);
+        feed.subscribe("test", new FeedCursor(), received::addAll);
+        when(outbox.readAfter(eq(SOURCE), eq(0L), any(), anyInt())).thenReturn(List.of(entry(1), entry(3)));
+
+        // When
+        feed.relay();
+
+        // Then
+        assertThat(take(2)).extracting(FeedEntry::sequence).containsExactly(1L, 3L);
+        assertThat(feed.getPositions()).containsEntry(SOURCE, 3L);
+    }
+
+    @Test
+    void shouldDeliverAgainEntriesSubscriberFailedOn() throws Exception {
+        // Given
+        properties.setPollInterval(Duration.ofMillis(1));
+        startAt(0);
+        List<FeedEntry> failed = new ArrayList<>();
+        CountDownLatch failing = new CountDownLatch(1);
+        feed.subscribe("flaky", new FeedCursor(), entries -> {
+            if (failed.isEmpty()) {
+                failed.addAll(entries);
+                failing.countDown();
+                throw new IllegalStateException("Downstream unavailable");
+            }
+            received.addAll(entries);
+        });
+        when(outbox.readAfter(eq(SOURCE), anyLong(), any(LocalDateTime.class), anyInt()))
+                .thenReturn(entries(1, 2))
+                .thenReturn(List.of());
+        when(outbox.readAfter(eq(SOURCE), eq(0L), isNull(), anyInt())).thenReturn(entries(1, 2));
+
+        // When
+        feed.relay();
+        assertThat(failing.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+        feed.relay();
+
+        // Then
+        assertThat(failed).extracting(FeedEntry::sequence).containsExactly(1L, 2L);
+        assertThat(take(2)).extracting(FeedEntry::sequence).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldCatchUpSubscriberWhoseQueueOverflowed() throws Exception {
+        // Given - the subscriber is stuck on the first entry while five more arrive
+        startAt(0);
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        feed.subscribe("slow", new FeedCursor(), entries -> {
+            received.addAll(entries);
+            stuck.countDown();
+            await(release);
+        });
+        when(outbox.readAfter(eq(SOURCE), eq(0L), any(), anyInt())).thenReturn(entries(1, 1));
+        when(outbox.readAfter(eq(SOURCE), eq(1L), any(LocalDateTime.class), anyInt())).thenReturn(entries(2, 6));
+        when(outbox.readAfter(eq(SOURCE), eq(1L), isNull(), anyInt())).thenReturn(entries(2, 6));
+
+        // When
+        feed.relay();
+        assertThat(stuck.await(5, TimeUnit.SECONDS)).isTrue();
+        feed.relay();
+        release.countDown();
+
+        // Then - nothing is lost or repeated
+        assertThat(take(6)).extracting(FeedEntry::sequence).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        verify(outbox).readAfter(eq(SOURCE), eq(1L), isNull(), anyInt());
+    }
+
+    @Test
+    void shouldResumeFromEarlierPosition() throws Exception {
+        // Given
+        startAt(5);
+        when(outbox.readAfter(SOURCE, 3L, null, 500)).thenReturn(entries(4, 5));
+
+        // When
+        feed.subscribe("resumed", FeedCursor.parse("3"), received::addAll);
+
+        // Then
+        assertThat(take(2)).extracting(FeedEntry::sequence).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void shouldPositionBacklogBeforeLatestEntries() {
+        // Given
+        startAt(5);
+        when(outbox.readLatest(SOURCE, 5L, 2)).thenReturn(List.of(entry(5), entry(4)));
+
+        // When
+        FeedCursor cursor = feed.cursorBefore(2);
+
+        // Then
+        assertThat(cursor).hasToString("3");
+        assertThat(feed.cursorBefore(0)).hasToString("5");
+    }
+
+    @Test
+    void shouldBackOffWhileOutboxCannotBeRead() {
+        // Given
+        startAt(0);
+        when(outbox.sources()).thenThrow(new IllegalStateException("Table DEAL_OUTBOX not found"));
+
+        // When
+        for (int attempt = 0; attempt < 3; attempt++) {
+            feed.relay();
+        }
+        Duration backedOff = feed.nextPollDelay();
+        for (int attempt = 0; attempt < 20; attempt++) {
+            feed.relay();
+        }
+        Duration capped = feed.nextPollDelay();
+
+        // Then
+        assertThat(backedOff).isEqualTo(Duration.ofMillis(2_000));
+        assertThat(capped).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldPollAgainAtUsualIntervalOnceOutboxRecovers() {
+        // Given
+        startAt(0);
+        when(outbox.sources()).thenThrow(new IllegalStateException("Table DEAL_OUTBOX not found"))
+                .thenReturn(List.of(SOURCE));
+        feed.relay();
+
+        // When
+        feed.relay();
+
+        // Then
+        assertThat(feed.nextPollDelay()).isEqualTo(Duration.ofMillis(250));
+    }
+
+    @Test
+    void shouldStopRelayingWhenStoppedAndRestartWithoutSubscribingSinksAgain() {
+        // Given
+        when(sinks.orderedStream()).thenReturn(Stream.empty());
+        startAt(0);
+        feed.start();
+
+        // When
+        feed.stop();
+        boolean runningAfterStop = feed.isRunning();
+        feed.start();
+
+        // Then
+        assertThat(runningAfterStop).isFalse();
+        assertThat(feed.isRunning()).isTrue();
+        verify(sinks, times(1)).orderedStream();
+    }
+
+    private void startAt(long position) {
+        when(outbox.lastSequenceCreatedBefore(eq(SOURCE), any())).thenReturn(position);
+        feed.relay();
+    }
+
+    private List<FeedEntry> take(int count) throws InterruptedException {
+        List<FeedEntry> entries = new ArrayList<>();
+        while (entries.size() < count) {
+            FeedEntry entry = received.poll(5, TimeUnit.SECONDS);
+            assertThat(entry).as("entry %d of %d", entries.size() + 1, count).isNotNull();
+            entries.add(entry);
+        }
+        assertThat(received.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        return entries;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<FeedEntry> entries(long first, long last) {
+        return LongStream.rangeClosed(first, last).mapToObj(DealFeedTest::entry).toList();
+    }
+
+    private static FeedEntry entry(long sequence) {
+        DealResponseDTO deal = new DealResponseDTO(sequence, "DEAL-" + sequence, "USD", "EUR",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("100.00"), new BigDecimal("100.0000"),
+                LocalDateTime.of(2024, 1, 15, 10, 30).plusSeconds(sequence));
+        return new FeedEntry(SOURCE, sequence, deal);
+    }
+}
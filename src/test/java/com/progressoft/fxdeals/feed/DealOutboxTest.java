@@ -0,0 +1,99 @@
+package com.progressoft.fxdeals.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.progressoft.fxdeals.config.ShardingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.event.DealSubmittedEvent;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({DealOutbox.class, DealOutboxTest.OutboxTestConfig.class})
+class DealOutboxTest {
+
+    @Autowired
+    private DealOutbox dealOutbox;
+
+    @Test
+    void shouldReadBackSubmittedDealsInSequenceOrder() {
+        // Given
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-001")));
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-002")));
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-003")));
+
+        // When
+        List<FeedEntry> all = dealOutbox.readAfter(DealOutbox.DEFAULT_SOURCE, 0, null, 10);
+        List<FeedEntry> afterFirst = dealOutbox.readAfter(DealOutbox.DEFAULT_SOURCE, all.get(0).sequence(), null, 10);
+
+        // Then
+        assertThat(all).extracting(entry -> entry.deal().dealUniqueId())
+                .containsExactly("DEAL-001", "DEAL-002", "DEAL-003");
+        assertThat(all.get(0).deal()).isEqualTo(deal("DEAL-001"));
+        assertThat(afterFirst).extracting(FeedEntry::sequence)
+                .containsExactly(all.get(1).sequence(), all.get(2).sequence());
+    }
+
+    @Test
+    void shouldHoldBackEntriesThatHaveNotSettled() {
+        // Given
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-001")));
+        LocalDateTime beforeSubmission = LocalDateTime.now().minusMinutes(1);
+        LocalDateTime afterSubmission = LocalDateTime.now().plusMinutes(1);
+
+        // When & Then
+        assertThat(dealOutbox.readAfter(DealOutbox.DEFAULT_SOURCE, 0, beforeSubmission, 10)).isEmpty();
+        assertThat(dealOutbox.readAfter(DealOutbox.DEFAULT_SOURCE, 0, afterSubmission, 10)).hasSize(1);
+        assertThat(dealOutbox.lastSequenceCreatedBefore(DealOutbox.DEFAULT_SOURCE, beforeSubmission)).isZero();
+        assertThat(dealOutbox.lastSequenceCreatedBefore(DealOutbox.DEFAULT_SOURCE, afterSubmission)).isPositive();
+    }
+
+    @Test
+    void shouldReadLatestNewestFirstAndPruneOldEntries() {
+        // Given
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-001")));
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-002")));
+        dealOutbox.onDealSubmitted(new DealSubmittedEvent(deal("DEAL-003")));
+
+        // When
+        List<FeedEntry> latest = dealOutbox.readLatest(DealOutbox.DEFAULT_SOURCE, Long.MAX_VALUE, 2);
+
+        // Then
+        assertThat(latest).extracting(entry -> entry.deal().dealUniqueId()).containsExactly("DEAL-003", "DEAL-002");
+        assertThat(dealOutbox.prune(LocalDateTime.now().minusMinutes(1))).isZero();
+        assertThat(dealOutbox.prune(LocalDateTime.now().plusMinutes(1))).isEqualTo(3);
+        assertThat(dealOutbox.readAfter(DealOutbox.DEFAULT_SOURCE, 0, null, 10)).isEmpty();
+    }
+
+    private DealResponseDTO deal(String dealUniqueId) {
+        return new DealResponseDTO(1L, dealUniqueId, "USD", "EUR",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("1000.5000"), new BigDecimal("1000.5000"),
+                LocalDateTime.of(2024, 1, 15, 10, 31));
+    }
+
+    @TestConfiguration
+    static class OutboxTestConfig {
+
+        @Bean
+        DealShardRouter dealShardRouter() {
+            return new DealShardRouter(new ShardingProperties());
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+}
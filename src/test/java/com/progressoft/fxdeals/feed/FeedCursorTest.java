@@ -0,0 +1,51 @@
+package com.progressoft.fxdeals.feed;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeedCursorTest {
+
+    @Test
+    void shouldReadPlainSequenceAsDefaultSource() {
+        // When
+        FeedCursor cursor = FeedCursor.parse("42");
+
+        // Then
+        assertThat(cursor.get(DealOutbox.DEFAULT_SOURCE)).isEqualTo(42);
+        assertThat(cursor).hasToString("42");
+    }
+
+    @Test
+    void shouldRoundTripPositionsPerShard() {
+        // When
+        FeedCursor cursor = FeedCursor.parse("shard-a:120,shard-b:97");
+
+        // Then
+        assertThat(cursor.get("shard-a")).isEqualTo(120);
+        assertThat(cursor.get("shard-b")).isEqualTo(97);
+        assertThat(cursor.contains("shard-c")).isFalse();
+        assertThat(FeedCursor.parse(cursor.toString())).hasToString("shard-a:120,shard-b:97");
+    }
+
+    @Test
+    void shouldRejectMalformedPositions() {
+        assertThatThrownBy(() -> FeedCursor.parse("abc")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FeedCursor.parse("-1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FeedCursor.parse(":5")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FeedCursor.parse("shard-a:x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldOnlyAdvancePastNewEntries() {
+        // Given
+        FeedCursor cursor = FeedCursor.parse("shard-a:10");
+
+        // When & Then
+        assertThat(cursor.advance(new FeedEntry("shard-a", 10, null))).isFalse();
+        assertThat(cursor.advance(new FeedEntry("shard-a", 11, null))).isTrue();
+        assertThat(cursor.advance(new FeedEntry("shard-b", 1, null))).isTrue();
+        assertThat(cursor).hasToString("shard-a:11,shard-b:1");
+    }
+}
@@ -0,0 +1,116 @@
+package com.progressoft.fxdeals.fx;
+
+import com.progressoft.fxdeals.config.ShardingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.DealRepository;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DealRepricerTest {
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path ratesDirectory;
+
+    @AfterEach
+    void cleanUp() {
+        dealRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRepriceDealsOfChangedCurrenciesInParallelChunks() throws IOException {
+        // Given - deals valued at the original rates, GBP without a rate yet
+        Path ratesFile = ratesDirectory.resolve("fx-rates.csv");
+        Files.writeString(ratesFile, "EUR/USD,1.0800\nUSD/JPY,150.00\n");
+        FxRateTable fxRateTable = new FxRateTable(new FileSystemResource(ratesFile));
+        fxRateTable.afterPropertiesSet();
+        for (int i = 0; i < 60; i++) {
+            String currency = switch (i % 3) {
+                case 0 -> "EUR";
+                case 1 -> "JPY";
+                default -> "GBP";
+            };
+            Deal deal = new Deal("REPRICE-" + i, currency, "CHF", LocalDateTime.of(2024, 1, 15, 10, 30),
+                    new BigDecimal("1500.00"));
+            deal.setUsdNotional(fxRateTable.usdNotional(currency, deal.getDealAmount()));
+            dealRepository.save(deal);
+        }
+        DealRepricer repricer = new DealRepricer(dataSource, transactionManager,
+                new DealShardRouter(new ShardingProperties()), fxRateTable, DealStorageLayout.STANDARD, event -> { }, 7, 3);
+
+        // When - EUR is corrected and GBP gains a rate
+        Files.writeString(ratesFile, "EUR/USD,1.1000\nUSD/JPY,150.00\nGBP/USD,1.2500\n");
+        Set<String> changed = fxRateTable.reload();
+        DealRepricer.RepricingReport report = repricer.reprice(changed);
+
+        // Then
+        assertThat(changed).containsExactly("EUR", "GBP");
+        assertThat(report.repriced()).isEqualTo(40);
+        assertThat(report.rateVersion()).isEqualTo(2);
+        Map<String, BigDecimal> notionals = dealRepository.findAll().stream()
+                .collect(Collectors.toMap(Deal::getFromCurrency, Deal::getUsdNotional, (a, b) -> {
+                    assertThat(a).isEqualByComparingTo(b);
+                    return a;
+                }));
+        assertThat(notionals.get("EUR")).isEqualByComparingTo("1650.0000");
+        assertThat(notionals.get("GBP")).isEqualByComparingTo("1875.0000");
+        assertThat(notionals.get("JPY")).isEqualByComparingTo("10.0000");
+    }
+
+    @Test
+    void shouldLeaveDealsUntouchedWhenNothingChanged() throws IOException {
+        // Given
+        Path ratesFile = ratesDirectory.resolve("fx-rates.csv");
+        Files.writeString(ratesFile, "EUR/USD,1.0800\n");
+        FxRateTable fxRateTable = new FxRateTable(new FileSystemResource(ratesFile));
+        fxRateTable.afterPropertiesSet();
+        Deal deal = new Deal("REPRICE-EUR", "EUR", "USD", LocalDateTime.of(2024, 1, 15, 10, 30),
+                new BigDecimal("100.00"));
+        deal.setUsdNotional(fxRateTable.usdNotional("EUR", deal.getDealAmount()));
+        dealRepository.save(deal);
+        DealRepricer repricer = new DealRepricer(dataSource, transactionManager,
+                new DealShardRouter(new ShardingProperties()), fxRateTable, DealStorageLayout.STANDARD, event -> { }, 100, 2);
+
+        // When
+        DealRepricer.RepricingReport report = repricer.reprice(fxRateTable.current().getCurrencies());
+
+        // Then
+        assertThat(report.repriced()).isZero();
+        assertThat(dealRepository.findByDealUniqueId("REPRICE-EUR"))
+                .map(Deal::getUsdNotional)
+                .hasValueSatisfying(notional -> assertThat(notional).isEqualByComparingTo("108.0000"));
+    }
+}
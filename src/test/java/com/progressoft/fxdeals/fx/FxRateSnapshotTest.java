@@ -0,0 +1,59 @@
+package com.progressoft.fxdeals.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxRateSnapshotTest {
+
+    @Test
+    void shouldValueAmountsInUsdByQuoteDirection() throws IOException {
+        // Given
+        FxRateSnapshot rates = parse("# pair,rate\nEUR/USD,1.0842\n\nUSD/JPY,151.35\n");
+
+        // When & Then
+        assertThat(rates.usdNotional("EUR", new BigDecimal("1000.00"))).isEqualTo(new BigDecimal("1084.2000"));
+        assertThat(rates.usdNotional("JPY", new BigDecimal("1000000"))).isEqualTo(new BigDecimal("6607.2019"));
+        assertThat(rates.usdNotional("USD", new BigDecimal("12.5"))).isEqualTo(new BigDecimal("12.5000"));
+        assertThat(rates.usdNotional("GBP", new BigDecimal("1000.00"))).isNull();
+        assertThat(rates.getQuotes()).containsOnlyKeys("EUR/USD", "USD/JPY");
+        assertThat(rates.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportCurrenciesWhoseRateChanged() throws IOException {
+        // Given
+        FxRateSnapshot before = parse("EUR/USD,1.0842\nUSD/JPY,151.35\nGBP/USD,1.2715\n");
+        FxRateSnapshot after = parse("EUR/USD,1.08420\nUSD/JPY,151.40\nUSD/CHF,0.9035\n");
+
+        // When & Then
+        assertThat(after.changedSince(before)).containsExactly("CHF", "GBP", "JPY");
+        assertThat(after.changedSince(FxRateSnapshot.EMPTY)).containsExactly("CHF", "EUR", "JPY");
+    }
+
+    @Test
+    void shouldRejectMalformedRateFiles() {
+        // When & Then
+        assertThatThrownBy(() -> parse("EUR/GBP,0.8527"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Line 1: pair must have USD on exactly one side");
+        assertThatThrownBy(() -> parse("EUR/USD,1.08\nUSD/EUR,0.92"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Line 2: duplicate rate for EUR");
+        assertThatThrownBy(() -> parse("EUR/USD,-1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("rate must be positive");
+        assertThatThrownBy(() -> parse("ABC/USD,1.0"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid currency code ABC");
+    }
+
+    private static FxRateSnapshot parse(String quotes) throws IOException {
+        return FxRateSnapshot.parse(new StringReader(quotes), 1);
+    }
+}
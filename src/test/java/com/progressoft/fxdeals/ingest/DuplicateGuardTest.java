@@ -0,0 +1,84 @@
+package com.progressoft.fxdeals.ingest;
+
+import com.progressoft.fxdeals.config.DuplicateGuardProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateGuardTest {
+
+    @Test
+    void shouldShortCircuitStormWhileNewDealsAreSubmittedConcurrently() throws Exception {
+        // Given - a small negative cache, overflowed by the rejections below
+        DuplicateGuardProperties properties = new DuplicateGuardProperties();
+        properties.setNegativeCacheSize(100);
+        DuplicateGuard duplicateGuard = new DuplicateGuard(properties);
+        duplicateGuard.recordDuplicate("STORM");
+
+        // When - eight threads submit new deals, every tenth rejected, and retry the storm
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> shortCircuited = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread * 10_000;
+            shortCircuited.add(executor.submit(() -> {
+                start.await();
+                int known = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    String dealUniqueId = "DEAL-" + (offset + i);
+                    if (duplicateGuard.isKnownDuplicate(dealUniqueId)) {
+                        known++;
+                    }
+                    if (i % 10 == 0) {
+                        duplicateGuard.recordDuplicate(dealUniqueId);
+                    }
+                    if (i % 100 == 0 && duplicateGuard.isKnownDuplicate("STORM")) {
+                        known++;
+                    }
+                }
+                return known;
+            }));
+        }
+        start.countDown();
+        int known = 0;
+        for (Future<Integer> future : shortCircuited) {
+            known += future.get();
+        }
+        executor.shutdown();
+
+        // Then - no new deal was taken for a duplicate, and the cache stayed bounded
+        DuplicateGuard.Report report = duplicateGuard.report(1);
+        assertThat(known).isEqualTo(report.shortCircuited()).isPositive().isLessThanOrEqualTo(800);
+        assertThat(report.rememberedDuplicates()).isLessThanOrEqualTo(100);
+        assertThat(report.topDealIds()).singleElement()
+                .satisfies(hitter -> assertThat(hitter.key()).isEqualTo("STORM"));
+    }
+
+    @Test
+    void shouldNeitherCountNorRememberWhenDisabled() {
+        // Given
+        DuplicateGuardProperties properties = new DuplicateGuardProperties();
+        properties.setEnabled(false);
+        DuplicateGuard duplicateGuard = new DuplicateGuard(properties);
+
+        // When
+        duplicateGuard.recordDuplicate("DEAL-1");
+        boolean known = duplicateGuard.isKnownDuplicate("DEAL-1");
+        duplicateGuard.recordClient("client", true);
+
+        // Then
+        DuplicateGuard.Report report = duplicateGuard.report(10);
+        assertThat(known).isFalse();
+        assertThat(report.duplicates()).isEqualTo(1);
+        assertThat(report.rememberedDuplicates()).isZero();
+        assertThat(report.topDealIds()).isEmpty();
+        assertThat(report.topClients()).isEmpty();
+    }
+}
@@ -0,0 +1,234 @@
+package com.progressoft.fxdeals.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private MicroBatcher<Integer, String> batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    void shouldCoalesceConcurrentSubmissionsAndCompleteEachWithItsOwnOutcome() throws Exception {
+        // Given - odd items are rejected
+        batcher = new MicroBatcher<>("test", 64, Duration.ofMillis(50), Duration.ofSeconds(1), WAIT, (lane, batch) -> {
+            batchSizes.add(batch.size());
+            batch.forEach(submission -> {
+                if (submission.item() % 2 == 0) {
+                    submission.complete(lane + ":" + submission.item());
+                } else {
+                    submission.fail(new IllegalArgumentException("odd " + submission.item()));
+                }
+            });
+        });
+
+        // When
+        List<Object> outcomes = submitConcurrently(32);
+
+        // Then
+        for (int i = 0; i < 32; i++) {
+            if (i % 2 == 0) {
+                assertThat(outcomes.get(i)).isEqualTo("lane:" + i);
+            } else {
+                assertThat(outcomes.get(i)).isInstanceOf(IllegalArgumentException.class)
+                        .hasToString(new IllegalArgumentException("odd " + i).toString());
+            }
+        }
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(32);
+        assertThat(batchSizes.size()).isLessThan(32);
+    }
+
+    @Test
+    void shouldFailWholeBatchWhenHandlerThrows() {
+        // Given
+        batcher = new MicroBatcher<>("test", 8, Duration.ZERO, Duration.ofSeconds(1), WAIT, (lane, batch) -> {
+            throw new IllegalStateException("database down");
+        });
+
+        // When / Then
+        assertThatThrownBy(() -> batcher.submit("lane", 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database down");
+    }
+
+    @Test
+    void shouldFailBatchAndKeepLaneRunningWhenHandlerThrowsError() {
+        // Given - the first batch fails with an error
+        AtomicInteger batches = new AtomicInteger();
+        batcher = new MicroBatcher<>("test", 8, Duration.ZERO, Duration.ofSeconds(1), WAIT, (lane, batch) -> {
+            if (batches.incrementAndGet() == 1) {
+                throw new AssertionError("driver bug");
+            }
+            batch.forEach(submission -> submission.complete("ok"));
+        });
+
+        // When / Then
+        assertThatThrownBy(() -> batcher.submit("lane", 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasRootCauseInstanceOf(AssertionError.class);
+        assertThat(batcher.submit("lane", 2)).isEqualTo("ok");
+    }
+
+    @Test
+    void shouldWithdrawSubmissionNotTakenWithinMaximumWait() throws Exception {
+        // Given - the first batch is held until released
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        batcher = new MicroBatcher<>("test", 1, Duration.ZERO, Duration.ofSeconds(1), Duration.ofMillis(200),
+                (lane, batch) -> {
+                    handling.countDown();
+                    await(release);
+                    batch.forEach(submission -> submission.complete("ok"));
+                });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> first = executor.submit(() -> {
+                try {
+                    return batcher.submit("lane", 1);
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            });
+            handling.await();
+
+            // When / Then - the second one is still queued, the first one is being handled
+            assertThatThrownBy(() -> batcher.submit("lane", 2))
+                    .isInstanceOf(MicroBatcher.NotHandledException.class);
+            assertThat(first.get()).isInstanceOf(MicroBatcher.OutcomeUnknownException.class);
+            release.countDown();
+            assertThat(batcher.submit("lane", 3)).isEqualTo("ok");
+            assertThat(batcher.stats().get("lane").submissions()).isEqualTo(2);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldLeaveSubmissionsToCallerOnceClosed() throws Exception {
+        // Given - the first batch is held while a second submission queues behind it
+        CountDownLatch handling = new CountDownLatch(1);
+        batcher = new MicroBatcher<>("test", 1, Duration.ZERO, Duration.ofSeconds(1), WAIT, (lane, batch) -> {
+            handling.countDown();
+            sleep(200);
+            batch.forEach(submission -> submission.complete("ok"));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> submitCatching(1));
+            handling.await();
+            Future<Object> queued = executor.submit(() -> submitCatching(2));
+            sleep(50);
+
+            // When
+            batcher.close();
+
+            // Then - the batch being handled completes, the rest is left to the callers
+            assertThat(first.get()).isEqualTo("ok");
+            assertThat(queued.get()).isInstanceOf(MicroBatcher.NotHandledException.class);
+            assertThatThrownBy(() -> batcher.submit("lane", 3)).isInstanceOf(MicroBatcher.NotHandledException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldShrinkBatchLimitWhenBatchesExceedTargetLatency() throws Exception {
+        // Given - every batch takes four times the target latency
+        batcher = new MicroBatcher<>("test", 64, Duration.ofMillis(5), Duration.ofMillis(5), WAIT, (lane, batch) -> {
+            sleep(20);
+            batch.forEach(submission -> submission.complete("ok"));
+        });
+
+        // When
+        submitConcurrently(16);
+
+        // Then
+        assertThat(batcher.stats().get("lane").batchLimit()).isLessThan(8);
+    }
+
+    @Test
+    void shouldGrowBatchLimitWhileFullBatchesStayWithinTargetLatency() throws Exception {
+        // Given
+        batcher = new MicroBatcher<>("test", 64, Duration.ofMillis(50), Duration.ofSeconds(1), WAIT,
+                (lane, batch) -> batch.forEach(submission -> submission.complete("ok")));
+
+        // When
+        submitConcurrently(64);
+
+        // Then
+        assertThat(batcher.stats().get("lane").batchLimit()).isGreaterThan(8);
+        assertThat(batcher.stats().get("lane").submissions()).isEqualTo(64);
+    }
+
+    private Object submitCatching(int item) {
+        try {
+            return batcher.submit("lane", item);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private List<Object> submitConcurrently(int count) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int item = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return batcher.submit("lane", item);
+                    } catch (RuntimeException e) {
+                        return e;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
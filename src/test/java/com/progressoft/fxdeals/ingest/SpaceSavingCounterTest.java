@@ -0,0 +1,54 @@
+package com.progressoft.fxdeals.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingCounterTest {
+
+    @Test
+    void shouldFindHeavyHittersAmongManyDistinctKeys() {
+        // Given - two storming keys hidden in a stream of 10,000 unique ones
+        SpaceSavingCounter counter = new SpaceSavingCounter(16, Duration.ofHours(1));
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            counter.add("unique-" + i);
+            if (i % 4 == 0) {
+                counter.add("storm-a");
+            }
+            if (i % 10 == 0) {
+                counter.add("storm-b");
+            }
+        }
+
+        // Then
+        List<SpaceSavingCounter.HeavyHitter> top = counter.top(2);
+        assertThat(top).extracting(SpaceSavingCounter.HeavyHitter::key).containsExactly("storm-a", "storm-b");
+        assertThat(top.get(0).count()).isGreaterThanOrEqualTo(2_500L);
+        assertThat(top.get(0).count() - top.get(0).error()).isLessThanOrEqualTo(2_500L);
+        assertThat(top.get(1).count()).isGreaterThanOrEqualTo(1_000L);
+        assertThat(top.get(1).count() - top.get(1).error()).isLessThanOrEqualTo(1_000L);
+    }
+
+    @Test
+    void shouldHalveCountsEveryHalfLife() throws InterruptedException {
+        // Given
+        SpaceSavingCounter counter = new SpaceSavingCounter(4, Duration.ofMillis(200));
+        for (int i = 0; i < 8; i++) {
+            counter.add("retry");
+        }
+        counter.add("once");
+
+        // When
+        Thread.sleep(250);
+
+        // Then - the key seen once has decayed away
+        assertThat(counter.top(10)).singleElement()
+                .satisfies(hitter -> assertThat(hitter.key()).isEqualTo("retry"))
+                .satisfies(hitter -> assertThat(hitter.count()).isBetween(1L, 4L));
+    }
+}
@@ -0,0 +1,100 @@
+package com.progressoft.fxdeals.profiling;
+
+import com.progressoft.fxdeals.config.ProfilingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlightRecorderProfilerTest {
+
+    @TempDir
+    Path directory;
+
+    private FlightRecorderProfiler profiler;
+
+    @AfterEach
+    void tearDown() {
+        profiler.destroy();
+    }
+
+    @Test
+    void shouldRecordSubmitStagesInRecordingStartedOnDemand() throws Exception {
+        // Given
+        profiler = new FlightRecorderProfiler(properties(false), new SimpleMeterRegistry());
+        profiler.start("spike", Duration.ofMinutes(1));
+
+        // When
+        DealSubmitStageEvent.start(DealSubmitStageEvent.PERSIST, "DEAL-JFR", "USD", "EUR").commit();
+        FlightRecorderProfiler.RecordingInfo stopped = profiler.stop("spike");
+
+        // Then
+        assertThat(Path.of(stopped.destination())).exists().startsWith(directory);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of(stopped.destination()));
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals(DealSubmitStageEvent.NAME))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("stage")).isEqualTo("persist");
+                    assertThat(event.getString("dealUniqueId")).isEqualTo("DEAL-JFR");
+                    assertThat(event.getString("currencyPair")).isEqualTo("USD/EUR");
+                });
+    }
+
+    @Test
+    void shouldRejectSecondRecordingWithSameName() {
+        // Given
+        profiler = new FlightRecorderProfiler(properties(false), new SimpleMeterRegistry());
+        profiler.start("spike", Duration.ofMinutes(1));
+
+        // When & Then
+        assertThatThrownBy(() -> profiler.start("spike", null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already running");
+        assertThatThrownBy(() -> profiler.start("../spike", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldDumpContinuousRecordingWhenP99CrossesThreshold() throws Exception {
+        // Given
+        profiler = new FlightRecorderProfiler(properties(true), new SimpleMeterRegistry());
+        profiler.afterSingletonsInstantiated();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            profiler.recordSubmission(Duration.ofMillis(300).toNanos());
+        }
+
+        // Then
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (profiler.status().lastDump() == null && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        FlightRecorderProfiler.Dump dump = profiler.status().lastDump();
+        assertThat(dump).isNotNull();
+        assertThat(dump.reason()).startsWith("p99");
+        assertThat(Path.of(dump.file())).exists().startsWith(directory);
+        assertThat(Files.size(Path.of(dump.file()))).isPositive();
+    }
+
+    private ProfilingProperties properties(boolean continuous) {
+        ProfilingProperties properties = new ProfilingProperties();
+        properties.setDirectory(directory);
+        properties.setContinuous(continuous);
+        properties.setP99Threshold(Duration.ofMillis(100));
+        properties.setCheckInterval(Duration.ofMillis(50));
+        properties.setMinSamples(10);
+        return properties;
+    }
+}
@@ -0,0 +1,189 @@
+package com.progressoft.fxdeals.reconciliation;
+
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.archive.DealArchiver;
+import com.progressoft.fxdeals.config.ArchiveProperties;
+import com.progressoft.fxdeals.config.ReconciliationProperties;
+import com.progressoft.fxdeals.config.ShardingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.ArchiveSegmentRepository;
+import com.progressoft.fxdeals.repository.ArchivedDealKeyRepository;
+import com.progressoft.fxdeals.repository.DealRepository;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.progressoft.fxdeals.reconciliation.ReconciliationBreak.Type.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReconcilerTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 15, 9, 0);
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private ArchiveSegmentRepository segmentRepository;
+
+    @Autowired
+    private ArchivedDealKeyRepository keyRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directory;
+
+    private ReconciliationProperties properties;
+    private DealArchive dealArchive;
+    private Reconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 40; i++) {
+            dealRepository.save(new Deal(String.format("REC-%03d", i), "EUR", "USD", BASE.plusMinutes(i),
+                    new BigDecimal("100.00")));
+        }
+        dealRepository.save(new Deal("OLD-001", "EUR", "USD", BASE.minusDays(3), new BigDecimal("100.00")));
+
+        // Small ranges and pages, so the merge crosses many bucket and page boundaries
+        properties = new ReconciliationProperties();
+        properties.setWorkDirectory(directory.resolve("work"));
+        properties.setParallelism(4);
+        properties.setRangeRows(4);
+        properties.setPageSize(3);
+        dealArchive = new DealArchive(segmentRepository, keyRepository, directory.resolve("archive"),
+                new ArchiveProperties().getCompressionLevel());
+        reconciler = new Reconciler(dataSource, transactionManager,
+                new DealShardRouter(new ShardingProperties()), dealArchive, DealStorageLayout.STANDARD, properties);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        dealRepository.deleteAll();
+        keyRepository.deleteAll();
+        segmentRepository.deleteAll();
+    }
+
+    @Test
+    void shouldClassifyEveryRowOfCounterpartyFile() throws IOException {
+        // Given
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String amount = i == 5 ? "100.01" : "100.00";
+            LocalDateTime timestamp = i == 6 ? BASE.plusMinutes(i).plusSeconds(30) : BASE.plusMinutes(i);
+            String toCurrency = i == 7 ? "GBP" : "USD";
+            rows.add(String.format("REC-%03d,EUR,%s,%s,%s", i, toCurrency, timestamp, amount));
+        }
+        rows.add("REC-010,EUR,USD," + BASE.plusMinutes(10) + ",100.00");
+        rows.add("CP-ONLY-1,EUR,USD," + BASE + ",5.00");
+        rows.add("CP-ONLY-2,GBP,USD," + BASE + ",7.00");
+        rows.add("garbage row");
+        Collections.shuffle(rows, new Random(7));
+        rows.add(0, CounterpartyDeal.HEADER);
+        Path file = Files.write(directory.resolve("cp-20240115.csv"), rows);
+        Path breaksFile = directory.resolve("reports").resolve("breaks.csv");
+
+        // When - only our deals of the file's day count as missing from the file
+        ReconciliationReport report = reconciler.reconcile(file, BASE.toLocalDate().atStartOfDay(),
+                BASE.toLocalDate().plusDays(1).atStartOfDay(), breaksFile);
+
+        // Then
+        assertThat(report.rows()).isEqualTo(33);
+        assertThat(report.matched()).isEqualTo(27);
+        assertThat(report.buckets()).isGreaterThan(4);
+        assertThat(report.breaks()).containsOnly(
+                entry(MISSING, 2L), entry(EXTRA, 10L), entry(AMOUNT_MISMATCH, 1L), entry(TIMESTAMP_MISMATCH, 1L),
+                entry(CURRENCY_MISMATCH, 1L), entry(DUPLICATE, 1L), entry(UNREADABLE, 1L));
+
+        List<String> breaks = Files.readAllLines(breaksFile);
+        assertThat(breaks).hasSize(18).first().isEqualTo(ReconciliationBreak.CSV_HEADER);
+        assertThat(breaks).contains(
+                "AMOUNT_MISMATCH,REC-005,dealAmount,100.0000,100.01," + (rows.indexOf(
+                        rows.stream().filter(row -> row.startsWith("REC-005")).findFirst().orElseThrow()) + 1),
+                "CURRENCY_MISMATCH,REC-007,currencyPair,EUR/USD,EUR/GBP," + (rows.indexOf(
+                        rows.stream().filter(row -> row.startsWith("REC-007")).findFirst().orElseThrow()) + 1),
+                "EXTRA,REC-039,,,,");
+        assertThat(breaks).noneMatch(line -> line.contains("OLD-001"));
+        assertThat(Files.list(directory.resolve("work"))).isEmpty();
+    }
+
+    @Test
+    void shouldReportEveryDealAsExtraForEmptyFile() throws IOException {
+        // Given
+        Path file = Files.write(directory.resolve("empty.csv"), List.of(CounterpartyDeal.HEADER));
+
+        // When
+        ReconciliationReport report = reconciler.reconcile(file, null, null, directory.resolve("breaks.csv"));
+
+        // Then
+        assertThat(report.rows()).isZero();
+        assertThat(report.breaks()).containsEntry(EXTRA, 41L).containsEntry(MISSING, 0L);
+    }
+
+    @Test
+    void shouldCompareRowsOfArchivedDealsWithTheArchive() throws IOException {
+        // Given - two old deals archived, and a spill buffer far smaller than the file
+        dealRepository.save(new Deal("OLD-002", "EUR", "USD", BASE.minusDays(2), new BigDecimal("100.00")));
+        ArchiveProperties archiveProperties = new ArchiveProperties();
+        archiveProperties.setDirectory(directory.resolve("archive"));
+        archiveProperties.setMaxAge(Duration.between(BASE.toLocalDate().atStartOfDay(), LocalDateTime.now()));
+        new DealArchiver(dataSource, transactionManager, new DealShardRouter(new ShardingProperties()), dealArchive,
+                segmentRepository, DealStorageLayout.STANDARD, event -> { }, archiveProperties)
+                .archive();
+        properties.setSpillBuffer(DataSize.ofBytes(256));
+
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rows.add(String.format("REC-%03d,EUR,USD,%s,100.00", i, BASE.plusMinutes(i)));
+        }
+        rows.add("OLD-001,EUR,USD," + BASE.minusDays(3) + ",100.00");
+        rows.add("OLD-002,EUR,USD," + BASE.minusDays(2) + ",100.50");
+        rows.add("CP-ONLY-1,EUR,USD," + BASE + ",5.00");
+        Collections.shuffle(rows, new Random(11));
+        Path file = Files.write(directory.resolve("cp-archived.csv"), rows);
+        Path breaksFile = directory.resolve("breaks.csv");
+
+        // When
+        ReconciliationReport report = reconciler.reconcile(file, null, null, breaksFile);
+
+        // Then - archived deals absent from the file are not reported as extra
+        assertThat(dealRepository.findByDealUniqueId("OLD-001")).isEmpty();
+        assertThat(report.rows()).isEqualTo(43);
+        assertThat(report.matched()).isEqualTo(41);
+        assertThat(report.breaks()).containsEntry(AMOUNT_MISMATCH, 1L).containsEntry(MISSING, 1L)
+                .containsEntry(EXTRA, 0L);
+        assertThat(Files.readAllLines(breaksFile)).contains("MISSING,CP-ONLY-1,,,," + (rows.indexOf(
+                rows.stream().filter(row -> row.startsWith("CP-ONLY-1")).findFirst().orElseThrow()) + 1));
+    }
+}
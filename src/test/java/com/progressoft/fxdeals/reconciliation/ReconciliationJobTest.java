@@ -0,0 +1,49 @@
+package com.progressoft.fxdeals.reconciliation;
+
+import com.progressoft.fxdeals.config.ReconciliationProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ReconciliationJobTest {
+
+    @TempDir
+    private Path directory;
+
+    private ReconciliationJob reconciliationJob;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReconciliationProperties properties = new ReconciliationProperties();
+        properties.setInbox(Files.createDirectory(directory.resolve("inbox")));
+        properties.setReportDirectory(directory.resolve("reports"));
+        reconciliationJob = new ReconciliationJob(mock(Reconciler.class), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciliationJob.destroy();
+    }
+
+    @Test
+    void shouldOnlyReadFilesFromInbox() throws IOException {
+        // Given
+        Files.write(directory.resolve("outside.csv"), List.of(CounterpartyDeal.HEADER));
+
+        // When & Then
+        assertThatThrownBy(() -> reconciliationJob.start("../outside.csv", null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("No file named ../outside.csv in the reconciliation inbox");
+        assertThatThrownBy(() -> reconciliationJob.start("absent.csv", null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
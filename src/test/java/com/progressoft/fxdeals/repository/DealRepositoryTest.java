@@ -1,5 +1,6 @@
 package com.progressoft.fxdeals.repository;
 
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
 import com.progressoft.fxdeals.model.entity.Deal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -68,6 +69,31 @@ class DealRepositoryTest {
         assertThat(savedDeal.getCreatedAt()).isNotNull();
     }
 
+    @Test
+    void shouldInsertDealsInOneBatchAndReturnTheirIds() {
+        // Given
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 15, 12, 0);
+        List<DealRequestDTO> deals = List.of(
+                new DealRequestDTO("DEAL-101", "usd", "EUR", testDeal1.getDealTimestamp(), new BigDecimal("1000.50")),
+                new DealRequestDTO("DEAL-102", "XOF", "EUR", testDeal2.getDealTimestamp(), new BigDecimal("2500.75")));
+
+        // When
+        long[] ids = dealRepository.insertDeals(deals, new BigDecimal[] {new BigDecimal("1000.5000"), null}, createdAt);
+
+        // Then
+        assertThat(ids).hasSize(2).doesNotHaveDuplicates();
+        assertThat(dealRepository.findByDealUniqueId("DEAL-102")).hasValueSatisfying(found -> {
+            assertThat(found.getId()).isEqualTo(ids[1]);
+            assertThat(found.getFromCurrency()).isEqualTo("XOF");
+            assertThat(found.getDealAmount()).isEqualByComparingTo("2500.75");
+            assertThat(found.getUsdNotional()).isNull();
+            assertThat(found.getCreatedAt()).isEqualTo(createdAt);
+        });
+        assertThat(dealRepository.findDealsByCurrencyPair("USD", "EUR"))
+                .extracting(Deal::getDealUniqueId)
+                .containsExactly("DEAL-101");
+    }
+
     @Test
     void shouldFindByDealUniqueId() {
         // Given
@@ -114,6 +140,22 @@ class DealRepositoryTest {
                 .containsExactlyInAnyOrder("DEAL-001", "DEAL-003");
     }
 
+    @Test
+    void shouldSplitCurrencyPairAtTimestamp() {
+        // Given
+        dealRepository.saveAll(List.of(testDeal1, testDeal2, testDeal3));
+        // Between the deals, as the database may round timestamps below microseconds
+        LocalDateTime split = testDeal3.getDealTimestamp().minusMinutes(1);
+        
+        // When
+        List<Deal> before = dealRepository.findDealsByCurrencyPairBefore("USD", "EUR", split);
+        List<Deal> since = dealRepository.findDealsByCurrencyPairSince("USD", "EUR", split);
+        
+        // Then
+        assertThat(before).extracting(Deal::getDealUniqueId).containsExactly("DEAL-001");
+        assertThat(since).extracting(Deal::getDealUniqueId).containsExactly("DEAL-003");
+    }
+
     @Test
     void shouldFindDealsByTimestampRange() {
         // Given
@@ -0,0 +1,87 @@
+package com.progressoft.fxdeals.service;
+
+import com.progressoft.fxdeals.exception.DealValidationException;
+import com.progressoft.fxdeals.exception.DuplicateDealException;
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import com.progressoft.fxdeals.repository.DealRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batched;DB_CLOSE_DELAY=-1",
+        "fxdeals.submit-batching.enabled=true",
+        "fxdeals.submit-batching.max-delay=20ms"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class BatchedDealServiceTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 1, 15, 10, 0);
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Test
+    void shouldCompleteEachConcurrentSubmissionWithItsOwnOutcome() throws Exception {
+        // Given
+        dealService.submitDeal(deal("BATCH-EXISTING", "USD"));
+        List<DealRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(deal("BATCH-" + i, "USD"));
+        }
+        requests.add(deal("BATCH-EXISTING", "USD"));
+        requests.add(deal("BATCH-INVALID", "EUR"));
+
+        // When - all submitted at once
+        ExecutorService executor = Executors.newFixedThreadPool(requests.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> outcomes = new ArrayList<>();
+        for (DealRequestDTO request : requests) {
+            outcomes.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return dealService.submitDeal(request);
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }));
+        }
+        start.countDown();
+        List<Object> results = new ArrayList<>();
+        for (Future<Object> outcome : outcomes) {
+            results.add(outcome.get());
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(results.subList(0, 20)).allSatisfy(result ->
+                assertThat(result).isInstanceOf(DealResponseDTO.class));
+        assertThat(results.get(20)).isInstanceOf(DuplicateDealException.class);
+        assertThat(results.get(21)).isInstanceOf(DealValidationException.class);
+        assertThat(dealRepository.findExistingDealUniqueIds(requests.stream().map(DealRequestDTO::dealUniqueId).toList()))
+                .hasSize(21)
+                .doesNotContain("BATCH-INVALID");
+    }
+
+    private static DealRequestDTO deal(String id, String toCurrency) {
+        return new DealRequestDTO(id, "EUR", toCurrency, TIMESTAMP, new BigDecimal("100.00"));
+    }
+}
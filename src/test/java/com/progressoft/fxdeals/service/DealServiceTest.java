@@ -1,24 +1,47 @@
 package com.progressoft.fxdeals.service;
 
+import com.progressoft.fxdeals.archive.DealArchive;
+import com.progressoft.fxdeals.cache.DealQueryCache;
+import com.progressoft.fxdeals.cache.RecentDealsBuffer;
+import com.progressoft.fxdeals.config.DuplicateGuardProperties;
+import com.progressoft.fxdeals.config.QueryCacheProperties;
+import com.progressoft.fxdeals.config.SubmitBatchingProperties;
+import com.progressoft.fxdeals.config.ShardingProperties;
+import com.progressoft.fxdeals.datasource.DealShardRouter;
+import com.progressoft.fxdeals.datasource.ReplicaLagTracker;
+import com.progressoft.fxdeals.datasource.ReplicaRoutingContext;
+import com.progressoft.fxdeals.event.DealSubmittedEvent;
+import com.progressoft.fxdeals.exception.DealNotFoundException;
 import com.progressoft.fxdeals.exception.DealValidationException;
 import com.progressoft.fxdeals.exception.DuplicateDealException;
+import com.progressoft.fxdeals.fx.FxRateTable;
+import com.progressoft.fxdeals.ingest.DuplicateGuard;
 import com.progressoft.fxdeals.model.dto.DealRequestDTO;
 import com.progressoft.fxdeals.model.dto.DealResponseDTO;
 import com.progressoft.fxdeals.model.entity.Deal;
 import com.progressoft.fxdeals.repository.DealRepository;
 import com.progressoft.fxdeals.service.impl.DealServiceImpl;
+import com.progressoft.fxdeals.storage.DealStorageLayout;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +50,39 @@ class DealServiceTest {
     @Mock
     private DealRepository dealRepository;
 
+    @Mock
+    private ReplicaLagTracker replicaLagTracker;
+
+    @Spy
+    private DealShardRouter dealShardRouter = new DealShardRouter(new ShardingProperties());
+
+    @Mock
+    private RecentDealsBuffer recentDealsBuffer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private FxRateTable fxRateTable = fxRates("EUR/USD,1.0842\nUSD/JPY,151.35\n");
+
+    @Mock
+    private DealArchive dealArchive;
+
+    @Spy
+    private DealStorageLayout dealStorageLayout = DealStorageLayout.STANDARD;
+
+    @Spy
+    private DealQueryCache dealQueryCache = disabledQueryCache();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private SubmitBatchingProperties submitBatchingProperties = new SubmitBatchingProperties();
+
+    @Spy
+    private DuplicateGuard duplicateGuard = new DuplicateGuard(new DuplicateGuardProperties());
+
     @InjectMocks
     private DealServiceImpl dealService;
 
@@ -58,20 +114,59 @@ class DealServiceTest {
     void shouldSubmitDealSuccessfully() {
         // Given
         when(dealRepository.existsByDealUniqueId("DEAL-001")).thenReturn(false);
-        when(dealRepository.save(any(Deal.class))).thenReturn(savedDeal);
+        when(dealRepository.insertDeals(anyList(), any(), any())).thenReturn(new long[] {1L});
 
         // When
         DealResponseDTO result = dealService.submitDeal(validDealRequest);
 
         // Then
         assertThat(result).isNotNull();
-        assertThat(result.getDealUniqueId()).isEqualTo("DEAL-001");
-        assertThat(result.getFromCurrency()).isEqualTo("USD");
-        assertThat(result.getToCurrency()).isEqualTo("EUR");
-        assertThat(result.getDealAmount()).isEqualTo(new BigDecimal("1000.50"));
+        assertThat(result.id()).isEqualTo(1L);
+        assertThat(result.createdAt()).isNotNull();
+        assertThat(result.dealUniqueId()).isEqualTo("DEAL-001");
+        assertThat(result.fromCurrency()).isEqualTo("USD");
+        assertThat(result.toCurrency()).isEqualTo("EUR");
+        assertThat(result.dealAmount()).isEqualTo(new BigDecimal("1000.50"));
 
         verify(dealRepository).existsByDealUniqueId("DEAL-001");
-        verify(dealRepository).save(any(Deal.class));
+        verify(dealRepository).insertDeals(eq(List.of(validDealRequest)), any(), eq(result.createdAt()));
+        verify(dealRepository, never()).save(any(Deal.class));
+        verify(replicaLagTracker).recordWrite("DEAL-001");
+        verify(eventPublisher).publishEvent(any(DealSubmittedEvent.class));
+    }
+
+    @Test
+    void shouldValueDealInUsdAtIngest() {
+        // Given
+        DealRequestDTO yenDeal = new DealRequestDTO("DEAL-JPY", "JPY", "EUR",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("1513500"));
+        when(dealRepository.existsByDealUniqueId("DEAL-JPY")).thenReturn(false);
+        when(dealRepository.insertDeals(anyList(), any(), any())).thenReturn(new long[] {1L});
+
+        // When
+        DealResponseDTO result = dealService.submitDeal(yenDeal);
+
+        // Then
+        ArgumentCaptor<BigDecimal[]> usdNotionals = ArgumentCaptor.forClass(BigDecimal[].class);
+        verify(dealRepository).insertDeals(eq(List.of(yenDeal)), usdNotionals.capture(), any());
+        assertThat(usdNotionals.getValue()).singleElement()
+                .satisfies(usdNotional -> assertThat(usdNotional).isEqualByComparingTo("10000.0000"));
+        assertThat(result.usdNotional()).isEqualByComparingTo("10000.0000");
+    }
+
+    @Test
+    void shouldStoreDealWithoutUsdNotionalWhenCurrencyHasNoRate() {
+        // Given
+        DealRequestDTO francDeal = new DealRequestDTO("DEAL-XOF", "XOF", "EUR",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("1000.00"));
+        when(dealRepository.existsByDealUniqueId("DEAL-XOF")).thenReturn(false);
+        when(dealRepository.insertDeals(anyList(), any(), any())).thenReturn(new long[] {1L});
+
+        // When
+        DealResponseDTO result = dealService.submitDeal(francDeal);
+
+        // Then
+        assertThat(result.usdNotional()).isNull();
     }
 
     @Test
@@ -85,7 +180,44 @@ class DealServiceTest {
                 .hasMessageContaining("DEAL-001");
 
         verify(dealRepository).existsByDealUniqueId("DEAL-001");
-        verify(dealRepository, never()).save(any(Deal.class));
+        verify(dealRepository, never()).insertDeals(anyList(), any(), any());
+    }
+
+    @Test
+    void shouldRejectRetriesOfDuplicateWithoutQueryingDatabase() {
+        // Given
+        when(dealRepository.existsByDealUniqueId("DEAL-001")).thenReturn(true);
+        assertThatThrownBy(() -> dealService.submitDeal(validDealRequest))
+                .isInstanceOf(DuplicateDealException.class);
+
+        // When & Then
+        for (int retry = 0; retry < 3; retry++) {
+            assertThatThrownBy(() -> dealService.submitDeal(validDealRequest))
+                    .isInstanceOf(DuplicateDealException.class)
+                    .hasMessageContaining("DEAL-001");
+        }
+
+        verify(dealRepository, times(1)).existsByDealUniqueId("DEAL-001");
+        DuplicateGuard.Report report = duplicateGuard.report(1);
+        assertThat(report.duplicates()).isEqualTo(4);
+        assertThat(report.shortCircuited()).isEqualTo(3);
+        assertThat(report.topDealIds()).singleElement()
+                .satisfies(hitter -> assertThat(hitter.key()).isEqualTo("DEAL-001"))
+                .satisfies(hitter -> assertThat(hitter.count()).isEqualTo(4));
+    }
+
+    @Test
+    void shouldThrowDuplicateDealExceptionWhenDealIsArchived() {
+        // Given
+        when(dealRepository.existsByDealUniqueId("DEAL-001")).thenReturn(false);
+        when(dealArchive.contains("DEAL-001")).thenReturn(true);
+
+        // When & Then
+        assertThatThrownBy(() -> dealService.submitDeal(validDealRequest))
+                .isInstanceOf(DuplicateDealException.class)
+                .hasMessageContaining("DEAL-001");
+
+        verify(dealRepository, never()).insertDeals(anyList(), any(), any());
     }
 
     @Test
@@ -182,6 +314,7 @@ class DealServiceTest {
     void shouldAcceptValidCurrencyCodes() {
         // Given - Test various valid currency codes
         String[] validCurrencies = {"USD", "EUR", "GBP", "JPY", "CHF", "CAD", "AUD"};
+        when(dealRepository.insertDeals(anyList(), any(), any())).thenReturn(new long[] {1L});
         
         for (String currency : validCurrencies) {
             DealRequestDTO request = new DealRequestDTO(
@@ -193,11 +326,172 @@ class DealServiceTest {
             );
             
             when(dealRepository.existsByDealUniqueId("DEAL-" + currency)).thenReturn(false);
-            when(dealRepository.save(any(Deal.class))).thenReturn(savedDeal);
 
             // When & Then - Should not throw exception
             assertThatCode(() -> dealService.submitDeal(request))
                     .doesNotThrowAnyException();
         }
     }
-} 
\ No newline at end of file
+
+    @Test
+    void shouldGetDealByUniqueId() {
+        // Given
+        when(dealRepository.findByDealUniqueId("DEAL-001")).thenReturn(Optional.of(savedDeal));
+
+        // When
+        DealResponseDTO result = dealService.getDealByUniqueId("DEAL-001");
+
+        // Then
+        assertThat(result.id()).isEqualTo(1L);
+        assertThat(result.dealUniqueId()).isEqualTo("DEAL-001");
+        verify(replicaLagTracker).isRecentlyWritten("DEAL-001");
+        verify(dealArchive, never()).findDeal(any());
+    }
+
+    @Test
+    void shouldGetArchivedDealByUniqueId() {
+        // Given
+        when(dealRepository.findByDealUniqueId("DEAL-001")).thenReturn(Optional.empty());
+        when(dealArchive.findDeal("DEAL-001")).thenReturn(Optional.of(savedDeal));
+
+        // When
+        DealResponseDTO result = dealService.getDealByUniqueId("DEAL-001");
+
+        // Then
+        assertThat(result.id()).isEqualTo(1L);
+        assertThat(result.dealUniqueId()).isEqualTo("DEAL-001");
+    }
+
+    @Test
+    void shouldGetRecentlyWrittenDealFromPrimary() {
+        // Given
+        when(replicaLagTracker.isRecentlyWritten("DEAL-001")).thenReturn(true);
+        when(dealRepository.findByDealUniqueId("DEAL-001")).thenReturn(Optional.of(savedDeal));
+
+        // When
+        DealResponseDTO result = dealService.getDealByUniqueId("DEAL-001");
+
+        // Then
+        assertThat(result.dealUniqueId()).isEqualTo("DEAL-001");
+    }
+
+    @Test
+    void shouldLookUpDealMissingOnReplicaOnPrimary() {
+        // Given - written through another instance, so not known to be recent
+        when(replicaLagTracker.isEnabled()).thenReturn(true);
+        when(dealRepository.findByDealUniqueId("DEAL-001"))
+                .thenAnswer(invocation -> ReplicaRoutingContext.isPrimaryForced() ? Optional.of(savedDeal) : Optional.empty());
+
+        // When
+        DealResponseDTO result = dealService.getDealByUniqueId("DEAL-001");
+
+        // Then
+        assertThat(result.dealUniqueId()).isEqualTo("DEAL-001");
+        verify(dealRepository, times(2)).findByDealUniqueId("DEAL-001");
+    }
+
+    @Test
+    void shouldThrowNotFoundExceptionForUnknownDeal() {
+        // Given
+        when(dealRepository.findByDealUniqueId("NON-EXISTENT")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> dealService.getDealByUniqueId("NON-EXISTENT"))
+                .isInstanceOf(DealNotFoundException.class)
+                .hasMessageContaining("NON-EXISTENT");
+    }
+
+    @Test
+    void shouldMergeArchivedDealsIntoTimestampRange() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 31, 0, 0);
+        Deal archived = new Deal("DEAL-000", "EUR", "USD", LocalDateTime.of(2024, 1, 10, 9, 0), new BigDecimal("500.00"));
+        Deal stillHot = new Deal("DEAL-001", "USD", "EUR", LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("999.00"));
+        when(dealRepository.findDealsByTimestampRange(start, end)).thenReturn(List.of(savedDeal));
+        when(dealArchive.findDealsByTimestampRange(start, end)).thenReturn(List.of(stillHot, archived));
+
+        // When
+        List<DealResponseDTO> result = dealService.getDealsByTimestampRange(start, end);
+
+        // Then
+        assertThat(result).extracting(DealResponseDTO::dealUniqueId).containsExactly("DEAL-001", "DEAL-000");
+        assertThat(result.get(0).dealAmount()).isEqualTo(new BigDecimal("1000.50"));
+    }
+
+    @Test
+    void shouldRejectInvertedTimestampRange() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 16, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+        // When & Then
+        assertThatThrownBy(() -> dealService.getDealsByTimestampRange(start, end))
+                .isInstanceOf(DealValidationException.class)
+                .hasMessageContaining("Start time must not be after end time");
+        verify(dealRepository, never()).findDealsByTimestampRange(any(), any());
+    }
+
+    @Test
+    void shouldGetDealsByCurrencyPairInUpperCase() {
+        // Given
+        when(dealRepository.findDealsByCurrencyPair("USD", "EUR")).thenReturn(List.of(savedDeal));
+
+        // When
+        List<DealResponseDTO> result = dealService.getDealsByCurrencyPair("usd", "eur");
+
+        // Then
+        assertThat(result).extracting(DealResponseDTO::dealUniqueId).containsExactly("DEAL-001");
+    }
+
+    @Test
+    void shouldRejectOutOfRangeRecentDealsLimit() {
+        // When & Then
+        assertThatThrownBy(() -> dealService.getRecentDeals(0))
+                .isInstanceOf(DealValidationException.class)
+                .hasMessageContaining("Limit must be between 1 and");
+        verify(dealRepository, never()).findRecentDeals(anyInt());
+    }
+
+    @Test
+    void shouldServeRecentDealsFromBufferWhenPrimed() {
+        // Given
+        DealResponseDTO recent = new DealResponseDTO(1L, "DEAL-001", "USD", "EUR",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("1000.50"),
+                new BigDecimal("1000.5000"), LocalDateTime.now());
+        when(recentDealsBuffer.canServe(5)).thenReturn(true);
+        when(recentDealsBuffer.latest(5)).thenReturn(List.of(recent));
+
+        // When
+        List<DealResponseDTO> result = dealService.getRecentDeals(5);
+
+        // Then
+        assertThat(result).containsExactly(recent);
+        verify(dealRepository, never()).findRecentDeals(anyInt());
+    }
+
+    @Test
+    void shouldReadRecentDealsFromDatabaseWhenBufferNotPrimed() {
+        // Given
+        when(recentDealsBuffer.canServe(5)).thenReturn(false);
+        when(dealRepository.findRecentDeals(5)).thenReturn(List.of(savedDeal));
+
+        // When
+        List<DealResponseDTO> result = dealService.getRecentDeals(5);
+
+        // Then
+        assertThat(result).extracting(DealResponseDTO::dealUniqueId).containsExactly("DEAL-001");
+    }
+
+    private static DealQueryCache disabledQueryCache() {
+        QueryCacheProperties properties = new QueryCacheProperties();
+        properties.setEnabled(false);
+        return new DealQueryCache(properties);
+    }
+
+    private static FxRateTable fxRates(String quotes) {
+        FxRateTable table = new FxRateTable(new ByteArrayResource(quotes.getBytes()));
+        table.reload();
+        return table;
+    }
+}
@@ -0,0 +1,95 @@
+package com.progressoft.fxdeals.service;
+
+import com.progressoft.fxdeals.FxdealsApplication;
+import com.progressoft.fxdeals.datasource.ConsistentHashRing;
+import com.progressoft.fxdeals.datasource.ShardRoutingDataSource;
+import com.progressoft.fxdeals.exception.DuplicateDealException;
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
+import com.progressoft.fxdeals.model.dto.DealResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "fxdeals.sharding.enabled=true",
+        "fxdeals.sharding.shards[0].name=shard-a",
+        "fxdeals.sharding.shards[0].url=jdbc:h2:mem:shard_a;DB_CLOSE_DELAY=-1",
+        "fxdeals.sharding.shards[1].name=shard-b",
+        "fxdeals.sharding.shards[1].url=jdbc:h2:mem:shard_b;DB_CLOSE_DELAY=-1",
+        "fxdeals.sharding.shards[2].name=shard-c",
+        "fxdeals.sharding.shards[2].url=jdbc:h2:mem:shard_c;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class ShardedDealServiceTest {
+
+    private static final int DEALS = 30;
+
+    @Autowired
+    private DealService dealService;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Test
+    void shouldStoreDealsOnOwningShardAndQueryAcrossShards() {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2024, 1, 15, 0, 0);
+        for (int i = 0; i < DEALS; i++) {
+            dealService.submitDeal(new DealRequestDTO("SHARD-DEAL-" + i, "USD", "EUR",
+                    base.plusMinutes(i), new BigDecimal("100.00")));
+        }
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-a", "shard-b", "shard-c"), 256);
+
+        // Then - every shard holds exactly the deals it owns
+        shardRoutingDataSource.getShards().forEach((shard, dataSource) -> {
+            List<String> ids = new JdbcTemplate(dataSource).queryForList(
+                    "SELECT deal_unique_id FROM deals WHERE deal_unique_id LIKE 'SHARD-DEAL-%'", String.class);
+            assertThat(ids).isNotEmpty().allSatisfy(id -> assertThat(ring.shardFor(id)).isEqualTo(shard));
+        });
+
+        // And - lookups and duplicate checks go to the owning shard
+        assertThat(dealService.getDealByUniqueId("SHARD-DEAL-7").dealTimestamp()).isEqualTo(base.plusMinutes(7));
+        assertThatThrownBy(() -> dealService.submitDeal(new DealRequestDTO("SHARD-DEAL-7", "GBP", "USD",
+                base, new BigDecimal("1.00"))))
+                .isInstanceOf(DuplicateDealException.class);
+
+        // And - range queries merge all shards, newest first
+        List<DealResponseDTO> inRange = dealService.getDealsByTimestampRange(base.plusMinutes(5), base.plusMinutes(24));
+        assertThat(inRange).hasSize(20);
+        assertThat(inRange.get(0).dealUniqueId()).isEqualTo("SHARD-DEAL-24");
+        assertThat(inRange).isSortedAccordingTo((a, b) -> b.dealTimestamp().compareTo(a.dealTimestamp()));
+
+        assertThat(dealService.getDealsByCurrencyPair("USD", "EUR")).hasSize(DEALS);
+        assertThat(dealService.getRecentDeals(5)).hasSize(5);
+    }
+
+    @Test
+    void shouldRefuseToStartWithReadReplicaRouting() {
+        // Given
+        SpringApplicationBuilder application = new SpringApplicationBuilder(FxdealsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test");
+
+        // When & Then
+        assertThatThrownBy(() -> application.run(
+                "--fxdeals.sharding.enabled=true",
+                "--fxdeals.sharding.shards[0].name=shard-a",
+                "--fxdeals.sharding.shards[0].url=jdbc:h2:mem:refused_shard_a;DB_CLOSE_DELAY=-1",
+                "--fxdeals.datasource.replica.enabled=true",
+                "--fxdeals.datasource.replica.urls=jdbc:h2:mem:refused_replica;DB_CLOSE_DELAY=-1"))
+                .hasStackTraceContaining("fxdeals.sharding.enabled and fxdeals.datasource.replica.enabled cannot both be true");
+    }
+}
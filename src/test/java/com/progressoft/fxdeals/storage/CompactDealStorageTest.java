@@ -0,0 +1,137 @@
+package com.progressoft.fxdeals.storage;
+
+import com.progressoft.fxdeals.model.dto.DealRequestDTO;
+import com.progressoft.fxdeals.model.entity.Deal;
+import com.progressoft.fxdeals.repository.DealRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.mapping-resources=" + DealStorageLayout.COMPACT_MAPPING)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CompactDealStorageTest {
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void cleanUp() {
+        dealRepository.deleteAll();
+    }
+
+    @Test
+    void shouldStoreDealsInCompactColumns() {
+        // Given
+        Deal deal = new Deal("COMPACT-001", "eur", "JPY", LocalDateTime.of(2024, 1, 15, 10, 30),
+                new BigDecimal("922337203685477.5807"));
+
+        // When
+        dealRepository.save(deal);
+
+        // Then
+        assertThat(DealStorageLayout.of(entityManagerFactory.getMetamodel())).isSameAs(DealStorageLayout.COMPACT);
+        Map<String, Object> row = new JdbcTemplate(dataSource).queryForMap(
+                "SELECT deal_key, deal_unique_id, from_currency, to_currency, deal_amount, created_at FROM deals");
+        assertThat(row.get("deal_key")).isEqualTo(DealKeys.of("COMPACT-001"));
+        assertThat(((Number) row.get("from_currency")).intValue()).isEqualTo(978);
+        assertThat(((Number) row.get("to_currency")).intValue()).isEqualTo(392);
+        assertThat(row.get("deal_amount")).isEqualTo(Long.MAX_VALUE);
+        assertThat(row.get("created_at")).isNotNull();
+
+        DealStorageLayout layout = DealStorageLayout.COMPACT;
+        assertThat(layout.currency(row.get("from_currency"))).isEqualTo("EUR");
+        assertThat(layout.amount(row.get("deal_amount"))).isEqualByComparingTo("922337203685477.5807");
+    }
+
+    @Test
+    void shouldFindDealsThroughTheKeyIndexAndConvertedColumns() {
+        // Given
+        dealRepository.save(new Deal("COMPACT-002", "GBP", "USD", LocalDateTime.of(2024, 1, 15, 10, 30),
+                new BigDecimal("1000.5")));
+
+        // When & Then
+        assertThat(dealRepository.existsByDealUniqueId("COMPACT-002")).isTrue();
+        assertThat(dealRepository.existsByDealUniqueId("COMPACT-003")).isFalse();
+        assertThat(dealRepository.findByDealUniqueId("COMPACT-002")).hasValueSatisfying(found -> {
+            assertThat(found.getFromCurrency()).isEqualTo("GBP");
+            assertThat(found.getToCurrency()).isEqualTo("USD");
+            assertThat(found.getDealAmount()).isEqualByComparingTo("1000.5");
+        });
+        assertThat(dealRepository.findDealsByCurrencyPair("GBP", "USD"))
+                .extracting(Deal::getDealUniqueId)
+                .containsExactly("COMPACT-002");
+    }
+
+    @Test
+    void shouldInsertSubmittedDealsInCompactColumns() {
+        // Given
+        DealRequestDTO deal = new DealRequestDTO("COMPACT-005", "chf", "USD",
+                LocalDateTime.of(2024, 1, 15, 10, 30), new BigDecimal("1234.5"));
+
+        // When
+        long[] ids = dealRepository.insertDeals(List.of(deal), new BigDecimal[] {new BigDecimal("1400.0000")},
+                LocalDateTime.of(2024, 1, 15, 10, 31));
+
+        // Then
+        assertThat(ids).hasSize(1);
+        Map<String, Object> row = new JdbcTemplate(dataSource).queryForMap(
+                "SELECT id, deal_key, from_currency, deal_amount FROM deals");
+        assertThat(((Number) row.get("id")).longValue()).isEqualTo(ids[0]);
+        assertThat(row.get("deal_key")).isEqualTo(DealKeys.of("COMPACT-005"));
+        assertThat(((Number) row.get("from_currency")).intValue()).isEqualTo(756);
+        assertThat(row.get("deal_amount")).isEqualTo(12_345_000L);
+        assertThat(dealRepository.findByDealUniqueId("COMPACT-005")).hasValueSatisfying(found ->
+                assertThat(found.getDealAmount()).isEqualByComparingTo("1234.5"));
+    }
+
+    @Test
+    void shouldRejectSecondDealWithSameUniqueId() {
+        // Given
+        dealRepository.save(new Deal("COMPACT-004", "EUR", "USD", LocalDateTime.of(2024, 1, 15, 10, 30),
+                new BigDecimal("1")));
+
+        // When & Then
+        assertThatThrownBy(() -> dealRepository.save(new Deal("COMPACT-004", "CHF", "USD",
+                LocalDateTime.of(2024, 1, 16, 10, 30), new BigDecimal("2"))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void shouldOnlyAcceptValuesTheCompactColumnsCanHold() {
+        // Given
+        DealStorageLayout layout = DealStorageLayout.COMPACT;
+
+        // When & Then
+        assertThat(layout.canStoreAmount(ScaledAmountConverter.MAX_AMOUNT)).isTrue();
+        assertThat(layout.canStoreAmount(new BigDecimal("922337203685477.5808"))).isFalse();
+        assertThat(layout.canStoreAmount(new BigDecimal("999999999999999.9999"))).isFalse();
+        assertThat(layout.canStoreCurrency("USD")).isTrue();
+        assertThat(layout.canStoreCurrency("CSD")).isFalse();
+        assertThat(DealStorageLayout.STANDARD.canStoreAmount(new BigDecimal("999999999999999.9999"))).isTrue();
+    }
+}